@@ -0,0 +1,351 @@
+package analytics;
+/*
+ * This class is one occupancy report: what a location (or a whole chain) served in a time window. It is
+ * nothing but counters in primitive arrays, so every slice of a parallel scan (see ReservationAnalytics)
+ * counts into a report of its own and the slices are added together afterwards.
+ *
+ * Counted for the seatings that start inside the window: bookings and covers (per hour of the day they
+ * start), and per TableType and per table capacity the bookings, guests, seats at tables with a recorded
+ * party size (for the party-size fit) and minutes the tables were held (turn time). Counted for the part
+ * of every seating that lies inside the window, including one that started before it: booked
+ * table-minutes (occupancy) and guest-minutes per weekday and hour (the heatmap of the room's load).
+ * Seatings at tables that are no longer on the floor plan count towards covers and the heatmap only.
+ */
+import model.AbstractTable;
+import model.TableType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeSet;
+
+public class OccupancyReport {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int HOURS = 24;
+    private static final int DAYS = 7;
+    // Epoch day 0 (1970-01-01) was a Thursday; slots start on Monday
+    private static final int EPOCH_WEEKDAY = 3;
+    private static final TableType[] TYPES = TableType.values();
+
+    // Counters of one group of tables (a table type or a capacity)
+    private static final int TABLES = 0;
+    private static final int BOOKED_MINUTES = 1;
+    private static final int BOOKINGS = 2;
+    private static final int GUESTS = 3;
+    private static final int SEATS = 4;
+    private static final int TURN_MINUTES = 5;
+    private static final int FIELDS = 6;
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int fromMinute;       // epoch minutes, as in history.ReservationColumns
+    private final int toMinute;
+    private final int[] capacities;     // distinct table capacities, ascending
+    private final long[] byType = new long[TYPES.length * FIELDS];
+    private final long[] byCapacity;
+    private final long[] coversByHour = new long[HOURS];
+    private final long[] guestMinutes = new long[DAYS * HOURS];
+    private long bookings;
+    private long covers;
+    private volatile long[] windowMinutes;
+
+    OccupancyReport(LocalDateTime from, LocalDateTime to, int[] capacities) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("The end of the report must be after its start.");
+        }
+        this.from = from;
+        this.to = to;
+        this.fromMinute = epochMinute(from);
+        this.toMinute = epochMinute(to);
+        this.capacities = capacities;
+        this.byCapacity = new long[capacities.length * FIELDS];
+    }
+
+    static int epochMinute(LocalDateTime time) {
+        return Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    // --- Counting (one report per slice, never shared between threads while counting) ---
+
+    // Count the floor plan's tables, once per location
+    void countTables(AbstractTable[] tables) {
+        for (AbstractTable table : tables) {
+            byType[table.getType().ordinal() * FIELDS + TABLES]++;
+            byCapacity[capacityIndex(table.getCapacity()) * FIELDS + TABLES]++;
+        }
+    }
+
+    // Index of a capacity in capacities(), or -1
+    int capacityIndex(int capacity) {
+        int index = Arrays.binarySearch(capacities, capacity);
+        return index < 0 ? -1 : index;
+    }
+
+    /*
+     * Count one seating; type is a TableType ordinal and capacityIndex an index into capacities(), both
+     * -1 for a table that is not on the floor plan. Seatings entirely outside the window are ignored.
+     */
+    void add(int type, int capacity, int capacityIndex, int startMinute, int durationMinutes, int partySize) {
+        int start = Math.max(startMinute, fromMinute);
+        int end = (int) Math.min((long) startMinute + durationMinutes, toMinute);
+        if (end <= start) {
+            return;
+        }
+        int booked = end - start;
+        boolean startsInside = startMinute >= fromMinute;
+        if (startsInside) {
+            bookings++;
+            covers += partySize;
+            coversByHour[Math.floorMod(startMinute, MINUTES_PER_DAY) / 60] += partySize;
+        }
+        spread(guestMinutes, start, end, partySize);
+        if (type >= 0) {
+            count(byType, type * FIELDS, booked, startsInside, partySize, capacity, durationMinutes);
+            count(byCapacity, capacityIndex * FIELDS, booked, startsInside, partySize, capacity, durationMinutes);
+        }
+    }
+
+    private static void count(long[] group, int at, int booked, boolean startsInside, int partySize, int capacity, int durationMinutes) {
+        group[at + BOOKED_MINUTES] += booked;
+        if (startsInside) {
+            group[at + BOOKINGS]++;
+            group[at + TURN_MINUTES] += durationMinutes;
+            if (partySize > 0) {
+                group[at + GUESTS] += partySize;
+                group[at + SEATS] += capacity;
+            }
+        }
+    }
+
+    // Add weight per minute of [start, end) to the weekday x hour slots it falls into
+    private static void spread(long[] slots, int start, int end, int weight) {
+        int cursor = start;
+        while (cursor < end) {
+            int next = Math.min(end, (Math.floorDiv(cursor, 60) + 1) * 60);
+            slots[slotOf(cursor)] += (long) weight * (next - cursor);
+            cursor = next;
+        }
+    }
+
+    private static int slotOf(int minute) {
+        int weekday = Math.floorMod(Math.floorDiv(minute, MINUTES_PER_DAY) + EPOCH_WEEKDAY, DAYS);
+        return weekday * HOURS + Math.floorMod(minute, MINUTES_PER_DAY) / 60;
+    }
+
+    // Add the counters of a slice with the same window and capacities
+    void add(OccupancyReport other) {
+        if (!Arrays.equals(capacities, other.capacities)) {
+            throw new IllegalArgumentException("Only reports over the same floor plan can be added.");
+        }
+        addInto(byType, other.byType);
+        addInto(byCapacity, other.byCapacity);
+        addInto(coversByHour, other.coversByHour);
+        addInto(guestMinutes, other.guestMinutes);
+        bookings += other.bookings;
+        covers += other.covers;
+    }
+
+    private static void addInto(long[] total, long[] part) {
+        for (int i = 0; i < total.length; i++) {
+            total[i] += part[i];
+        }
+    }
+
+    // The reports of several locations over the same window as one, e.g. for a whole chain
+    public static OccupancyReport combine(Collection<OccupancyReport> reports) {
+        if (reports.isEmpty()) {
+            throw new IllegalArgumentException("There is nothing to combine.");
+        }
+        OccupancyReport first = reports.iterator().next();
+        TreeSet<Integer> capacities = new TreeSet<>();
+        for (OccupancyReport report : reports) {
+            if (!report.from.equals(first.from) || !report.to.equals(first.to)) {
+                throw new IllegalArgumentException("Only reports over the same time window can be combined.");
+            }
+            for (int capacity : report.capacities) {
+                capacities.add(capacity);
+            }
+        }
+        OccupancyReport total = new OccupancyReport(first.from, first.to,
+                capacities.stream().mapToInt(Integer::intValue).toArray());
+        for (OccupancyReport report : reports) {
+            addInto(total.byType, report.byType);
+            for (int i = 0; i < report.capacities.length; i++) {
+                int at = total.capacityIndex(report.capacities[i]) * FIELDS;
+                for (int field = 0; field < FIELDS; field++) {
+                    total.byCapacity[at + field] += report.byCapacity[i * FIELDS + field];
+                }
+            }
+            addInto(total.coversByHour, report.coversByHour);
+            addInto(total.guestMinutes, report.guestMinutes);
+            total.bookings += report.bookings;
+            total.covers += report.covers;
+        }
+        return total;
+    }
+
+    // --- Reading ---
+
+    public LocalDateTime from() {
+        return from;
+    }
+
+    public LocalDateTime to() {
+        return to;
+    }
+
+    public long bookings() {
+        return bookings;
+    }
+
+    public long covers() {
+        return covers;
+    }
+
+    // Guests of the seatings starting in that hour of the day (0-23), over the whole window
+    public long coversByHour(int hour) {
+        return coversByHour[hour];
+    }
+
+    // Distinct table capacities of the floor plan(s), ascending
+    public int[] capacities() {
+        return capacities.clone();
+    }
+
+    public long tables(TableType type) {
+        return byType[type.ordinal() * FIELDS + TABLES];
+    }
+
+    // Share of the window the tables of the type were booked, 0 to 1
+    public double occupancy(TableType type) {
+        return occupancy(byType, type.ordinal() * FIELDS);
+    }
+
+    public double occupancyByCapacity(int capacity) {
+        int index = capacityIndex(capacity);
+        return index < 0 ? 0.0 : occupancy(byCapacity, index * FIELDS);
+    }
+
+    private double occupancy(long[] group, int at) {
+        long available = group[at + TABLES] * (long) (toMinute - fromMinute);
+        return available == 0 ? 0.0 : (double) group[at + BOOKED_MINUTES] / available;
+    }
+
+    // Guests per seat at the tables of the type (party size against capacity), NaN without data
+    public double fit(TableType type) {
+        return ratio(byType, type.ordinal() * FIELDS, GUESTS, SEATS);
+    }
+
+    public double fitByCapacity(int capacity) {
+        int index = capacityIndex(capacity);
+        return index < 0 ? Double.NaN : ratio(byCapacity, index * FIELDS, GUESTS, SEATS);
+    }
+
+    // Average minutes a table of the type was held per booking, NaN without bookings
+    public double averageTurnMinutes(TableType type) {
+        return ratio(byType, type.ordinal() * FIELDS, TURN_MINUTES, BOOKINGS);
+    }
+
+    public double averageTurnMinutesByCapacity(int capacity) {
+        int index = capacityIndex(capacity);
+        return index < 0 ? Double.NaN : ratio(byCapacity, index * FIELDS, TURN_MINUTES, BOOKINGS);
+    }
+
+    private static double ratio(long[] group, int at, int numerator, int denominator) {
+        long count = group[at + denominator];
+        return count == 0 ? Double.NaN : (double) group[at + numerator] / count;
+    }
+
+    // Average number of guests in the room in that weekday's hour (0-23), over the window
+    public double averageGuests(DayOfWeek day, int hour) {
+        int slot = (day.getValue() - 1) * HOURS + hour;
+        long minutes = windowMinutes()[slot];
+        return minutes == 0 ? 0.0 : (double) guestMinutes[slot] / minutes;
+    }
+
+    // Minutes of the window that fall into each weekday x hour slot, worked out on first use
+    private long[] windowMinutes() {
+        long[] minutes = windowMinutes;
+        if (minutes == null) {
+            minutes = new long[DAYS * HOURS];
+            spread(minutes, fromMinute, toMinute, 1);
+            windowMinutes = minutes;
+        }
+        return minutes;
+    }
+
+    // One weekday hour of the heatmap
+    public record Slot(DayOfWeek day, int hour, double averageGuests) {
+    }
+
+    // The busiest weekday hour, or null if nobody was seated
+    public Slot peak() {
+        long[] minutes = windowMinutes();
+        int best = -1;
+        double bestGuests = 0;
+        for (int slot = 0; slot < guestMinutes.length; slot++) {
+            double guests = minutes[slot] == 0 ? 0.0 : (double) guestMinutes[slot] / minutes[slot];
+            if (guests > bestGuests) {
+                best = slot;
+                bestGuests = guests;
+            }
+        }
+        return best < 0 ? null : new Slot(DayOfWeek.of(best / HOURS + 1), best % HOURS, bestGuests);
+    }
+
+    // --- Text ---
+
+    // The report as aligned plain text: totals, table types, capacities, covers per hour and the heatmap
+    public String toText() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append(String.format(Locale.ROOT, "# report %s to %s: %d bookings, %d covers%n", from, to, bookings, covers));
+        Slot peak = peak();
+        if (peak != null) {
+            out.append(String.format(Locale.ROOT, "# peak %s %02d:00 with %.1f guests on average%n",
+                    peak.day().name().toLowerCase(Locale.ROOT), peak.hour(), peak.averageGuests()));
+        }
+        out.append(String.format(Locale.ROOT, "%n%-10s %7s %10s %9s %10s%n", "# type", "tables", "occupancy%", "fit%", "turn_min"));
+        for (TableType type : TYPES) {
+            int at = type.ordinal() * FIELDS;
+            appendGroup(out, type.name().toLowerCase(Locale.ROOT), byType, at);
+        }
+        out.append(String.format(Locale.ROOT, "%n%-10s %7s %10s %9s %10s%n", "# seats", "tables", "occupancy%", "fit%", "turn_min"));
+        for (int i = 0; i < capacities.length; i++) {
+            appendGroup(out, Integer.toString(capacities[i]), byCapacity, i * FIELDS);
+        }
+        out.append(String.format(Locale.ROOT, "%n%-10s %7s%n", "# hour", "covers"));
+        for (int hour = 0; hour < HOURS; hour++) {
+            if (coversByHour[hour] > 0) {
+                out.append(String.format(Locale.ROOT, "%02d:00      %7d%n", hour, coversByHour[hour]));
+            }
+        }
+        // average guests in the room, one row per weekday
+        out.append(String.format(Locale.ROOT, "%n%-4s", "# avg"));
+        for (int hour = 0; hour < HOURS; hour++) {
+            out.append(String.format(Locale.ROOT, " %4d", hour));
+        }
+        out.append(System.lineSeparator());
+        for (DayOfWeek day : DayOfWeek.values()) {
+            out.append(day.name(), 0, 3).append(' ');
+            for (int hour = 0; hour < HOURS; hour++) {
+                out.append(String.format(Locale.ROOT, " %4.1f", averageGuests(day, hour)));
+            }
+            out.append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    private void appendGroup(StringBuilder out, String name, long[] group, int at) {
+        out.append(String.format(Locale.ROOT, "%-10s %7d %10.1f %9s %10s%n", name, group[at + TABLES],
+                100.0 * occupancy(group, at), decimal(100.0 * ratio(group, at, GUESTS, SEATS)), decimal(ratio(group, at, TURN_MINUTES, BOOKINGS))));
+    }
+
+    // One decimal, or "-" when there was nothing to average
+    private static String decimal(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,256 @@
+package analytics;
+/*
+ * This class builds OccupancyReports for the locations of a restaurant (or chain) from their active
+ * book and, when a location has one, the completed seatings in its archive. The rows of a location are
+ * loaded into primitive columns (history.ReservationColumns) and scanned with fork/join: a task halves
+ * its range of rows until a slice is at most SLICE_ROWS long, every slice counts into its own report,
+ * and the halves are added on the way back, so the scan takes no locks and shares no counters.
+ * A chain report runs the locations as parallel tasks, each with its own parallel scan.
+ *
+ * The work runs in a pool of its own that leaves one core to the booking threads. The active book is
+ * copied once per report (getAllReservations) and never locked during the scan; the archive is read
+ * a day segment at a time, the days as parallel tasks, and each day's rows are scanned where they were
+ * loaded. Closed days come from the archive's column cache, so a repeated report over a long window
+ * only decodes today's segment and the days that changed.
+ */
+import history.ReservationArchive;
+import history.ReservationColumns;
+import model.AbstractTable;
+import model.Reservation;
+import model.ReservationOutcome;
+import service.IntHashMap;
+import service.ReservationService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ReservationAnalytics implements AutoCloseable {
+
+    private static final int SLICE_ROWS = 32 * 1024;
+    // Archived seatings are filed under the day they started; a day earlier catches those running into the window
+    private static final int OVERLAP_DAYS = 1;
+    private static final Set<ReservationOutcome> COMPLETED = EnumSet.of(ReservationOutcome.COMPLETED);
+    private static final long[] NO_IDS = {};
+
+    // One location's data: its reservation service and its archive (null if it has none)
+    public record Location(ReservationService service, ReservationArchive archive) {
+    }
+
+    private final Map<String, Location> locations;
+    private final ForkJoinPool pool;
+
+    public ReservationAnalytics(Map<String, Location> locations) {
+        this(locations, new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    public ReservationAnalytics(Map<String, Location> locations, ForkJoinPool pool) {
+        if (locations.isEmpty()) {
+            throw new IllegalArgumentException("At least one location is needed.");
+        }
+        this.locations = new LinkedHashMap<>(locations);
+        this.pool = pool;
+    }
+
+    public Set<String> locations() {
+        return locations.keySet();
+    }
+
+    // The report of one location for [from, to)
+    public OccupancyReport report(String location, LocalDateTime from, LocalDateTime to) {
+        Location source = locations.get(location);
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown location: " + location);
+        }
+        return pool.invoke(new LocationTask(source, from, to));
+    }
+
+    // The reports of all locations for [from, to) added together
+    public OccupancyReport chainReport(LocalDateTime from, LocalDateTime to) {
+        return pool.invoke(new RecursiveTask<OccupancyReport>() {
+            @Override
+            protected OccupancyReport compute() {
+                List<LocationTask> tasks = new ArrayList<>();
+                for (Location source : locations.values()) {
+                    tasks.add(new LocationTask(source, from, to));
+                }
+                List<OccupancyReport> reports = new ArrayList<>();
+                for (LocationTask task : ForkJoinTask.invokeAll(tasks)) {
+                    reports.add(task.join());
+                }
+                return OccupancyReport.combine(reports);
+            }
+        });
+    }
+
+    /*
+     * The report over rows already in columns, for the floor plan of the given tables. The scan runs in
+     * this analytics' pool; rows appended while it runs are not counted.
+     */
+    public OccupancyReport analyze(ReservationColumns rows, AbstractTable[] tables, LocalDateTime from, LocalDateTime to) {
+        return pool.invoke(new LocationTask(rows, tables, from, to));
+    }
+
+    // The active reservations of a location that overlap the window
+    static ReservationColumns loadActive(Location source, LocalDateTime from, LocalDateTime to) {
+        ReservationColumns rows = new ReservationColumns();
+        for (Reservation res : source.service().getAllReservations()) {
+            if (res.reservationTime().isBefore(to) && res.endTime().isAfter(from)) {
+                rows.append(res);
+            }
+        }
+        return rows;
+    }
+
+    // Load (if needed) and scan one location: the active book and every archive day as parallel tasks
+    private final class LocationTask extends RecursiveTask<OccupancyReport> {
+        private final Location source;
+        private ReservationColumns rows;
+        private AbstractTable[] tables;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        LocationTask(Location source, LocalDateTime from, LocalDateTime to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        LocationTask(ReservationColumns rows, AbstractTable[] tables, LocalDateTime from, LocalDateTime to) {
+            this(null, from, to);
+            this.rows = rows;
+            this.tables = tables;
+        }
+
+        @Override
+        protected OccupancyReport compute() {
+            if (source != null) {
+                tables = source.service().getAllTables();
+            }
+            FloorPlan plan = new FloorPlan(tables);
+            if (source != null) {
+                rows = loadActive(source, from, to);
+            }
+            List<RecursiveTask<OccupancyReport>> parts = new ArrayList<>();
+            if (source != null && source.archive() != null) {
+                // a seating completed after the copy of the book may be archived by the time its day is
+                // read; it is counted once, as the active row
+                long[] activeIds = new long[rows.size()];
+                rows.forEachRow((row, id, tableNumber, startMinute, durationMinutes, partySize, phone) -> activeIds[row] = id);
+                Arrays.sort(activeIds);
+                for (LocalDate day : source.archive().days(from.minusDays(OVERLAP_DAYS), to)) {
+                    parts.add(new DayTask(source.archive(), day, plan, from, to, activeIds));
+                }
+            }
+            OccupancyReport report = new Slice(rows, plan, from, to, 0, rows.size(), NO_IDS).compute();
+            for (RecursiveTask<OccupancyReport> part : ForkJoinTask.invokeAll(parts)) {
+                report.add(part.join());
+            }
+            report.countTables(tables);
+            return report;
+        }
+    }
+
+    // Load (or take from the archive's cache) the completed seatings of one archive day and scan them;
+    // the report clips them to the window, so the whole day can be counted
+    private static final class DayTask extends RecursiveTask<OccupancyReport> {
+        private final ReservationArchive archive;
+        private final LocalDate day;
+        private final FloorPlan plan;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long[] activeIds;
+
+        DayTask(ReservationArchive archive, LocalDate day, FloorPlan plan, LocalDateTime from, LocalDateTime to,
+                long[] activeIds) {
+            this.archive = archive;
+            this.day = day;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.activeIds = activeIds;
+        }
+
+        @Override
+        protected OccupancyReport compute() {
+            ReservationColumns rows = archive.dayColumns(day, COMPLETED);
+            return new Slice(rows, plan, from, to, 0, rows.size(), activeIds).compute();
+        }
+    }
+
+    // Table number -> type and capacity of the tables of one floor plan
+    private static final class FloorPlan {
+        final int[] capacities;
+        final IntHashMap<AbstractTable> byNumber;
+
+        FloorPlan(AbstractTable[] tables) {
+            this.capacities = Arrays.stream(tables).mapToInt(AbstractTable::getCapacity).distinct().sorted().toArray();
+            this.byNumber = new IntHashMap<>(tables.length);
+            for (AbstractTable table : tables) {
+                byNumber.put(table.getTableNumber(), table);
+            }
+        }
+    }
+
+    // Count the rows [fromRow, toRow) but those with a skipped id (sorted), halving the range until it is one slice
+    private static final class Slice extends RecursiveTask<OccupancyReport> {
+        private final ReservationColumns rows;
+        private final FloorPlan plan;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final int fromRow;
+        private final int toRow;
+        private final long[] skippedIds;
+
+        Slice(ReservationColumns rows, FloorPlan plan, LocalDateTime from, LocalDateTime to, int fromRow, int toRow,
+                long[] skippedIds) {
+            this.rows = rows;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.skippedIds = skippedIds;
+        }
+
+        @Override
+        protected OccupancyReport compute() {
+            if (toRow - fromRow > SLICE_ROWS) {
+                int middle = (fromRow + toRow) >>> 1;
+                Slice left = new Slice(rows, plan, from, to, fromRow, middle, skippedIds);
+                left.fork();
+                OccupancyReport report = new Slice(rows, plan, from, to, middle, toRow, skippedIds).compute();
+                report.add(left.join());
+                return report;
+            }
+            OccupancyReport report = new OccupancyReport(from, to, plan.capacities);
+            rows.forEachRow(fromRow, toRow, (row, id, tableNumber, startMinute, durationMinutes, partySize, phone) -> {
+                if (skippedIds.length > 0 && Arrays.binarySearch(skippedIds, id) >= 0) {
+                    return;
+                }
+                AbstractTable table = plan.byNumber.get(tableNumber);
+                if (table == null) {
+                    report.add(-1, 0, -1, startMinute, durationMinutes, partySize);
+                } else {
+                    report.add(table.getType().ordinal(), table.getCapacity(), report.capacityIndex(table.getCapacity()),
+                            startMinute, durationMinutes, partySize);
+                }
+            });
+            return report;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
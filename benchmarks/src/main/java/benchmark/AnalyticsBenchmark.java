@@ -0,0 +1,85 @@
+package benchmark;
+/*
+ * JMH measurement of an occupancy report over a year of history in ReservationColumns: the fork/join
+ * scan of ReservationAnalytics on one worker against all cores.
+ */
+import analytics.OccupancyReport;
+import analytics.ReservationAnalytics;
+import history.ReservationColumns;
+import model.AbstractTable;
+import model.Reservation;
+import service.ReservationManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+
+    // 1,000 tables with 12 two-hour slots a day fill about a year with 4,000,000 bookings
+    private static final int TABLES = 1_000;
+
+    @Param({"1000000", "4000000"})
+    public int reservations;
+
+    private AbstractTable[] tables;
+    private ReservationColumns columns;
+    private LocalDateTime to;
+    private ReservationAnalytics oneWorker;
+    private ReservationAnalytics allCores;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        List<AbstractTable> plan = BenchmarkData.tables(TABLES);
+        tables = plan.toArray(new AbstractTable[0]);
+        columns = new ReservationColumns(reservations);
+        for (long i = 0; i < reservations; i++) {
+            Reservation slot = BenchmarkData.reservation(i, TABLES);
+            columns.append(new Reservation(slot.customerName(), slot.customerPhone(), slot.reservationTime(),
+                    slot.tableNumber(), (int) (i % 8) + 1, slot.durationMinutes(), i + 1));
+        }
+        to = BenchmarkData.reservation(reservations - 1L, TABLES).endTime();
+        Map<String, ReservationAnalytics.Location> locations = Map.of("bench",
+                new ReservationAnalytics.Location(new ReservationManager(plan), null));
+        oneWorker = new ReservationAnalytics(locations, new ForkJoinPool(1));
+        allCores = new ReservationAnalytics(locations, new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        oneWorker.close();
+        allCores.close();
+    }
+
+    @Benchmark
+    public OccupancyReport reportOneWorker() {
+        return oneWorker.analyze(columns, tables, BenchmarkData.BASE_TIME, to);
+    }
+
+    @Benchmark
+    public OccupancyReport reportAllCores() {
+        return allCores.analyze(columns, tables, BenchmarkData.BASE_TIME, to);
+    }
+}
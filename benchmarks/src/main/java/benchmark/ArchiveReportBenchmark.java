@@ -0,0 +1,142 @@
+package benchmark;
+/*
+ * JMH measurement of an occupancy report over archived history read from segment files, the path
+ * report() and chainReport() take: the whole window decoded with ReservationArchive.toColumns and
+ * scanned (the old single-threaded load), report() on a freshly opened archive (every day segment
+ * decoded, the days in parallel), and report() again with the closed days in the archive's cache.
+ * The history ends yesterday, so every day of it counts as closed.
+ */
+import analytics.OccupancyReport;
+import analytics.ReservationAnalytics;
+import history.ArchivedReservation;
+import history.ReservationArchive;
+import history.ReservationColumns;
+import model.AbstractTable;
+import model.Reservation;
+import model.ReservationOutcome;
+import service.ReservationManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ArchiveReportBenchmark {
+
+    // 200 tables with 12 two-hour slots a day: 2,400 archived seatings per day
+    private static final int TABLES = 200;
+    private static final int PER_DAY = TABLES * 24 * 60 / BenchmarkData.SLOT_MINUTES;
+    private static final String LOCATION = "bench";
+
+    @Param({"30", "365"})
+    public int days;
+
+    private Path directory;
+    private List<AbstractTable> plan;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // kept open across invocations, so its day cache is warm after the first report
+    private ReservationArchive cachedArchive;
+    private ReservationAnalytics cached;
+    // reopened for every invocation, so each report decodes every segment
+    private ReservationArchive coldArchive;
+    private ReservationAnalytics cold;
+
+    @Setup(Level.Trial)
+    public void fill() throws IOException {
+        directory = Files.createTempDirectory("archive-report");
+        plan = BenchmarkData.tables(TABLES);
+        from = LocalDate.now().minusDays(days).atStartOfDay();
+        to = LocalDate.now().atStartOfDay();
+        Duration shift = Duration.between(BenchmarkData.BASE_TIME, from);
+        try (ReservationArchive archive = ReservationArchive.open(directory)) {
+            List<ArchivedReservation> day = new ArrayList<>(PER_DAY);
+            for (long i = 0; i < (long) days * PER_DAY; i++) {
+                Reservation slot = BenchmarkData.reservation(i, TABLES);
+                Reservation res = new Reservation(slot.customerName(), slot.customerPhone(),
+                        slot.reservationTime().plus(shift), slot.tableNumber(), (int) (i % 8) + 1, slot.durationMinutes(), i + 1);
+                ReservationOutcome outcome = i % 10 == 0 ? ReservationOutcome.CANCELLED : ReservationOutcome.COMPLETED;
+                day.add(new ArchivedReservation(res, outcome, res.endTime()));
+                if (day.size() == PER_DAY) {
+                    archive.append(day);
+                    day.clear();
+                }
+            }
+        }
+        cachedArchive = ReservationArchive.open(directory);
+        cached = analytics(cachedArchive);
+    }
+
+    @Setup(Level.Invocation)
+    public void reopen() throws IOException {
+        coldArchive = ReservationArchive.open(directory);
+        cold = analytics(coldArchive);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCold() {
+        cold.close();
+        coldArchive.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        cached.close();
+        cachedArchive.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private ReservationAnalytics analytics(ReservationArchive archive) {
+        return new ReservationAnalytics(Map.of(LOCATION,
+                new ReservationAnalytics.Location(new ReservationManager(plan), archive)));
+    }
+
+    @Benchmark
+    public OccupancyReport toColumnsThenScan() {
+        ReservationColumns rows = coldArchive.toColumns(from.minusDays(1), to, EnumSet.of(ReservationOutcome.COMPLETED));
+        return cold.analyze(rows, plan.toArray(new AbstractTable[0]), from, to);
+    }
+
+    @Benchmark
+    public OccupancyReport reportCold() {
+        return cold.report(LOCATION, from, to);
+    }
+
+    @Benchmark
+    public OccupancyReport reportCachedDays() {
+        return cached.report(LOCATION, from, to);
+    }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+/*
+ * JMH comparison of the original array storage (linear findTable / getReservationByTableNumber
+ * scans, shifting removal) against the indexed ReservationStore behind ReservationManager.
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import service.ReservationManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArrayStorageBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int tables;
+
+    @Param({"50", "10000", "100000"})
+    public int reservations;
+
+    private ArrayStorage arrays;
+    private ReservationManager indexed;
+    private long nextBooking;
+
+    @Setup(Level.Trial)
+    public void fill() throws TableNotAvailableExeception {
+        arrays = new ArrayStorage(BenchmarkData.tables(tables), reservations + 1);
+        for (long i = 0; i < reservations; i++) {
+            Reservation res = BenchmarkData.reservation(i, tables);
+            arrays.addReservation(res.tableNumber(), res);
+        }
+        indexed = BenchmarkData.manager(tables, reservations);
+        nextBooking = reservations;
+    }
+
+    @Benchmark
+    public Reservation arrayLookupByTable() {
+        return arrays.getReservationByTableNumber(ThreadLocalRandom.current().nextInt(tables) + 1);
+    }
+
+    @Benchmark
+    public Reservation indexedLookupByTable() {
+        return indexed.getReservationByTableNumber(ThreadLocalRandom.current().nextInt(tables) + 1);
+    }
+
+    // Book one more seating and complete the table's oldest one, keeping the book size constant
+    @Benchmark
+    public Reservation arrayBookAndComplete() {
+        Reservation res = BenchmarkData.reservation(nextBooking++, tables);
+        arrays.addReservation(res.tableNumber(), res);
+        return arrays.removeReservation(res.tableNumber());
+    }
+
+    @Benchmark
+    public Reservation indexedBookAndComplete() throws TableNotAvailableExeception {
+        Reservation res = BenchmarkData.reservation(nextBooking++, tables);
+        indexed.addReservation(res.tableNumber(), res);
+        Reservation oldest = indexed.getReservationByTableNumber(res.tableNumber());
+        indexed.removeReservation(res.tableNumber());
+        return oldest;
+    }
+
+    // The storage algorithm of the original array-based ReservationManager, kept for comparison
+    static final class ArrayStorage {
+        private final AbstractTable[] tables;
+        private final Reservation[] reservations;
+        private int reservationCount;
+
+        ArrayStorage(List<AbstractTable> tableList, int maxReservations) {
+            this.tables = tableList.toArray(new AbstractTable[0]);
+            this.reservations = new Reservation[maxReservations];
+        }
+
+        void addReservation(int tableNo, Reservation res) {
+            if (findTable(tableNo) == null) {
+                throw new IllegalArgumentException("Table number " + tableNo + " does not exist.");
+            }
+            reservations[reservationCount++] = res;
+        }
+
+        Reservation removeReservation(int tableNo) {
+            for (int i = 0; i < reservationCount; i++) {
+                if (reservations[i].tableNumber() == tableNo) {
+                    Reservation removed = reservations[i];
+                    System.arraycopy(reservations, i + 1, reservations, i, reservationCount - i - 1);
+                    reservations[--reservationCount] = null;
+                    return removed;
+                }
+            }
+            return null;
+        }
+
+        Reservation getReservationByTableNumber(int tableNo) {
+            for (int i = 0; i < reservationCount; i++) {
+                if (reservations[i].tableNumber() == tableNo) {
+                    return reservations[i];
+                }
+            }
+            return null;
+        }
+
+        AbstractTable findTable(int tableNo) {
+            for (AbstractTable table : tables) {
+                if (table.getTableNumber() == tableNo) {
+                    return table;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+/*
+ * This class builds the floor plans and reservation books the benchmarks run against.
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.FourSeaterTable;
+import model.Reservation;
+import model.TableType;
+import model.TwoSeaterTable;
+import service.ReservationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BenchmarkData {
+
+    // All generated bookings start here, 2 hour slots back to back per table
+    public static final LocalDateTime BASE_TIME = LocalDateTime.of(2030, 1, 1, 0, 0);
+    public static final int SLOT_MINUTES = Reservation.DEFAULT_DURATION_MINUTES;
+
+    private static final TableType[] TYPES = TableType.values();
+    private static final int[] CAPACITIES = {2, 4, 4, 6, 8};
+
+    private BenchmarkData() {
+    }
+
+    // A floor plan of the given size with a realistic mix of table types and capacities
+    public static List<AbstractTable> tables(int count) {
+        List<AbstractTable> tables = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            TableType type = TYPES[i % TYPES.length];
+            int capacity = CAPACITIES[i % CAPACITIES.length];
+            tables.add(capacity == 2 ? new TwoSeaterTable(i, type) : new FourSeaterTable(i, type, capacity));
+        }
+        return tables;
+    }
+
+    // Booking number i: tables are filled round-robin, one 2 hour slot after another
+    public static Reservation reservation(long i, int tableCount) {
+        int tableNo = (int) (i % tableCount) + 1;
+        LocalDateTime time = BASE_TIME.plusMinutes((i / tableCount) * SLOT_MINUTES);
+        return new Reservation("Guest " + i, "087" + (1_000_000 + i % 9_000_000), time, tableNo);
+    }
+
+    public static ReservationManager manager(int tableCount, int reservationCount) {
+        ReservationManager manager = new ReservationManager(tables(tableCount));
+        List<Reservation> chunk = new ArrayList<>(10_000);
+        try {
+            for (long i = 0; i < reservationCount; i++) {
+                chunk.add(reservation(i, tableCount));
+                if (chunk.size() == 10_000) {
+                    manager.addReservations(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                manager.addReservations(chunk);
+            }
+        } catch (TableNotAvailableExeception e) {
+            throw new IllegalStateException("Benchmark data overlaps: " + e.getMessage(), e);
+        }
+        return manager;
+    }
+}
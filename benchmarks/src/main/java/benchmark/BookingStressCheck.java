@@ -0,0 +1,228 @@
+package benchmark;
+/*
+ * This class is a stress check of ReservationManager's locking rather than a JMH benchmark: many
+ * threads book, move, cancel and complete reservations on a handful of tables at once, so nearly every
+ * call races another one on the same table or phone number. Afterwards the book must still be
+ * consistent: no two seatings of a table overlap, the id, phone and table indexes hold exactly the same
+ * reservations, the availability bitmaps agree with the schedules, and the number of reservations left
+ * matches the successful adds minus the successful removals. Exits with status 1 if any check fails
+ * or a call throws anything but a booking conflict or a stale id.
+ *
+ * java -cp benchmarks/target/benchmarks.jar benchmark.BookingStressCheck [threads] [operations per thread] [rounds]
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import service.ReservationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class BookingStressCheck {
+
+    private static final int TABLES = 4;
+    private static final int PHONES = 6;
+    // Seatings start in the evening in quarter-hour steps and may run past midnight
+    private static final LocalDateTime FIRST_START = BenchmarkData.BASE_TIME.withHour(17);
+    private static final int START_SLOTS = 28;
+    private static final int[] DURATIONS = {45, 90, 120, 180};
+
+    private final ReservationManager manager = new ReservationManager(BenchmarkData.tables(TABLES));
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+    // Ids of recent bookings, moves and removals pick one of them so most of them hit a live booking
+    private final AtomicLongArray recent = new AtomicLongArray(64);
+    private final AtomicLong recentCount = new AtomicLong();
+    // Written by the workers too (unexpected exceptions), read once they have finished
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    private BookingStressCheck() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        boolean failed = false;
+        for (int round = 1; round <= rounds; round++) {
+            BookingStressCheck check = new BookingStressCheck();
+            check.run(threads, operations, round);
+            check.verify();
+            System.out.printf("round %d: %d added, %d removed, %d left, %s%n", round, check.added.get(),
+                    check.removed.get(), check.manager.reservationCount(), check.failures.isEmpty() ? "consistent" : "INCONSISTENT");
+            for (String failure : check.failures.subList(0, Math.min(20, check.failures.size()))) {
+                System.out.println("  " + failure);
+            }
+            failed |= !check.failures.isEmpty();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    // Start all workers at once and wait for them to finish
+    private void run(int threads, int operations, long seed) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(seed * 1_000 + t);
+            workers[t] = Thread.ofPlatform().name("stress-" + t).start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operations; i++) {
+                    step(random);
+                }
+            });
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // One random call; conflicts and ids removed by another thread meanwhile are expected
+    private void step(SplittableRandom random) {
+        int pick = random.nextInt(100);
+        try {
+            if (pick < 40) {
+                Reservation res = booking(random);
+                noteAdded(manager.addReservation(res.tableNumber(), res));
+            } else if (pick < 50) {
+                // a joined-table style batch across two tables, all or nothing
+                Reservation first = booking(random);
+                Reservation second = new Reservation(first.customerName(), first.customerPhone(), first.reservationTime(),
+                        first.tableNumber() % TABLES + 1, first.partySize(), first.durationMinutes());
+                for (Reservation res : manager.addReservations(List.of(first, second))) {
+                    noteAdded(res);
+                }
+            } else if (pick < 75) {
+                manager.updateReservation(anyId(random), booking(random));
+            } else if (pick < 88) {
+                noteRemoved(manager.cancelReservation(anyId(random)));
+            } else {
+                noteRemoved(manager.completeReservation(anyId(random)));
+            }
+        } catch (TableNotAvailableExeception e) {
+            // the seating overlaps one that is already booked
+        } catch (IllegalArgumentException e) {
+            // the reservation to move was removed or changed by another thread
+        } catch (RuntimeException e) {
+            failures.add(Thread.currentThread().getName() + ": " + e);
+        }
+    }
+
+    private Reservation booking(SplittableRandom random) {
+        int phone = random.nextInt(PHONES);
+        LocalDateTime start = FIRST_START.plusMinutes(15L * random.nextInt(START_SLOTS));
+        return new Reservation("Guest " + phone, "0870000" + phone, start, random.nextInt(TABLES) + 1, 2,
+                DURATIONS[random.nextInt(DURATIONS.length)]);
+    }
+
+    private long anyId(SplittableRandom random) {
+        return recent.get(random.nextInt(recent.length()));
+    }
+
+    private void noteAdded(Reservation res) {
+        added.incrementAndGet();
+        recent.set((int) (recentCount.getAndIncrement() % recent.length()), res.id());
+    }
+
+    private void noteRemoved(Reservation res) {
+        if (res != null) {
+            removed.incrementAndGet();
+        }
+    }
+
+    // Check the quiet book: schedules, indexes, availability and counts must all agree
+    private void verify() {
+        Reservation[] all = manager.getAllReservations();
+        Map<Long, Reservation> byId = new HashMap<>();
+        for (Reservation res : all) {
+            if (byId.put(res.id(), res) != null) {
+                failures.add("id " + res.id() + " is listed twice");
+            }
+            if (!res.equals(manager.getReservationById(res.id()))) {
+                failures.add("id index does not return " + res);
+            }
+        }
+        if (all.length != manager.reservationCount()) {
+            failures.add("reservationCount() is " + manager.reservationCount() + " but " + all.length + " are listed");
+        }
+        if (all.length != added.get() - removed.get()) {
+            failures.add(added.get() + " added and " + removed.get() + " removed, but " + all.length + " left");
+        }
+
+        Set<Long> scheduled = new HashSet<>();
+        for (AbstractTable table : manager.getAllTables()) {
+            Reservation[] schedule = manager.getReservationsForTable(table.getTableNumber());
+            for (int i = 0; i < schedule.length; i++) {
+                Reservation res = schedule[i];
+                if (res.tableNumber() != table.getTableNumber()) {
+                    failures.add(res + " is in the schedule of table " + table.getTableNumber());
+                }
+                if (i > 0 && schedule[i - 1].endTime().isAfter(res.reservationTime())) {
+                    failures.add("table " + table.getTableNumber() + ": " + schedule[i - 1] + " overlaps " + res);
+                }
+                if (!res.equals(byId.get(res.id()))) {
+                    failures.add(res + " is scheduled but not in the id index");
+                }
+                scheduled.add(res.id());
+            }
+            if (table.isReserved() != (schedule.length > 0)) {
+                failures.add("table " + table.getTableNumber() + " is marked reserved=" + table.isReserved() + " with "
+                        + schedule.length + " bookings");
+            }
+        }
+        if (!scheduled.equals(byId.keySet())) {
+            failures.add(byId.size() + " reservations by id but " + scheduled.size() + " in the table schedules");
+        }
+
+        for (int phone = 0; phone < PHONES; phone++) {
+            String number = "0870000" + phone;
+            Set<Reservation> indexed = new HashSet<>(Arrays.asList(manager.getReservationsByPhone(number)));
+            Set<Reservation> expected = new HashSet<>();
+            for (Reservation res : all) {
+                if (res.customerPhone().equals(number)) {
+                    expected.add(res);
+                }
+            }
+            if (!indexed.equals(expected)) {
+                failures.add("phone " + number + ": index has " + indexed.size() + " reservations, the book " + expected.size());
+            }
+        }
+
+        // every quarter hour the seatings can touch: a table is free in the index iff no seating covers it
+        for (int slot = 0; slot < START_SLOTS + DURATIONS[DURATIONS.length - 1] / 15; slot++) {
+            LocalDateTime from = FIRST_START.plusMinutes(15L * slot);
+            LocalDateTime to = from.plusMinutes(15);
+            Set<Integer> free = new HashSet<>();
+            for (AbstractTable table : manager.findAvailableTables(from, to, 0, null)) {
+                free.add(table.getTableNumber());
+            }
+            for (int tableNo = 1; tableNo <= TABLES; tableNo++) {
+                boolean booked = false;
+                for (Reservation res : manager.getReservationsForTable(tableNo)) {
+                    booked |= res.reservationTime().isBefore(to) && res.endTime().isAfter(from);
+                }
+                if (booked == free.contains(tableNo)) {
+                    failures.add("table " + tableNo + " at " + from + ": availability index says free=" + free.contains(tableNo)
+                            + ", the schedule booked=" + booked);
+                }
+            }
+        }
+    }
+}
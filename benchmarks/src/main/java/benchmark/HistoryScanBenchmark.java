@@ -0,0 +1,102 @@
+package benchmark;
+/*
+ * JMH comparison of scanning a reservation history kept as Reservation records against the same
+ * history in ReservationColumns: covers served after 18:00 and one customer's visits.
+ */
+import history.ReservationColumns;
+import model.Reservation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HistoryScanBenchmark {
+
+    private static final int EVENING_MINUTE = 18 * 60;
+
+    @Param({"100000", "1000000"})
+    public int reservations;
+
+    private List<Reservation> records;
+    private ReservationColumns columns;
+    private String phone;
+    private long packedPhone;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        records = new ArrayList<>(reservations);
+        columns = new ReservationColumns(reservations);
+        for (long i = 0; i < reservations; i++) {
+            Reservation slot = BenchmarkData.reservation(i, 200);
+            Reservation res = new Reservation(slot.customerName(), slot.customerPhone(), slot.reservationTime(),
+                    slot.tableNumber(), (int) (i % 8) + 1, slot.durationMinutes(), i + 1);
+            records.add(res);
+            columns.append(res);
+        }
+        phone = records.get(reservations / 2).customerPhone();
+        packedPhone = columns.packedPhoneOf(phone);
+    }
+
+    @Benchmark
+    public long recordsEveningCovers() {
+        long covers = 0;
+        for (Reservation res : records) {
+            if (res.reservationTime().getHour() >= 18) {
+                covers += res.partySize();
+            }
+        }
+        return covers;
+    }
+
+    @Benchmark
+    public long columnsEveningCovers() {
+        long[] covers = new long[1];
+        columns.forEachRow((row, id, table, start, duration, party, packed) -> {
+            if (Math.floorMod(start, 24 * 60) >= EVENING_MINUTE) {
+                covers[0] += party;
+            }
+        });
+        return covers[0];
+    }
+
+    @Benchmark
+    public int recordsVisitsByPhone() {
+        int visits = 0;
+        for (Reservation res : records) {
+            if (res.customerPhone().equals(phone)) {
+                visits++;
+            }
+        }
+        return visits;
+    }
+
+    @Benchmark
+    public int columnsVisitsByPhone() {
+        int[] visits = new int[1];
+        columns.forEachRow((row, id, table, start, duration, party, packed) -> {
+            if (packed == packedPhone) {
+                visits[0]++;
+            }
+        });
+        return visits[0];
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+/*
+ * JMH check that the metrics can stay on in production: the same calls against the bare
+ * ReservationManager and through MeteredReservationService. Compare the `metered` rows with -t 1 and
+ * with -t 8 (contended histogram counters), e.g.
+ *   java -jar benchmarks/target/benchmarks.jar MetricsOverheadBenchmark -t 8
+ */
+import exception.TableNotAvailableExeception;
+import metrics.MeteredReservationService;
+import metrics.ReservationMetrics;
+import model.Reservation;
+import service.ReservationManager;
+import service.ReservationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    private static final int TABLES = 200;
+
+    @Param({"false", "true"})
+    public boolean metered;
+
+    private ReservationService service;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void fillBook() {
+        ReservationManager manager = BenchmarkData.manager(TABLES, 10_000);
+        service = metered ? new MeteredReservationService(manager, new ReservationMetrics(manager)) : manager;
+    }
+
+    // Each thread books its own stretch of the calendar, and removes every booking again
+    @State(Scope.Thread)
+    public static class Booker {
+        private LocalDateTime nextTime;
+
+        @Setup(Level.Trial)
+        public void start(MetricsOverheadBenchmark bench) {
+            nextTime = BenchmarkData.BASE_TIME.plusYears(10 + bench.threadCounter.getAndIncrement());
+        }
+
+        Reservation next() {
+            nextTime = nextTime.plusMinutes(BenchmarkData.SLOT_MINUTES);
+            return new Reservation("Bench", "0870000000", nextTime, ThreadLocalRandom.current().nextInt(TABLES) + 1);
+        }
+    }
+
+    @Benchmark
+    public Reservation addThenRemoveReservation(Booker booker) throws TableNotAvailableExeception {
+        Reservation res = booker.next();
+        Reservation stored = service.addReservation(res.tableNumber(), res);
+        return service.removeReservationById(stored.id());
+    }
+
+    @Benchmark
+    public Reservation getReservationByTableNumber() {
+        return service.getReservationByTableNumber(ThreadLocalRandom.current().nextInt(TABLES) + 1);
+    }
+}
@@ -0,0 +1,136 @@
+package benchmark;
+/*
+ * JMH benchmarks for the ReservationManager hot paths. The book is pre-filled with `reservations`
+ * bookings spread over `tables` tables; run with -t 1, -t 4, -t 16 ... to compare thread counts, e.g.
+ *   java -jar benchmarks/target/benchmarks.jar ReservationManagerBenchmark -t 4 -p tables=200
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import model.TableType;
+import service.ReservationManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationManagerBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int tables;
+
+    @Param({"20", "10000", "1000000"})
+    public int reservations;
+
+    private ReservationManager manager;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final Predicate<AbstractTable> LARGE_WINDOW_TABLES =
+            t -> t.getType() == TableType.WINDOW && t.getCapacity() >= 4;
+
+    @Setup(Level.Trial)
+    public void fillBook() {
+        manager = BenchmarkData.manager(tables, reservations);
+    }
+
+    // Per-thread slot counter so threads book distinct times after the pre-filled book
+    @State(Scope.Thread)
+    public static class Booker {
+        private LocalDateTime nextTime;
+        private long[] addedIds = new long[1024];
+        private int addedCount;
+
+        @Setup(Level.Trial)
+        public void start(ReservationManagerBenchmark bench) {
+            long slotsPerTable = bench.reservations / bench.tables + 1;
+            int thread = bench.threadCounter.getAndIncrement();
+            // each thread books its own far-away stretch of the calendar
+            nextTime = BenchmarkData.BASE_TIME.plusMinutes((slotsPerTable + thread * 10_000_000L) * BenchmarkData.SLOT_MINUTES);
+        }
+
+        Reservation next(int tableCount) {
+            int tableNo = ThreadLocalRandom.current().nextInt(tableCount) + 1;
+            nextTime = nextTime.plusMinutes(BenchmarkData.SLOT_MINUTES);
+            return new Reservation("Bench", "0870000000", nextTime, tableNo);
+        }
+
+        void remember(long id) {
+            if (addedCount == addedIds.length) {
+                addedIds = Arrays.copyOf(addedIds, addedCount * 2);
+            }
+            addedIds[addedCount++] = id;
+        }
+
+        // Keep the book at its configured size between iterations
+        @TearDown(Level.Iteration)
+        public void removeAdded(ReservationManagerBenchmark bench) {
+            for (int i = 0; i < addedCount; i++) {
+                bench.manager.removeReservationById(addedIds[i]);
+            }
+            addedCount = 0;
+        }
+    }
+
+    @Benchmark
+    public Reservation addReservation(Booker booker) throws TableNotAvailableExeception {
+        Reservation res = booker.next(tables);
+        Reservation stored = manager.addReservation(res.tableNumber(), res);
+        booker.remember(stored.id());
+        return stored;
+    }
+
+    // Add followed by removal of the same booking; subtract addReservation to estimate removal
+    @Benchmark
+    public Reservation addThenRemoveReservation(Booker booker) throws TableNotAvailableExeception {
+        Reservation res = booker.next(tables);
+        Reservation stored = manager.addReservation(res.tableNumber(), res);
+        return manager.removeReservationById(stored.id());
+    }
+
+    @Benchmark
+    public Reservation getReservationByTableNumber() {
+        return manager.getReservationByTableNumber(ThreadLocalRandom.current().nextInt(tables) + 1);
+    }
+
+    @Benchmark
+    public Reservation[] getAllReservations() {
+        return manager.getAllReservations();
+    }
+
+    @Benchmark
+    public AbstractTable[] getFilteredTables() {
+        return manager.getFilteredTables(LARGE_WINDOW_TABLES);
+    }
+
+    // "Which tables for 4 are free for three hours from ..." somewhere inside the pre-filled book
+    @Benchmark
+    public AbstractTable[] findAvailableTables() {
+        long filledMinutes = (long) (reservations / tables + 1) * BenchmarkData.SLOT_MINUTES;
+        long quarter = ThreadLocalRandom.current().nextLong(filledMinutes / 15 + 1);
+        LocalDateTime from = BenchmarkData.BASE_TIME.plusMinutes(quarter * 15);
+        return manager.findAvailableTables(from, from.plusHours(3), 4, null);
+    }
+}
@@ -0,0 +1,12 @@
+package history;
+/*
+ * This record is one entry of the ReservationArchive: the reservation as it was when it left the
+ * active book, how it ended and when. closedAt - reservationTime is the turn time of a completed one.
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+
+import java.time.LocalDateTime;
+
+public record ArchivedReservation(Reservation reservation, ReservationOutcome outcome, LocalDateTime closedAt) {
+}
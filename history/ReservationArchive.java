@@ -0,0 +1,455 @@
+package history;
+/*
+ * This class is the append-only archive of reservations that left the active book, completed or
+ * cancelled. It is partitioned by day: every reservation goes into the segment file of the day it was
+ * booked for, so a query for a date range only opens the segments of those days and the active book in
+ * ReservationManager only holds what can still change.
+ *
+ * Files in the archive directory:
+ *   archive-<yyyy-MM-dd>.seg   frames of: int payload length, payload, int CRC32 of payload
+ *
+ * Once attached to a ReservationManager the archive is its ReservationHistory: every completion,
+ * cancellation and no-show is appended on the closing thread after the close is in the journal, so
+ * the history does not depend on the event bus, which can drop events. A close that was journaled but
+ * not archived before a crash is recovered when the archive is attached after the journal replay; an
+ * entry whose write fails is kept and written again with the next one. Queries stream entries to a
+ * callback and can run while entries are appended; a frame that is not complete yet (or was torn by a
+ * crash) ends the scan of its segment, and the torn tail is cut off before the segment is appended to again.
+ *
+ * Reports read the archive a day at a time (dayColumns). The columns of a day before today are kept
+ * for the next report, up to CACHED_DAYS of them, and read again only once the day's segment has grown
+ * (a late close or a recovered one), so a report over a year of history decodes only what changed.
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+import service.ReservationHistory;
+import service.ReservationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class ReservationArchive implements ReservationHistory, AutoCloseable {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("archive-(\\d{4}-\\d{2}-\\d{2})\\.seg");
+    private static final ReservationOutcome[] OUTCOMES = ReservationOutcome.values();
+    // Large enough for the biggest frame (two 64KB strings plus the fixed fields)
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_FRAME_SIZE = READ_BUFFER_SIZE - 8;
+    // Segments kept open for appending; almost every removal lands in today's or yesterday's
+    private static final int OPEN_SEGMENTS = 4;
+    // Column sets of closed days kept for reports, a year of them
+    private static final int CACHED_DAYS = 366;
+
+    private final Path directory;
+    // Segment channels open for appending, least recently used first (guarded by this)
+    private final Map<LocalDate, FileChannel> openSegments = new LinkedHashMap<>(16, 0.75f, true);
+    // Closed reservations whose write failed, written again before the next one (guarded by this)
+    private final List<ArchivedReservation> unwritten = new ArrayList<>();
+    // Ids archived per day, read while closes from the journal are recovered (guarded by this)
+    private final Map<LocalDate, Set<Long>> recoveredIds = new HashMap<>();
+    // Columns of closed days by day and outcomes, least recently used first (guarded by itself)
+    private final Map<DayKey, CachedDay> dayCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DayKey, CachedDay> eldest) {
+            return size() > CACHED_DAYS;
+        }
+    };
+    private volatile ReservationManager manager;
+
+    private record DayKey(LocalDate day, Set<ReservationOutcome> outcomes) {
+    }
+
+    // The columns read from a segment of the given length
+    private record CachedDay(long segmentLength, ReservationColumns columns) {
+    }
+
+    private ReservationArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    // Open (or create) the archive in the given directory
+    public static ReservationArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new ReservationArchive(directory);
+    }
+
+    // Archive every reservation the manager completes, cancels or releases as a no-show from now on, and
+    // the ones closed before a crash that did not make it into the archive; call after the journal replay
+    public void attach(ReservationManager manager) {
+        this.manager = manager;
+        manager.attachHistory(this);
+    }
+
+    // --- Writing ---
+
+    @Override
+    public void recordClosed(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt) {
+        write(new ArchivedReservation(res, outcome, closedAt));
+    }
+
+    @Override
+    public synchronized void recoverClosed(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt) {
+        LocalDate day = res.reservationTime().toLocalDate();
+        Set<Long> archived = recoveredIds.get(day);
+        if (archived == null) {
+            archived = new HashSet<>();
+            if (Files.exists(segmentFile(day))) {
+                Set<Long> ids = archived;
+                try (FileChannel channel = FileChannel.open(segmentFile(day), StandardOpenOption.READ)) {
+                    readSegment(channel, entry -> ids.add(entry.reservation().id()));
+                } catch (IOException e) {
+                    System.err.println("Could not read archive segment " + day + ": " + e.getMessage());
+                }
+            }
+            recoveredIds.put(day, archived);
+        }
+        if (archived.add(res.id())) {
+            write(new ArchivedReservation(res, outcome, closedAt));
+        }
+    }
+
+    // Append one entry after the ones still waiting from a failed write; what cannot be written now stays
+    // waiting (the closes are still in the journal until its next snapshot)
+    private synchronized void write(ArchivedReservation entry) {
+        unwritten.add(entry);
+        for (Iterator<ArchivedReservation> waiting = unwritten.iterator(); waiting.hasNext(); ) {
+            ArchivedReservation next = waiting.next();
+            try {
+                append(List.of(next));
+                waiting.remove();
+            } catch (IllegalArgumentException e) {
+                waiting.remove();
+                System.err.println("Could not archive reservation " + next.reservation().id() + ": " + e.getMessage());
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Could not archive reservation " + next.reservation().id() + ", " + unwritten.size()
+                        + " waiting to be written again: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Append entries to the segments of their reservation days and fsync them
+    public synchronized void append(Collection<ArchivedReservation> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, ByteBuffer> byDay = new TreeMap<>();
+        for (ArchivedReservation entry : entries) {
+            byte[] payload = encode(entry);
+            LocalDate day = entry.reservation().reservationTime().toLocalDate();
+            ByteBuffer buffer = byDay.get(day);
+            if (buffer == null || buffer.remaining() < payload.length + 8) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(4096, (buffer == null ? 0 : buffer.capacity() * 2) + payload.length + 8));
+                if (buffer != null) {
+                    bigger.put(buffer.flip());
+                }
+                buffer = bigger;
+                byDay.put(day, buffer);
+            }
+            writeFrame(buffer, payload);
+        }
+        for (Map.Entry<LocalDate, ByteBuffer> day : byDay.entrySet()) {
+            FileChannel channel = segmentForAppend(day.getKey());
+            ByteBuffer buffer = day.getValue().flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Caller holds this; opens the day's segment, cutting off a torn tail left by a crash
+    private FileChannel segmentForAppend(LocalDate day) throws IOException {
+        FileChannel channel = openSegments.get(day);
+        if (channel != null) {
+            return channel;
+        }
+        channel = FileChannel.open(segmentFile(day), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        long validEnd = readSegment(channel, entry -> { });
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        openSegments.put(day, channel);
+        if (openSegments.size() > OPEN_SEGMENTS) {
+            Map.Entry<LocalDate, FileChannel> eldest = openSegments.entrySet().iterator().next();
+            openSegments.remove(eldest.getKey());
+            eldest.getValue().close();
+        }
+        return channel;
+    }
+
+    // --- Queries ---
+
+    // Stream the entries booked for [from, to), day by day (in archive order within a day)
+    public void forEachBetween(LocalDateTime from, LocalDateTime to, Consumer<ArchivedReservation> action) {
+        scan(from, to, entry -> true, action);
+    }
+
+    public void forEachByTable(int tableNo, LocalDateTime from, LocalDateTime to, Consumer<ArchivedReservation> action) {
+        scan(from, to, entry -> entry.reservation().tableNumber() == tableNo, action);
+    }
+
+    // Entries of one customer (phone compared on digits only) booked for [from, to)
+    public void forEachByPhone(String phone, LocalDateTime from, LocalDateTime to, Consumer<ArchivedReservation> action) {
+        String digits = ReservationColumns.digitsOf(phone);
+        scan(from, to, entry -> ReservationColumns.digitsOf(entry.reservation().customerPhone()).equals(digits), action);
+    }
+
+    // A customer's whole history, e.g. to spot repeat guests; reads every segment
+    public void forEachByPhone(String phone, Consumer<ArchivedReservation> action) {
+        forEachByPhone(phone, LocalDateTime.MIN, LocalDateTime.MAX, action);
+    }
+
+    // Load the reservations booked for [from, to) into a columnar store for analysis
+    public ReservationColumns toColumns(LocalDateTime from, LocalDateTime to) {
+        return toColumns(from, to, EnumSet.allOf(ReservationOutcome.class));
+    }
+
+    // Only the reservations that closed with one of the outcomes, e.g. COMPLETED for the seatings served
+    public ReservationColumns toColumns(LocalDateTime from, LocalDateTime to, Set<ReservationOutcome> outcomes) {
+        ReservationColumns columns = new ReservationColumns();
+        scan(from, to, entry -> outcomes.contains(entry.outcome()), entry -> columns.append(entry.reservation()));
+        columns.trimToSize();
+        return columns;
+    }
+
+    // Days that have a segment, oldest first
+    public List<LocalDate> days() {
+        return segmentDays(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    // Days with a segment that holds reservations booked for [from, to), oldest first
+    public List<LocalDate> days(LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("The end of the range must be after its start.");
+        }
+        return segmentDays(from.toLocalDate(), lastDay(to));
+    }
+
+    /*
+     * Every reservation of one day's segment that closed with one of the outcomes, for reports that
+     * clip to their own window. The columns of a day before today are cached while its segment does not
+     * grow; the returned columns are shared and must not be appended to. Can run on several threads.
+     */
+    public ReservationColumns dayColumns(LocalDate day, Set<ReservationOutcome> outcomes) {
+        Path file = segmentFile(day);
+        DayKey key = new DayKey(day, EnumSet.copyOf(outcomes));
+        long length;
+        try {
+            length = Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive segment " + day, e);
+        }
+        boolean closedDay = day.isBefore(LocalDate.now());
+        if (closedDay) {
+            synchronized (dayCache) {
+                CachedDay cached = dayCache.get(key);
+                if (cached != null && cached.segmentLength() == length) {
+                    return cached.columns();
+                }
+            }
+        }
+        ReservationColumns columns = new ReservationColumns();
+        if (length > 0) {
+            // frames appended after the length was taken are read too; the next call sees the new length and reads again
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                readSegment(channel, entry -> {
+                    if (outcomes.contains(entry.outcome())) {
+                        columns.append(entry.reservation());
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read archive segment " + day, e);
+            }
+        }
+        columns.trimToSize();
+        if (closedDay) {
+            synchronized (dayCache) {
+                dayCache.put(key, new CachedDay(length, columns));
+            }
+        }
+        return columns;
+    }
+
+    private void scan(LocalDateTime from, LocalDateTime to, Predicate<ArchivedReservation> filter, Consumer<ArchivedReservation> action) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("The end of the range must be after its start.");
+        }
+        for (LocalDate day : segmentDays(from.toLocalDate(), lastDay(to))) {
+            try (FileChannel channel = FileChannel.open(segmentFile(day), StandardOpenOption.READ)) {
+                readSegment(channel, entry -> {
+                    LocalDateTime time = entry.reservation().reservationTime();
+                    if (!time.isBefore(from) && time.isBefore(to) && filter.test(entry)) {
+                        action.accept(entry);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read archive segment " + day, e);
+            }
+        }
+    }
+
+    // `to` is exclusive, so a range ending at midnight does not open the next day's segment
+    private static LocalDate lastDay(LocalDateTime to) {
+        return to.toLocalTime().equals(LocalTime.MIDNIGHT) ? to.toLocalDate().minusDays(1) : to.toLocalDate();
+    }
+
+    private List<LocalDate> segmentDays(LocalDate first, LocalDate last) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> SEGMENT_FILE.matcher(p.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(m -> LocalDate.parse(m.group(1)))
+                    .filter(day -> !day.isBefore(first) && !day.isAfter(last))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the reservation archive", e);
+        }
+    }
+
+    private Path segmentFile(LocalDate day) {
+        return directory.resolve("archive-" + day + ".seg");
+    }
+
+    // Feed the complete frames of a segment to the action, returns the offset after the last one
+    private static long readSegment(FileChannel channel, Consumer<ArchivedReservation> action) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        long offset = 0;
+        channel.position(0);
+        buffer.flip();
+        while (true) {
+            if (!fill(channel, buffer, 4)) {
+                return offset;
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || length > MAX_FRAME_SIZE || !fill(channel, buffer, length + 8)) {
+                return offset;
+            }
+            int start = buffer.position() + 4;
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if ((int) crc.getValue() != buffer.getInt(start + length)) {
+                return offset;
+            }
+            action.accept(decode(buffer.slice(start, length)));
+            buffer.position(start + length + 4);
+            offset += length + 8;
+        }
+    }
+
+    // Make sure at least `needed` bytes are readable, returns false at end of file
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= needed;
+    }
+
+    // --- Encoding ---
+
+    // Frame layout: int payload length, payload, int CRC32 of payload (as in the reservation journal)
+    private static void writeFrame(ByteBuffer out, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+    }
+
+    private static byte[] encode(ArchivedReservation entry) {
+        Reservation res = entry.reservation();
+        byte[] name = res.customerName().getBytes(StandardCharsets.UTF_8);
+        byte[] phone = res.customerPhone() == null ? new byte[0] : res.customerPhone().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF || phone.length > 0xFFFF) {
+            throw new IllegalArgumentException("Reservation " + res.id() + " has a name or phone too long to archive.");
+        }
+        LocalDateTime time = res.reservationTime();
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + 4 + 8 + 4 + 4 + 4 + 8 + 2 + name.length + 2 + phone.length);
+        out.put((byte) entry.outcome().ordinal());
+        out.putLong(res.id());
+        out.putInt(res.tableNumber());
+        out.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(time.getNano());
+        out.putInt(res.partySize());
+        out.putInt(res.durationMinutes());
+        out.putLong(entry.closedAt().toEpochSecond(ZoneOffset.UTC));
+        out.putShort((short) name.length).put(name);
+        out.putShort((short) phone.length).put(phone);
+        return out.array();
+    }
+
+    private static ArchivedReservation decode(ByteBuffer in) {
+        ReservationOutcome outcome = OUTCOMES[in.get()];
+        long id = in.getLong();
+        int tableNo = in.getInt();
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        int partySize = in.getInt();
+        int durationMinutes = in.getInt();
+        long closedAt = in.getLong();
+        byte[] name = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(name);
+        byte[] phone = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(phone);
+        Reservation res = new Reservation(new String(name, StandardCharsets.UTF_8), new String(phone, StandardCharsets.UTF_8),
+                LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC), tableNo, partySize, durationMinutes, id);
+        return new ArchivedReservation(res, outcome, LocalDateTime.ofEpochSecond(closedAt, 0, ZoneOffset.UTC));
+    }
+
+    // Stop archiving the manager's closes and close the segments; entries still waiting are reported
+    @Override
+    public void close() {
+        ReservationManager followed = manager;
+        if (followed != null) {
+            followed.detachHistory(this);
+        }
+        synchronized (this) {
+            if (!unwritten.isEmpty()) {
+                System.err.println(unwritten.size() + " closed reservations could not be archived; those still in the"
+                        + " reservation journal are recovered on the next start.");
+            }
+            for (FileChannel channel : openSegments.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close an archive segment: " + e.getMessage());
+                }
+            }
+            openSegments.clear();
+        }
+    }
+}
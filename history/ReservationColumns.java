@@ -0,0 +1,313 @@
+package history;
+/*
+ * This class is a compact, append-only columnar store for historical reservations. Instead of one
+ * Reservation record (two Strings and a LocalDateTime object graph, roughly 250 bytes) per booking,
+ * every field lives in its own primitive array, about 32 bytes per row:
+ *   id long, table int, start int (epoch minute), duration char, party size short,
+ *   phone long (digits packed into the long, or a dictionary index), name int (dictionary index).
+ * Names and phones too long to pack are deduplicated in string dictionaries, and a Reservation
+ * is only materialized when get(row) is called. Scans over the primitive columns (forEachRow) touch
+ * no objects at all, which is what analytics over years of history needs.
+ *
+ * Phone numbers are kept as their digits (the form the phone index compares on), so "087 123 4567"
+ * comes back as "0871234567". Appends are synchronized; readers work on a snapshot of the columns,
+ * which stays valid because rows are never modified once written.
+ */
+import model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReservationColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Phones of up to 15 digits (the E.164 maximum) are packed as: digit count << 56 | numeric value
+    private static final int MAX_PACKED_DIGITS = 15;
+    private static final int LENGTH_SHIFT = 56;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+    // Set on phones stored in the dictionary instead
+    private static final long DICTIONARY_FLAG = Long.MIN_VALUE;
+
+    private long[] ids;
+    private int[] tableNumbers;
+    private int[] startMinutes;
+    private char[] durations;
+    private short[] partySizes;
+    private long[] phones;
+    private int[] nameIds;
+    private volatile int size;
+
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary otherPhones = new StringDictionary();
+
+    public ReservationColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ReservationColumns(int capacity) {
+        int initial = Math.max(16, capacity);
+        ids = new long[initial];
+        tableNumbers = new int[initial];
+        startMinutes = new int[initial];
+        durations = new char[initial];
+        partySizes = new short[initial];
+        phones = new long[initial];
+        nameIds = new int[initial];
+    }
+
+    // --- Writing ---
+
+    // Append one reservation, returns its row number
+    public synchronized int append(Reservation res) {
+        long start = Math.floorDiv(res.reservationTime().toEpochSecond(ZoneOffset.UTC), 60);
+        if (start < Integer.MIN_VALUE || start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Reservation time " + res.reservationTime() + " is out of range.");
+        }
+        if (res.durationMinutes() > Character.MAX_VALUE || res.partySize() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Reservation " + res.id() + " is too long or too large to archive.");
+        }
+        int row = size;
+        if (row == ids.length) {
+            grow();
+        }
+        ids[row] = res.id();
+        tableNumbers[row] = res.tableNumber();
+        startMinutes[row] = (int) start;
+        durations[row] = (char) res.durationMinutes();
+        partySizes[row] = (short) res.partySize();
+        phones[row] = packPhone(res.customerPhone());
+        nameIds[row] = names.idOf(res.customerName());
+        size = row + 1; // publishes the row to readers
+        return row;
+    }
+
+    public void appendAll(Iterable<Reservation> reservations) {
+        for (Reservation res : reservations) {
+            append(res);
+        }
+    }
+
+    private void grow() {
+        // trimToSize() may have left fewer than two rows, which half again would not grow
+        int capacity = Math.max(16, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        tableNumbers = Arrays.copyOf(tableNumbers, capacity);
+        startMinutes = Arrays.copyOf(startMinutes, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        partySizes = Arrays.copyOf(partySizes, capacity);
+        phones = Arrays.copyOf(phones, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+    }
+
+    // Release the spare capacity, e.g. once a day's history is complete
+    public synchronized void trimToSize() {
+        int n = size;
+        ids = Arrays.copyOf(ids, n);
+        tableNumbers = Arrays.copyOf(tableNumbers, n);
+        startMinutes = Arrays.copyOf(startMinutes, n);
+        durations = Arrays.copyOf(durations, n);
+        partySizes = Arrays.copyOf(partySizes, n);
+        phones = Arrays.copyOf(phones, n);
+        nameIds = Arrays.copyOf(nameIds, n);
+    }
+
+    private long packPhone(String phone) {
+        String value = phone == null ? "" : phone;
+        long packed = packDigits(value);
+        return packed >= 0 ? packed : DICTIONARY_FLAG | otherPhones.idOf(digitsOf(value));
+    }
+
+    // digit count << 56 | numeric value, or -1 if the phone has too many digits to pack
+    private static long packDigits(String phone) {
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_PACKED_DIGITS) {
+                    return -1L;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        return ((long) digits << LENGTH_SHIFT) | value;
+    }
+
+    // --- Reading ---
+
+    public int size() {
+        return size;
+    }
+
+    // Materialize the reservation stored in a row
+    public Reservation get(int row) {
+        return view().get(row);
+    }
+
+    // Materialize every row, in append order
+    public List<Reservation> toList() {
+        View view = view();
+        List<Reservation> all = new ArrayList<>(view.size());
+        for (int row = 0; row < view.size(); row++) {
+            all.add(view.get(row));
+        }
+        return all;
+    }
+
+    // Visit the primitive columns of every row without creating objects
+    public void forEachRow(RowVisitor visitor) {
+        forEachRow(0, size, visitor);
+    }
+
+    // Visit the rows [fromRow, toRow), e.g. one slice of a parallel scan
+    public void forEachRow(int fromRow, int toRow, RowVisitor visitor) {
+        View view = view();
+        if (fromRow < 0 || fromRow > toRow || toRow > view.size()) {
+            throw new IndexOutOfBoundsException("Rows " + fromRow + " to " + toRow + " of " + view.size());
+        }
+        for (int row = fromRow; row < toRow; row++) {
+            visitor.visit(row, view.ids[row], view.tableNumbers[row], view.startMinutes[row],
+                    view.durations[row], view.partySizes[row], view.phones[row]);
+        }
+    }
+
+    // The phone number (digits only) of a packed phone column value
+    public String phoneOf(long packedPhone) {
+        return unpackPhone(packedPhone);
+    }
+
+    // Same packing as the column, to compare phones in a scan without unpacking every row;
+    // returns -1 for a long phone number that is not in the store
+    public long packedPhoneOf(String phone) {
+        long packed = packDigits(phone);
+        if (packed >= 0) {
+            return packed;
+        }
+        Integer id = otherPhones.find(digitsOf(phone));
+        return id == null ? -1L : DICTIONARY_FLAG | id;
+    }
+
+    // Phone numbers are compared on their digits only
+    static String digitsOf(String phone) {
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private String unpackPhone(long packed) {
+        if ((packed & DICTIONARY_FLAG) != 0) {
+            return otherPhones.get((int) (packed & ~DICTIONARY_FLAG));
+        }
+        int digits = (int) (packed >>> LENGTH_SHIFT);
+        if (digits == 0) {
+            return "";
+        }
+        String value = Long.toString(packed & VALUE_MASK);
+        // restore leading zeros
+        return "0".repeat(digits - value.length()) + value;
+    }
+
+    // Approximate bytes held by the columns and dictionaries
+    public long estimatedBytes() {
+        View view = view();
+        long perRow = 8 + 4 + 4 + 2 + 2 + 8 + 4;
+        return view.ids.length * perRow + names.estimatedBytes() + otherPhones.estimatedBytes();
+    }
+
+    private synchronized View view() {
+        return new View(ids, tableNumbers, startMinutes, durations, partySizes, phones, nameIds, size);
+    }
+
+    // The columns as of one moment; rows below size never change
+    private final class View {
+        final long[] ids;
+        final int[] tableNumbers;
+        final int[] startMinutes;
+        final char[] durations;
+        final short[] partySizes;
+        final long[] phones;
+        final int[] nameIds;
+        final int size;
+
+        View(long[] ids, int[] tableNumbers, int[] startMinutes, char[] durations, short[] partySizes,
+                long[] phones, int[] nameIds, int size) {
+            this.ids = ids;
+            this.tableNumbers = tableNumbers;
+            this.startMinutes = startMinutes;
+            this.durations = durations;
+            this.partySizes = partySizes;
+            this.phones = phones;
+            this.nameIds = nameIds;
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Reservation get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            return new Reservation(
+                    names.get(nameIds[row]),
+                    unpackPhone(phones[row]),
+                    LocalDateTime.ofEpochSecond(startMinutes[row] * 60L, 0, ZoneOffset.UTC),
+                    tableNumbers[row],
+                    partySizes[row],
+                    durations[row],
+                    ids[row]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(int row, long id, int tableNumber, int startMinute, int durationMinutes, int partySize, long packedPhone);
+    }
+
+    // Each distinct string is stored once and referred to by an int
+    private static final class StringDictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int count;
+
+        synchronized int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count] = value;
+            ids.put(value, count);
+            return count++;
+        }
+
+        synchronized Integer find(String value) {
+            return ids.get(value);
+        }
+
+        String get(int id) {
+            return values[id];
+        }
+
+        synchronized long estimatedBytes() {
+            long bytes = values.length * 8L + ids.size() * 48L;
+            for (int i = 0; i < count; i++) {
+                bytes += 40 + values[i].length();
+            }
+            return bytes;
+        }
+    }
+}
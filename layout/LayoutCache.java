@@ -0,0 +1,199 @@
+package layout;
+/*
+ * This class keeps a pre-parsed binary copy of every layout file it reads, so a restaurant with a large
+ * multi-floor plan does not tokenize and parse thousands of text lines on every start.
+ * The copy lives in its own directory as <file name>.bin and is used only while the layout file has the
+ * same path, size and modification time as when it was cached; otherwise the text is parsed again and
+ * the copy rewritten. A damaged or unreadable copy is ignored, the text file is always the truth.
+ *
+ * Cache file: int magic, int format version, then one frame (int length, payload, int CRC32 of payload):
+ *   long source size, long source modified (millis), short-length UTF-8 source path,
+ *   type names and zone names (int count, short-length UTF-8 each),
+ *   int table count, per table: int number, byte type index, int capacity, int zone index,
+ *   short join count, int per joined table.
+ */
+import layout.TableLayout.TableSpec;
+import model.TableType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class LayoutCache {
+
+    private static final int MAGIC = 0x544C4159; // "TLAY"
+    private static final int FORMAT_VERSION = 1;
+    private static final String CACHE_SUFFIX = ".bin";
+
+    private final Path directory;
+
+    public LayoutCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // The layout of one file, from the cached copy when the file has not changed since it was cached
+    public TableLayout load(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Source source = new Source(file.toAbsolutePath().normalize().toString(), attributes.size(),
+                attributes.lastModifiedTime().toMillis());
+        Path cached = directory.resolve(file.getFileName() + CACHE_SUFFIX);
+        TableLayout layout = read(cached, source);
+        if (layout != null) {
+            return layout;
+        }
+        layout = TableLayout.load(file);
+        try {
+            write(cached, source, layout);
+        } catch (IOException | RuntimeException e) {
+            // without a copy the next start parses the text again, nothing else is lost
+            System.err.println("Could not cache the floor plan " + file + ": " + e.getMessage());
+        }
+        return layout;
+    }
+
+    // Every <restaurant id>.layout file of a directory, ordered by restaurant id (see TableLayout.loadAll)
+    public Map<String, TableLayout> loadAll(Path layoutDirectory) throws IOException {
+        Map<String, TableLayout> layouts = new LinkedHashMap<>();
+        for (Path file : TableLayout.layoutFiles(layoutDirectory)) {
+            layouts.put(TableLayout.locationOf(file), load(file));
+        }
+        return layouts;
+    }
+
+    // The layout file a cached copy was made from
+    private record Source(String path, long size, long modifiedMillis) {
+    }
+
+    // --- Reading ---
+
+    // The cached layout, or null if there is none or it does not belong to this version of the file
+    private static TableLayout read(Path cached, Source source) {
+        if (!Files.isRegularFile(cached)) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(cached));
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int length = in.getInt();
+            int start = in.position();
+            CRC32 crc = new CRC32();
+            crc.update(in.array(), start, length);
+            if ((int) crc.getValue() != in.getInt(start + length)) {
+                return null;
+            }
+            if (in.getLong() != source.size() || in.getLong() != source.modifiedMillis()
+                    || !getString(in).equals(source.path())) {
+                return null;
+            }
+            return decode(in);
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static TableLayout decode(ByteBuffer in) {
+        TableType[] types = new TableType[in.getInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = TableType.valueOf(getString(in));
+        }
+        String[] zones = new String[in.getInt()];
+        for (int i = 0; i < zones.length; i++) {
+            zones[i] = getString(in);
+        }
+        int count = in.getInt();
+        List<TableSpec> specs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int number = in.getInt();
+            TableType type = types[in.get()];
+            int capacity = in.getInt();
+            String zone = zones[in.getInt()];
+            Integer[] joins = new Integer[in.getShort()];
+            for (int j = 0; j < joins.length; j++) {
+                joins[j] = in.getInt();
+            }
+            specs.add(new TableSpec(number, type, capacity, zone, List.of(joins)));
+        }
+        // the copy was written from a checked plan and its CRC matched
+        return TableLayout.ofChecked(specs);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- Writing ---
+
+    private void write(Path cached, Source source, TableLayout layout) throws IOException {
+        byte[] payload = encode(source, layout);
+        ByteBuffer out = ByteBuffer.allocate(4 + 4 + 4 + payload.length + 4);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        Files.createDirectories(directory);
+        Path tmp = directory.resolve(cached.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        Files.move(tmp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static byte[] encode(Source source, TableLayout layout) {
+        Map<TableType, Integer> types = new LinkedHashMap<>();
+        Map<String, Integer> zones = new LinkedHashMap<>();
+        for (TableSpec spec : layout.specs()) {
+            types.putIfAbsent(spec.type(), types.size());
+            zones.putIfAbsent(spec.zone(), zones.size());
+        }
+        int capacity = 8 + 8 + 2 + source.path().length() * 3 + 4 + 4 + 4;
+        for (TableType type : types.keySet()) {
+            capacity += 2 + type.name().length() * 3;
+        }
+        for (String zone : zones.keySet()) {
+            capacity += 2 + zone.length() * 3;
+        }
+        for (TableSpec spec : layout.specs()) {
+            capacity += 4 + 1 + 4 + 4 + 2 + 4 * spec.joinsWith().size();
+        }
+        ByteBuffer out = ByteBuffer.allocate(capacity);
+        out.putLong(source.size()).putLong(source.modifiedMillis());
+        putString(out, source.path());
+        out.putInt(types.size());
+        types.keySet().forEach(type -> putString(out, type.name()));
+        out.putInt(zones.size());
+        zones.keySet().forEach(zone -> putString(out, zone));
+        out.putInt(layout.tableCount());
+        for (TableSpec spec : layout.specs()) {
+            out.putInt(spec.number());
+            out.put((byte) (int) types.get(spec.type()));
+            out.putInt(spec.capacity());
+            out.putInt(zones.get(spec.zone()));
+            out.putShort((short) spec.joinsWith().size());
+            for (int other : spec.joinsWith()) {
+                out.putInt(other);
+            }
+        }
+        byte[] payload = new byte[out.position()];
+        out.flip().get(payload);
+        return payload;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("'" + value.substring(0, 20) + "...' is too long to cache.");
+        }
+        out.putShort((short) bytes.length).put(bytes);
+    }
+}
@@ -0,0 +1,112 @@
+package layout;
+/*
+ * This class watches a directory of layout files and hands every edited floor plan to a callback, so a
+ * running restaurant picks up new or changed tables without a restart. Editors save a file in several
+ * steps (truncate, write, rename), so changes are collected until the directory has been quiet for
+ * SETTLE_MILLIS before a file is read. A file that does not parse is reported and the current plan is
+ * kept, as it is when the callback rejects the plan; deleting a layout file changes nothing.
+ */
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public class LayoutWatcher implements AutoCloseable {
+
+    private static final long SETTLE_MILLIS = 300;
+
+    private final Path directory;
+    private final LayoutCache cache;
+    private final BiConsumer<String, TableLayout> onChange;
+    private final Consumer<String> onError;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private LayoutWatcher(Path directory, LayoutCache cache, BiConsumer<String, TableLayout> onChange,
+            Consumer<String> onError) throws IOException {
+        this.directory = directory;
+        this.cache = cache;
+        this.onChange = onChange;
+        this.onError = onError;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = Thread.ofPlatform().name("layout-watcher").daemon().unstarted(this::run);
+    }
+
+    /*
+     * Start watching. onChange gets the restaurant id and new plan of every edited layout file and
+     * onError a message for every file that could not be read; both run on the watcher thread.
+     */
+    public static LayoutWatcher start(Path directory, LayoutCache cache, BiConsumer<String, TableLayout> onChange,
+            Consumer<String> onError) throws IOException {
+        LayoutWatcher watcher = new LayoutWatcher(directory, cache, onChange, onError);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new TreeSet<>();
+                collect(watchService.take(), changed);
+                // wait for the editor to finish writing
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (Path file : changed) {
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path name && TableLayout.isLayoutFile(name)) {
+                changed.add(directory.resolve(name));
+            }
+        }
+        key.reset();
+    }
+
+    private void reload(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        TableLayout layout;
+        try {
+            layout = cache.load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            onError.accept("The floor plan " + file + " could not be read (" + e.getMessage() + "); keeping the current one.");
+            return;
+        }
+        try {
+            onChange.accept(TableLayout.locationOf(file), layout);
+        } catch (RuntimeException e) {
+            // e.g. the new plan drops a booked table; keep watching for the next edit
+            onError.accept(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Could not stop watching " + directory + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package layout;
+/*
+ * This class is a restaurant's floor plan, read from a text file instead of being compiled in. One table
+ * per line: table number, TableType and capacity, separated by spaces or commas, optionally followed by
+ * the zone the table stands in and the tables it can be pushed together with; '#' starts a comment.
+ *
+ *   # table  type      capacity  options
+ *   1        WINDOW    2         zone=terrace  joins=5
+ *   3        STANDARD  6
+ *   5        WINDOW    2         zone=terrace  joins=1+6
+ *
+ * A capacity of 2 becomes a TwoSeaterTable, anything else a FourSeaterTable with that capacity. Tables
+ * without a zone are in the "main" zone; joins only has to be listed on one of the two tables.
+ * A directory of <restaurant id>.layout files describes every location of a chain (see LayoutCache
+ * for the pre-parsed form used at startup).
+ */
+import model.AbstractTable;
+import model.FourSeaterTable;
+import model.TableType;
+import model.TwoSeaterTable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class TableLayout {
+
+    public static final String FILE_SUFFIX = ".layout";
+    public static final String DEFAULT_ZONE = "main";
+
+    private static final Pattern SEPARATOR = Pattern.compile("[\\s,]+");
+    private static final Pattern JOIN_SEPARATOR = Pattern.compile("\\+");
+
+    // One table of the plan; joinsWith lists every neighbour (both directions), ordered by number
+    public record TableSpec(int number, TableType type, int capacity, String zone, List<Integer> joinsWith) {
+
+        public AbstractTable toTable() {
+            return capacity == 2 ? new TwoSeaterTable(number, type) : new FourSeaterTable(number, type, capacity);
+        }
+    }
+
+    private final List<TableSpec> specs;
+    private final Map<Integer, TableSpec> byNumber;
+
+    // Checks the plan and completes the join lists, so a join listed on either table works both ways
+    public TableLayout(List<TableSpec> tables) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("The floor plan does not list any tables.");
+        }
+        Map<Integer, Set<Integer>> joins = new HashMap<>();
+        for (TableSpec spec : tables) {
+            if (spec.number() <= 0 || spec.capacity() <= 0) {
+                throw new IllegalArgumentException("Table " + spec.number() + ": table number and capacity must be positive.");
+            }
+            if (joins.put(spec.number(), new TreeSet<>()) != null) {
+                throw new IllegalArgumentException("Table " + spec.number() + " is listed twice.");
+            }
+        }
+        for (TableSpec spec : tables) {
+            for (int other : spec.joinsWith()) {
+                if (other == spec.number()) {
+                    throw new IllegalArgumentException("Table " + other + " cannot be joined with itself.");
+                }
+                Set<Integer> otherJoins = joins.get(other);
+                if (otherJoins == null) {
+                    throw new IllegalArgumentException("Table " + spec.number() + " joins table " + other + ", which is not in the plan.");
+                }
+                joins.get(spec.number()).add(other);
+                otherJoins.add(spec.number());
+            }
+        }
+        List<TableSpec> complete = new ArrayList<>(tables.size());
+        for (TableSpec spec : tables) {
+            complete.add(new TableSpec(spec.number(), spec.type(), spec.capacity(),
+                    spec.zone() == null ? DEFAULT_ZONE : spec.zone(), List.copyOf(joins.get(spec.number()))));
+        }
+        this.specs = Collections.unmodifiableList(complete);
+        this.byNumber = index(complete);
+    }
+
+    private TableLayout(List<TableSpec> specs, Map<Integer, TableSpec> byNumber) {
+        this.specs = specs;
+        this.byNumber = byNumber;
+    }
+
+    // A plan that was checked and completed before, e.g. read back from a LayoutCache
+    static TableLayout ofChecked(List<TableSpec> checked) {
+        return new TableLayout(Collections.unmodifiableList(checked), index(checked));
+    }
+
+    private static Map<Integer, TableSpec> index(List<TableSpec> specs) {
+        Map<Integer, TableSpec> index = new HashMap<>(specs.size() * 2);
+        for (TableSpec spec : specs) {
+            index.put(spec.number(), spec);
+        }
+        return index;
+    }
+
+    // A plan of existing tables, all in the main zone and none joinable (e.g. the built-in floor plan)
+    public static TableLayout of(Collection<? extends AbstractTable> tables) {
+        List<TableSpec> specs = new ArrayList<>();
+        for (AbstractTable table : tables) {
+            specs.add(new TableSpec(table.getTableNumber(), table.getType(), table.getCapacity(), DEFAULT_ZONE, List.of()));
+        }
+        return new TableLayout(specs);
+    }
+
+    // --- The plan ---
+
+    // Every table in file order
+    public List<TableSpec> specs() {
+        return specs;
+    }
+
+    // The table with this number, or null
+    public TableSpec spec(int tableNo) {
+        return byNumber.get(tableNo);
+    }
+
+    public int tableCount() {
+        return specs.size();
+    }
+
+    // New table objects for a ReservationManager
+    public List<AbstractTable> tables() {
+        List<AbstractTable> tables = new ArrayList<>(specs.size());
+        for (TableSpec spec : specs) {
+            tables.add(spec.toTable());
+        }
+        return tables;
+    }
+
+    // Zone names in the order they first appear
+    public Set<String> zones() {
+        Set<String> zones = new LinkedHashSet<>();
+        for (TableSpec spec : specs) {
+            zones.add(spec.zone());
+        }
+        return zones;
+    }
+
+    // Table number -> the tables it can be joined with, for every table that has any
+    public Map<Integer, List<Integer>> joins() {
+        Map<Integer, List<Integer>> joins = new LinkedHashMap<>();
+        for (TableSpec spec : specs) {
+            if (!spec.joinsWith().isEmpty()) {
+                joins.put(spec.number(), spec.joinsWith());
+            }
+        }
+        return joins;
+    }
+
+    public boolean canJoin(int tableNo, int otherTableNo) {
+        TableSpec spec = byNumber.get(tableNo);
+        return spec != null && spec.joinsWith().contains(otherTableNo);
+    }
+
+    // --- Reading layout files ---
+
+    // Read one layout file; a malformed line is reported with its line number
+    public static TableLayout load(Path file) throws IOException {
+        List<TableSpec> tables = new ArrayList<>();
+        Set<Integer> numbers = new HashSet<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                int comment = line.indexOf('#');
+                String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (content.isEmpty()) {
+                    continue;
+                }
+                TableSpec table = parseTable(content, file, lineNo);
+                if (!numbers.add(table.number())) {
+                    throw new IllegalArgumentException(file + ":" + lineNo + ": table " + table.number() + " is listed twice.");
+                }
+                tables.add(table);
+            }
+        }
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException(file + " does not list any tables.");
+        }
+        try {
+            return new TableLayout(tables);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- Writing layout files ---
+
+    // Write the plan as a layout file; each join is listed once, on the lower-numbered table
+    public void save(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# table  type      capacity  options");
+            out.newLine();
+            for (TableSpec spec : specs) {
+                if (SEPARATOR.matcher(spec.zone()).find() || spec.zone().contains("#")) {
+                    throw new IllegalArgumentException("Table " + spec.number() + ": zone '" + spec.zone()
+                            + "' cannot be written to a layout file (no spaces, commas or '#').");
+                }
+                StringBuilder line = new StringBuilder(String.format("%-8d %-9s %-9d", spec.number(), spec.type(), spec.capacity()));
+                if (!spec.zone().equals(DEFAULT_ZONE)) {
+                    line.append(" zone=").append(spec.zone());
+                }
+                StringJoiner joins = new StringJoiner("+", " joins=", "").setEmptyValue("");
+                for (int other : spec.joinsWith()) {
+                    if (other > spec.number()) {
+                        joins.add(Integer.toString(other));
+                    }
+                }
+                out.write(line.append(joins).toString().stripTrailing());
+                out.newLine();
+            }
+        }
+    }
+
+    // Every <restaurant id>.layout file of a directory, ordered by restaurant id
+    public static Map<String, TableLayout> loadAll(Path directory) throws IOException {
+        Map<String, TableLayout> layouts = new LinkedHashMap<>();
+        for (Path file : layoutFiles(directory)) {
+            layouts.put(locationOf(file), load(file));
+        }
+        return layouts;
+    }
+
+    // The layout files of a directory, sorted by name
+    public static List<Path> layoutFiles(Path directory) throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.filter(TableLayout::isLayoutFile).sorted().toList();
+        }
+    }
+
+    public static boolean isLayoutFile(Path file) {
+        return file.getFileName().toString().endsWith(FILE_SUFFIX);
+    }
+
+    // The restaurant id of a layout file: its name without the suffix
+    public static String locationOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - FILE_SUFFIX.length());
+    }
+
+    private static TableSpec parseTable(String content, Path file, int lineNo) {
+        String[] fields = SEPARATOR.split(content);
+        if (fields.length < 3) {
+            throw new IllegalArgumentException(file + ":" + lineNo + ": expected 'number type capacity' but got '" + content + "'.");
+        }
+        try {
+            int number = Integer.parseInt(fields[0]);
+            TableType type = TableType.valueOf(fields[1].toUpperCase());
+            int capacity = Integer.parseInt(fields[2]);
+            if (number <= 0 || capacity <= 0) {
+                throw new IllegalArgumentException("table number and capacity must be positive");
+            }
+            String zone = DEFAULT_ZONE;
+            List<Integer> joins = List.of();
+            for (int i = 3; i < fields.length; i++) {
+                String option = fields[i];
+                if (option.startsWith("zone=") && option.length() > 5) {
+                    zone = option.substring(5);
+                } else if (option.startsWith("joins=") && option.length() > 6) {
+                    joins = new ArrayList<>();
+                    for (String other : JOIN_SEPARATOR.split(option.substring(6))) {
+                        joins.add(Integer.parseInt(other));
+                    }
+                } else {
+                    throw new IllegalArgumentException("unknown option '" + option + "' (expected zone=<name> or joins=<n>+<n>)");
+                }
+            }
+            return new TableSpec(number, type, capacity, zone, joins);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ":" + lineNo + ": " + e.getMessage(), e);
+        }
+    }
+}
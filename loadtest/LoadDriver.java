@@ -0,0 +1,372 @@
+package loadtest;
+/*
+ * This class runs a booking trace against a ReservationService the way a crowd of clients would: a
+ * scheduler thread waits for the offset of every step (divided by the speed-up) and hands the step to a
+ * virtual thread of its own, without waiting for the steps before it to finish. Only the steps of one
+ * booking wait for each other: an UPDATE or closing step starts once the earlier steps of its ref are
+ * done, so it never races the BOOK that introduces the ref. Refs of the trace are mapped to the ids
+ * their bookings got; a step whose booking failed or is already gone is skipped.
+ *
+ * Response times are measured from the moment a step was due, not from when it started, so time spent
+ * queueing behind a slow book (or behind the in-flight limit) counts against it instead of silently
+ * thinning out the load. The per-operation service times, conflicts and errors come from the metrics
+ * of the MeteredReservationService the driver is pointed at.
+ *
+ * Usage: LoadDriver [--rate perSecond] [--seconds n] [--days n] [--cancel ratio] [--edit ratio]
+ *        [--search ratio] [--parties size:weight,...] [--seed n] [--replay trace] [--speed factor]
+ *        [--record trace] [--layout file] [--journal directory] [--max-in-flight n]
+ * Without --replay a synthetic Friday rush is generated (LoadGenerator); --record saves the steps that
+ * were run so the same load can be replayed later.
+ */
+import exception.TableNotAvailableExeception;
+import layout.TableLayout;
+import metrics.LatencyHistogram;
+import metrics.MeteredReservationService;
+import metrics.ReservationMetrics;
+import model.Reservation;
+import persistence.ReservationJournal;
+import service.ReservationManager;
+import service.ReservationService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadDriver {
+
+    // Steps running at once before the scheduler waits; the wait shows up in the response times
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+
+    // What became of a step
+    public enum Outcome {
+        OK,
+        CONFLICT,   // the table or time was taken (TableNotAvailableExeception)
+        REJECTED,   // the service refused the step (IllegalArgumentException)
+        SKIPPED,    // the booking it refers to failed or is gone
+        FAILED;     // any other exception
+    }
+
+    // The totals of one run
+    public record Result(long[] outcomes, Duration elapsed, LatencyHistogram.Snapshot responseTimes, Throwable firstFailure) {
+
+        public long count(Outcome outcome) {
+            return outcomes[outcome.ordinal()];
+        }
+
+        public long issued() {
+            long issued = 0;
+            for (long count : outcomes) {
+                issued += count;
+            }
+            return issued;
+        }
+
+        public double throughput() {
+            return elapsed.isZero() ? 0 : issued() * 1e9 / elapsed.toNanos();
+        }
+
+        public String toText() {
+            StringBuilder out = new StringBuilder(512);
+            out.append(String.format(Locale.ROOT, "%-20s %d in %.1f s (%.1f/s)%n", "steps", issued(),
+                    elapsed.toNanos() / 1e9, throughput()));
+            for (Outcome outcome : Outcome.values()) {
+                long count = count(outcome);
+                out.append(String.format(Locale.ROOT, "%-20s %d (%.2f%%)%n", outcome.name().toLowerCase(Locale.ROOT), count,
+                        issued() == 0 ? 0.0 : 100.0 * count / issued()));
+            }
+            out.append(String.format(Locale.ROOT, "%-20s mean %.1f  p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                    "response_ms", responseTimes.mean() / 1e6, responseTimes.valueAt(50) / 1e6,
+                    responseTimes.valueAt(99) / 1e6, responseTimes.valueAt(99.9) / 1e6, responseTimes.max() / 1e6));
+            if (firstFailure != null) {
+                out.append(String.format("%-20s %s%n", "first_failure", firstFailure));
+            }
+            return out.toString();
+        }
+    }
+
+    private final ReservationService service;
+    private final double speed;
+    private final int maxInFlight;
+    // Trace ref -> id of the booking it made
+    private final Map<Long, Long> ids = new ConcurrentHashMap<>();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    public LoadDriver(ReservationService service) {
+        this(service, 1.0, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    // speed > 1 runs the trace faster than recorded (2 = twice the rate)
+    public LoadDriver(ReservationService service, double speed, int maxInFlight) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive.");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("At least one step must be allowed in flight.");
+        }
+        this.service = service;
+        this.speed = speed;
+        this.maxInFlight = maxInFlight;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    // Run the steps on time and wait for the last one to finish; a driver runs one trace
+    public Result run(Iterator<TraceEvent> steps) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        // Ref -> the last step scheduled for it, dropped once that step is done
+        Map<Long, CompletableFuture<Void>> lastStepByRef = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (steps.hasNext()) {
+                TraceEvent step = steps.next();
+                long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(step.offsetMillis()) / speed);
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                inFlight.acquire();
+                Runnable client = () -> {
+                    try {
+                        outcomes[execute(step).ordinal()].increment();
+                        responseTimes.record(System.nanoTime() - due);
+                    } finally {
+                        inFlight.release();
+                    }
+                };
+                if (step.op() == TraceEvent.Op.SEARCH) {
+                    clients.execute(client);
+                    continue;
+                }
+                // after the earlier steps of the same booking; the wait counts in the response time
+                CompletableFuture<Void> previous = lastStepByRef.get(step.ref());
+                CompletableFuture<Void> next = previous == null ? CompletableFuture.runAsync(client, clients)
+                        : previous.thenRunAsync(client, clients);
+                lastStepByRef.put(step.ref(), next);
+                next.whenComplete((done, failure) -> lastStepByRef.remove(step.ref(), next));
+            }
+            // chained steps are handed to the executor only when their predecessor ends, so wait for
+            // them before closing it
+            for (CompletableFuture<Void> last : List.copyOf(lastStepByRef.values())) {
+                last.join();
+            }
+        }
+        long[] totals = new long[outcomes.length];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = outcomes[i].sum();
+        }
+        return new Result(totals, Duration.ofNanos(System.nanoTime() - start), responseTimes.snapshot(), firstFailure.get());
+    }
+
+    // Run one step on the calling (virtual) thread
+    Outcome execute(TraceEvent step) {
+        try {
+            return switch (step.op()) {
+                case BOOK -> book(step);
+                case UPDATE -> update(step);
+                case CANCEL, COMPLETE, NO_SHOW -> close(step);
+                case SEARCH -> {
+                    service.findAvailableTables(step.time(), step.time().plusMinutes(step.durationMinutes()), step.partySize(), null);
+                    yield Outcome.OK;
+                }
+            };
+        } catch (TableNotAvailableExeception e) {
+            return Outcome.CONFLICT;
+        } catch (IllegalArgumentException e) {
+            return Outcome.REJECTED;
+        } catch (RuntimeException e) {
+            firstFailure.compareAndSet(null, e);
+            return Outcome.FAILED;
+        }
+    }
+
+    // Table 0 lets the service pick the table, like a booking made without a table in mind
+    private Outcome book(TraceEvent step) throws TableNotAvailableExeception {
+        int duration = step.durationMinutes() > 0 ? step.durationMinutes() : Reservation.DEFAULT_DURATION_MINUTES;
+        Reservation stored = step.tableNumber() == 0
+                ? service.assignTable(step.name(), step.phone(), step.partySize(), step.time(), duration, null)
+                : service.addReservation(step.tableNumber(), new Reservation(step.name(), step.phone(), step.time(),
+                        step.tableNumber(), step.partySize(), duration));
+        ids.put(step.ref(), stored.id());
+        return Outcome.OK;
+    }
+
+    // Zero fields of the step keep the booking's table, party size and duration
+    private Outcome update(TraceEvent step) throws TableNotAvailableExeception {
+        Long id = ids.get(step.ref());
+        Reservation current = id == null ? null : service.getReservationById(id);
+        if (current == null) {
+            return Outcome.SKIPPED;
+        }
+        service.updateReservation(id, new Reservation(current.customerName(), current.customerPhone(), step.time(),
+                step.tableNumber() == 0 ? current.tableNumber() : step.tableNumber(),
+                step.partySize() == 0 ? current.partySize() : step.partySize(),
+                step.durationMinutes() == 0 ? current.durationMinutes() : step.durationMinutes()));
+        return Outcome.OK;
+    }
+
+    private Outcome close(TraceEvent step) {
+        Long id = ids.remove(step.ref());
+        if (id == null) {
+            return Outcome.SKIPPED;
+        }
+        Reservation removed = switch (step.op()) {
+            case COMPLETE -> service.completeReservation(id);
+            case NO_SHOW -> service.releaseNoShow(id);
+            default -> service.cancelReservation(id);
+        };
+        return removed == null ? Outcome.SKIPPED : Outcome.OK;
+    }
+
+    // --- Command line ---
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("--rate", "200"),
+            Map.entry("--seconds", "60"),
+            Map.entry("--days", "14"),
+            Map.entry("--cancel", "0.1"),
+            Map.entry("--edit", "0.05"),
+            Map.entry("--search", "0.3"),
+            Map.entry("--parties", LoadGenerator.DEFAULT_PARTY_SIZES),
+            Map.entry("--seed", "42"),
+            Map.entry("--speed", "1"),
+            Map.entry("--max-in-flight", String.valueOf(DEFAULT_MAX_IN_FLIGHT)));
+    private static final String USAGE = "Usage: LoadDriver [--rate perSecond] [--seconds n] [--days n] [--cancel ratio]"
+            + " [--edit ratio] [--search ratio] [--parties size:weight,...] [--seed n] [--replay trace] [--speed factor]"
+            + " [--record trace] [--layout file] [--journal directory] [--max-in-flight n]";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options;
+        LoadGenerator.Profile profile;
+        double speed;
+        int maxInFlight;
+        try {
+            options = parseOptions(args);
+            profile = options.containsKey("--replay") ? null : profile(options);
+            speed = Double.parseDouble(options.get("--speed"));
+            maxInFlight = Integer.parseInt(options.get("--max-in-flight"));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e instanceof NumberFormatException ? "Bad number (" + e.getMessage() + ")." : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        TableLayout layout = options.containsKey("--layout") ? TableLayout.load(Path.of(options.get("--layout")))
+                : TableLayout.of(ReservationManager.defaultTables());
+        ReservationManager manager = new ReservationManager(layout.tables(), layout.joins());
+        ReservationJournal journal = null;
+        if (options.containsKey("--journal")) {
+            journal = ReservationJournal.open(Path.of(options.get("--journal")));
+            manager.replayJournal(journal);
+            manager.attachJournal(journal);
+        }
+        MeteredReservationService service = new MeteredReservationService(manager, new ReservationMetrics(manager));
+        LoadDriver driver = new LoadDriver(service, speed, maxInFlight);
+
+        BufferedReader replay = options.containsKey("--replay")
+                ? Files.newBufferedReader(Path.of(options.get("--replay")), StandardCharsets.UTF_8) : null;
+        BufferedWriter record = options.containsKey("--record")
+                ? Files.newBufferedWriter(Path.of(options.get("--record")), StandardCharsets.UTF_8) : null;
+        try {
+            Iterator<TraceEvent> steps = replay != null ? TraceEvent.read(replay) : new LoadGenerator(profile);
+            if (record != null) {
+                steps = recording(steps, record);
+            }
+            System.out.println(replay != null ? "Replaying " + options.get("--replay") + " at " + options.get("--speed") + "x"
+                    : "Generating " + options.get("--rate") + " steps/s for " + options.get("--seconds") + " s");
+            System.out.println(layout.tableCount() + " tables, " + manager.reservationCount() + " reservations in the book");
+            Result result = driver.run(steps);
+            System.out.println();
+            System.out.print(result.toText());
+            System.out.println();
+            System.out.print(service.metrics().dump());
+        } finally {
+            if (replay != null) {
+                replay.close();
+            }
+            if (record != null) {
+                record.close();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || args[i].equals("--help")) {
+                throw new IllegalArgumentException(args[i].equals("--help") ? "" : "Unexpected argument " + args[i] + ".");
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i] + ".");
+            }
+            if (!DEFAULTS.containsKey(args[i]) && !Set.of("--replay", "--record", "--layout", "--journal").contains(args[i])) {
+                throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        return options;
+    }
+
+    static LoadGenerator.Profile profile(Map<String, String> options) {
+        return new LoadGenerator.Profile(
+                Double.parseDouble(options.get("--rate")),
+                Duration.ofMillis((long) (Double.parseDouble(options.get("--seconds")) * 1000)),
+                Double.parseDouble(options.get("--cancel")),
+                Double.parseDouble(options.get("--edit")),
+                Double.parseDouble(options.get("--search")),
+                LoadGenerator.Profile.parsePartySizes(options.get("--parties")),
+                Integer.parseInt(options.get("--days")),
+                Long.parseLong(options.get("--seed")));
+    }
+
+    // Write every step to the trace file as it is taken
+    private static Iterator<TraceEvent> recording(Iterator<TraceEvent> steps, BufferedWriter out) throws IOException {
+        out.write("# booking trace for LoadDriver --replay");
+        out.newLine();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return steps.hasNext();
+            }
+
+            @Override
+            public TraceEvent next() {
+                TraceEvent step = steps.next();
+                try {
+                    out.write(step.toLine());
+                    out.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return step;
+            }
+        };
+    }
+}
@@ -0,0 +1,194 @@
+package loadtest;
+/*
+ * This class generates a synthetic booking trace: an open-loop stream of client steps whose arrivals
+ * are a Poisson process at the profile's rate, so requests keep coming at the same pace however slowly
+ * the book answers (a closed loop of clients waiting for their answers would slow down with it and hide
+ * the latency). Each arrival is a cancellation, an edit or a table search with the profile's ratios,
+ * and a new booking otherwise: a party drawn from the party-size distribution, for one of the next days,
+ * at a dinner time around 19:30. Cancellations and edits pick one of the bookings made so far.
+ *
+ * The stream depends only on the profile (including its seed) and the first booking day, so a run can
+ * be repeated exactly.
+ */
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+public class LoadGenerator implements Iterator<TraceEvent> {
+
+    // Share of parties by size on a busy evening
+    public static final String DEFAULT_PARTY_SIZES = "1:5,2:45,3:12,4:24,5:5,6:6,8:3";
+
+    // Dinner starts from 17:00 in 15 minute slots; two 0..10 draws summed peak at 19:30
+    private static final LocalTime FIRST_SLOT = LocalTime.of(17, 0);
+    private static final int SLOT_MINUTES = 15;
+    private static final int SLOT_DRAW = 10;
+
+    /*
+     * What to generate: arrivals per second over the given length, the share of cancellations, edits
+     * and searches (the rest are bookings), party size -> weight, how many days ahead bookings are made
+     * (from tomorrow on), and the random seed.
+     */
+    public record Profile(double ratePerSecond, Duration length, double cancelRatio, double editRatio,
+            double searchRatio, Map<Integer, Integer> partySizes, int daysAhead, long seed) {
+
+        public Profile {
+            if (!(ratePerSecond > 0)) {
+                throw new IllegalArgumentException("The arrival rate must be positive.");
+            }
+            if (length.isNegative() || length.isZero()) {
+                throw new IllegalArgumentException("The run length must be positive.");
+            }
+            if (cancelRatio < 0 || editRatio < 0 || searchRatio < 0 || cancelRatio + editRatio + searchRatio > 1) {
+                throw new IllegalArgumentException("Cancel, edit and search ratios must be at least 0 and add up to at most 1.");
+            }
+            if (partySizes.isEmpty()) {
+                throw new IllegalArgumentException("At least one party size is needed.");
+            }
+            for (Map.Entry<Integer, Integer> size : partySizes.entrySet()) {
+                if (size.getKey() <= 0 || size.getValue() < 0) {
+                    throw new IllegalArgumentException("Bad party size weight " + size.getKey() + ":" + size.getValue() + ".");
+                }
+            }
+            if (daysAhead <= 0) {
+                throw new IllegalArgumentException("Bookings must be made at least one day ahead.");
+            }
+            partySizes = Map.copyOf(partySizes);
+        }
+
+        // Parse a party size distribution such as "2:45,4:24" (size:weight, comma-separated)
+        public static Map<Integer, Integer> parsePartySizes(String text) {
+            Map<Integer, Integer> sizes = new LinkedHashMap<>();
+            for (String entry : text.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected size:weight, got " + entry.trim() + ".");
+                }
+                try {
+                    sizes.merge(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer::sum);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Expected size:weight, got " + entry.trim() + ".");
+                }
+            }
+            return sizes;
+        }
+    }
+
+    private final Profile profile;
+    private final SplittableRandom random;
+    private final long lengthMillis;
+    private final LocalDate firstDay;
+    // Cumulative weights for drawing a party size
+    private final int[] sizes;
+    private final long[] cumulativeWeights;
+    // Refs of the bookings not cancelled yet (they may still have failed when the trace is run)
+    private long[] open = new long[1024];
+    private int openCount;
+    private long nextRef = 1;
+    private double offsetMillis;
+    private TraceEvent next;
+
+    public LoadGenerator(Profile profile) {
+        this(profile, LocalDate.now().plusDays(1));
+    }
+
+    public LoadGenerator(Profile profile, LocalDate firstDay) {
+        this.profile = profile;
+        this.random = new SplittableRandom(profile.seed());
+        this.lengthMillis = profile.length().toMillis();
+        this.firstDay = firstDay;
+        this.sizes = profile.partySizes().entrySet().stream().filter(size -> size.getValue() > 0)
+                .mapToInt(Map.Entry::getKey).sorted().toArray();
+        if (sizes.length == 0) {
+            throw new IllegalArgumentException("The party size weights add up to 0.");
+        }
+        this.cumulativeWeights = new long[sizes.length];
+        long total = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            total += profile.partySizes().get(sizes[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.next = generate();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public TraceEvent next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        TraceEvent step = next;
+        next = generate();
+        return step;
+    }
+
+    // The next arrival, or null once the run length is over
+    private TraceEvent generate() {
+        // exponential gaps between arrivals make a Poisson process
+        offsetMillis += -Math.log(1 - random.nextDouble()) * 1000 / profile.ratePerSecond();
+        if (offsetMillis >= lengthMillis) {
+            return null;
+        }
+        long offset = (long) offsetMillis;
+        double pick = random.nextDouble();
+        if (pick < profile.cancelRatio() && openCount > 0) {
+            return TraceEvent.close(offset, TraceEvent.Op.CANCEL, takeOpen());
+        }
+        pick -= profile.cancelRatio();
+        if (pick >= 0 && pick < profile.editRatio() && openCount > 0) {
+            // move the booking to another time on the same table
+            return TraceEvent.update(offset, open[random.nextInt(openCount)], 0, dinnerTime(), 0, 0);
+        }
+        pick -= profile.editRatio();
+        int partySize = partySize();
+        if (pick >= 0 && pick < profile.searchRatio()) {
+            return TraceEvent.search(offset, dinnerTime(), partySize, durationFor(partySize));
+        }
+        long ref = nextRef++;
+        addOpen(ref);
+        return TraceEvent.book(offset, ref, 0, dinnerTime(), partySize, durationFor(partySize),
+                "Guest " + ref, String.format("07%09d", random.nextInt(1_000_000_000)));
+    }
+
+    private LocalDateTime dinnerTime() {
+        int slot = random.nextInt(SLOT_DRAW + 1) + random.nextInt(SLOT_DRAW + 1);
+        return firstDay.plusDays(random.nextInt(profile.daysAhead())).atTime(FIRST_SLOT.plusMinutes((long) slot * SLOT_MINUTES));
+    }
+
+    private int partySize() {
+        long pick = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = Arrays.binarySearch(cumulativeWeights, pick + 1);
+        return sizes[i >= 0 ? i : -i - 1];
+    }
+
+    // Larger parties stay longer
+    private static int durationFor(int partySize) {
+        return partySize <= 2 ? 90 : partySize <= 4 ? 120 : 150;
+    }
+
+    private void addOpen(long ref) {
+        if (openCount == open.length) {
+            open = Arrays.copyOf(open, open.length * 2);
+        }
+        open[openCount++] = ref;
+    }
+
+    // Remove a random open booking, moving the last one into its place
+    private long takeOpen() {
+        int i = random.nextInt(openCount);
+        long ref = open[i];
+        open[i] = open[--openCount];
+        return ref;
+    }
+}
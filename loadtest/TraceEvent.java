@@ -0,0 +1,106 @@
+package loadtest;
+/*
+ * This record is one step of a booking trace: what a client did and when, in milliseconds after the
+ * start of the trace. Bookings are named by a number local to the trace (ref) instead of their id, so a
+ * trace replays on a book that hands out other ids: a BOOK step introduces a ref and the later UPDATE,
+ * CANCEL, COMPLETE and NO_SHOW steps of that booking name it again.
+ *
+ * Text form, one step per line, tab-separated; blank lines and lines starting with # are skipped:
+ *   offsetMillis  op  ref  tableNumber  time  partySize  durationMinutes  name  phone
+ * Table number 0 means "assign a table" for BOOK and "stay on the table" for UPDATE. SEARCH uses the
+ * time, party size and duration; the closing steps use the ref only. Unused fields are written as "-".
+ */
+import java.io.BufferedReader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+
+public record TraceEvent(long offsetMillis, Op op, long ref, int tableNumber, LocalDateTime time, int partySize,
+        int durationMinutes, String name, String phone) {
+
+    public enum Op {
+        BOOK,
+        UPDATE,
+        CANCEL,
+        COMPLETE,
+        NO_SHOW,
+        SEARCH;
+    }
+
+    private static final String NONE = "-";
+    private static final int FIELDS = 9;
+
+    public TraceEvent {
+        if (offsetMillis < 0) {
+            throw new IllegalArgumentException("A trace step cannot happen before the trace starts.");
+        }
+        if ((op == Op.BOOK || op == Op.UPDATE || op == Op.SEARCH) && time == null) {
+            throw new IllegalArgumentException(op + " needs a time.");
+        }
+        if (op == Op.BOOK && (name == null || name.isBlank())) {
+            throw new IllegalArgumentException("BOOK needs a customer name.");
+        }
+    }
+
+    public static TraceEvent book(long offsetMillis, long ref, int tableNumber, LocalDateTime time, int partySize,
+            int durationMinutes, String name, String phone) {
+        return new TraceEvent(offsetMillis, Op.BOOK, ref, tableNumber, time, partySize, durationMinutes, name, phone);
+    }
+
+    public static TraceEvent update(long offsetMillis, long ref, int tableNumber, LocalDateTime time, int partySize,
+            int durationMinutes) {
+        return new TraceEvent(offsetMillis, Op.UPDATE, ref, tableNumber, time, partySize, durationMinutes, null, null);
+    }
+
+    // CANCEL, COMPLETE or NO_SHOW of a booking
+    public static TraceEvent close(long offsetMillis, Op op, long ref) {
+        return new TraceEvent(offsetMillis, op, ref, 0, null, 0, 0, null, null);
+    }
+
+    public static TraceEvent search(long offsetMillis, LocalDateTime time, int partySize, int durationMinutes) {
+        return new TraceEvent(offsetMillis, Op.SEARCH, 0, 0, time, partySize, durationMinutes, null, null);
+    }
+
+    // The step as one line of a trace file, without the line break
+    public String toLine() {
+        return offsetMillis + "\t" + op + "\t" + ref + "\t" + tableNumber + "\t" + (time == null ? NONE : time)
+                + "\t" + partySize + "\t" + durationMinutes + "\t" + text(name) + "\t" + text(phone);
+    }
+
+    // Tabs and line breaks would split the line, so they become spaces
+    private static String text(String value) {
+        return value == null || value.isEmpty() ? NONE : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    public static TraceEvent parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != FIELDS) {
+            throw new IllegalArgumentException("Expected " + FIELDS + " tab-separated fields: " + line);
+        }
+        try {
+            return new TraceEvent(
+                    Long.parseLong(fields[0]),
+                    Op.valueOf(fields[1]),
+                    Long.parseLong(fields[2]),
+                    Integer.parseInt(fields[3]),
+                    fields[4].equals(NONE) ? null : LocalDateTime.parse(fields[4]),
+                    Integer.parseInt(fields[5]),
+                    Integer.parseInt(fields[6]),
+                    fields[7].equals(NONE) ? null : fields[7],
+                    fields[8].equals(NONE) ? null : fields[8]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Bad time in trace line: " + line);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException, an unknown op or a step the constructor rejects
+            throw new IllegalArgumentException("Bad trace line (" + e.getMessage() + "): " + line);
+        }
+    }
+
+    // The steps of a trace file, read lazily; a bad line fails the iteration with IllegalArgumentException
+    public static Iterator<TraceEvent> read(BufferedReader in) {
+        return in.lines()
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .map(TraceEvent::parse)
+                .iterator();
+    }
+}
@@ -0,0 +1,125 @@
+package loadtest;
+/*
+ * This class records the changes made to a live reservation book as a booking trace that LoadDriver
+ * can replay, so a real evening can be run again against another build or machine. It follows the
+ * reservation events on a writer thread of its own: an added reservation becomes a BOOK on the table it
+ * got, an update an UPDATE, and a removal a CANCEL, COMPLETE or NO_SHOW by its outcome (a removal
+ * without one, such as an undo, frees the table like a cancellation). The reservation id is the ref.
+ *
+ * Offsets are taken when the event reaches the recorder, so they can lag the call by the event bus's
+ * batching; searches leave no event and are not recorded. The app records its current location when
+ * started with -Dreservation.trace=<file>.
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+import service.ReservationEvent;
+import service.ReservationListener;
+import service.ReservationService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TraceRecorder implements ReservationListener, AutoCloseable {
+
+    private final ReservationService service;
+    private final BufferedWriter out;
+    private final ExecutorService writer;
+    private final long startNanos = System.nanoTime();
+    private IOException failure;
+
+    private TraceRecorder(ReservationService service, BufferedWriter out) {
+        this.service = service;
+        this.out = out;
+        this.writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("trace-recorder").daemon().factory());
+    }
+
+    // Start recording the changes of the service into the file (replacing it)
+    public static TraceRecorder attach(ReservationService service, Path file) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        out.write("# booking trace recorded " + LocalDateTime.now());
+        out.newLine();
+        TraceRecorder recorder = new TraceRecorder(service, out);
+        service.addReservationListener(recorder, recorder.writer);
+        return recorder;
+    }
+
+    @Override
+    public void reservationChanged(ReservationEvent event) {
+        reservationsChanged(List.of(event));
+    }
+
+    @Override
+    public void reservationsChanged(List<ReservationEvent> events) {
+        long offset = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        for (ReservationEvent event : events) {
+            write(toStep(offset, event));
+        }
+    }
+
+    @Override
+    public void eventsLost() {
+        System.err.println("Reservation events were dropped; the recorded trace has gaps.");
+    }
+
+    // The trace step that redoes a change
+    static TraceEvent toStep(long offset, ReservationEvent event) {
+        Reservation res = event.reservation();
+        return switch (event.type()) {
+            case ADDED -> TraceEvent.book(offset, res.id(), res.tableNumber(), res.reservationTime(), res.partySize(),
+                    res.durationMinutes(), res.customerName(), res.customerPhone());
+            case UPDATED -> TraceEvent.update(offset, res.id(), res.tableNumber(), res.reservationTime(), res.partySize(),
+                    res.durationMinutes());
+            case REMOVED -> TraceEvent.close(offset, closingOp(event.outcome()), res.id());
+        };
+    }
+
+    private static TraceEvent.Op closingOp(ReservationOutcome outcome) {
+        if (outcome == null) {
+            return TraceEvent.Op.CANCEL;
+        }
+        return switch (outcome) {
+            case COMPLETED -> TraceEvent.Op.COMPLETE;
+            case CANCELLED -> TraceEvent.Op.CANCEL;
+            case NO_SHOW -> TraceEvent.Op.NO_SHOW;
+        };
+    }
+
+    // On the writer thread; after the first failed write the rest of the trace is dropped
+    private void write(TraceEvent step) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.write(step.toLine());
+            out.newLine();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Recording the booking trace failed: " + e.getMessage());
+        }
+    }
+
+    // Stop recording, write out the steps already received and close the file; changes still queued
+    // on the event bus are not recorded, so close once the book is quiet
+    @Override
+    public void close() throws IOException {
+        service.removeReservationListener(this);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package metrics;
+/*
+ * This class is a lock-free latency histogram in the style of HdrHistogram: values (nanoseconds) are
+ * counted in log-linear buckets, 16 sub-buckets per power of two, so every recorded value is kept to
+ * within 1/16 (about 6%) from 16ns up to centuries, in 960 fixed counters. Recording is one bucket
+ * computation and one atomic increment, cheap enough to leave on for every booking.
+ * Percentiles and the maximum are read from a snapshot and report the highest value of their bucket;
+ * the mean uses the middle of every bucket, so it carries the same 6% resolution.
+ */
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // Count one value, negative values are counted as 0
+    public void record(long nanos) {
+        counts.getAndIncrement(bucketOf(Math.max(0, nanos)));
+    }
+
+    // Values below 16 get a bucket each, above that 16 buckets per power of two
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+        return (shift + 1) * SUB_COUNT + sub;
+    }
+
+    static long lowestValueIn(int bucket) {
+        return bucket == 0 ? 0 : highestValueIn(bucket - 1) + 1;
+    }
+
+    // Highest value counted in a bucket
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        int sub = bucket % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+    }
+
+    // Copy of the counts; recording goes on while it is taken, so totals may differ by a few values
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        double sum = 0;
+        int highest = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            if (copy[i] != 0) {
+                count += copy[i];
+                sum += copy[i] * ((lowestValueIn(i) + highestValueIn(i)) / 2.0);
+                highest = i;
+            }
+        }
+        return new Snapshot(copy, count, sum, count == 0 ? 0 : highestValueIn(highest));
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final double sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, double sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        // Value at or below which the given percentage (0-100) of the recorded values lie
+        public long valueAt(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueIn(i);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package metrics;
+/*
+ * This class times every call of a ReservationService into ReservationMetrics: a System.nanoTime()
+ * pair, one histogram increment and, on failure, a conflict or error count per call. Listener methods
+ * are passed through unmetered. Wrap the manager with it wherever calls come in (Swing screens, HTTP).
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import model.TableType;
+import service.ReservationListener;
+import service.ReservationService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public class MeteredReservationService implements ReservationService {
+
+    private final ReservationService service;
+    private final ReservationMetrics metrics;
+    private final OperationStats add;
+    private final OperationStats assign;
+    private final OperationStats update;
+    private final OperationStats remove;
+    private final OperationStats lookup;
+    private final OperationStats filter;
+
+    public MeteredReservationService(ReservationService service, ReservationMetrics metrics) {
+        this.service = service;
+        this.metrics = metrics;
+        this.add = metrics.stats(Operation.ADD);
+        this.assign = metrics.stats(Operation.ASSIGN);
+        this.update = metrics.stats(Operation.UPDATE);
+        this.remove = metrics.stats(Operation.REMOVE);
+        this.lookup = metrics.stats(Operation.LOOKUP);
+        this.filter = metrics.stats(Operation.FILTER);
+    }
+
+    public ReservationMetrics metrics() {
+        return metrics;
+    }
+
+    // --- Bookings (conflicts are counted) ---
+
+    @Override
+    public Reservation addReservation(int tableNo, Reservation res) throws TableNotAvailableExeception {
+        long start = System.nanoTime();
+        try {
+            return service.addReservation(tableNo, res);
+        } catch (TableNotAvailableExeception e) {
+            add.conflict();
+            throw e;
+        } catch (RuntimeException e) {
+            add.error();
+            throw e;
+        } finally {
+            add.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] addReservations(List<Reservation> batch) throws TableNotAvailableExeception {
+        long start = System.nanoTime();
+        try {
+            return service.addReservations(batch);
+        } catch (TableNotAvailableExeception e) {
+            add.conflict();
+            throw e;
+        } catch (RuntimeException e) {
+            add.error();
+            throw e;
+        } finally {
+            add.record(start);
+        }
+    }
+
+    @Override
+    public Reservation updateReservation(long id, Reservation updated) throws TableNotAvailableExeception {
+        long start = System.nanoTime();
+        try {
+            return service.updateReservation(id, updated);
+        } catch (TableNotAvailableExeception e) {
+            update.conflict();
+            throw e;
+        } catch (RuntimeException e) {
+            update.error();
+            throw e;
+        } finally {
+            update.record(start);
+        }
+    }
+
+    @Override
+    public Reservation assignTable(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes, TableType preference) throws TableNotAvailableExeception {
+        long start = System.nanoTime();
+        try {
+            return service.assignTable(name, phone, partySize, dateTime, durationMinutes, preference);
+        } catch (TableNotAvailableExeception e) {
+            assign.conflict();
+            throw e;
+        } catch (RuntimeException e) {
+            assign.error();
+            throw e;
+        } finally {
+            assign.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] assignTables(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes) throws TableNotAvailableExeception {
+        long start = System.nanoTime();
+        try {
+            return service.assignTables(name, phone, partySize, dateTime, durationMinutes);
+        } catch (TableNotAvailableExeception e) {
+            assign.conflict();
+            throw e;
+        } catch (RuntimeException e) {
+            assign.error();
+            throw e;
+        } finally {
+            assign.record(start);
+        }
+    }
+
+    // --- Removals ---
+
+    @Override
+    public void removeReservation(int tableNo) {
+        long start = System.nanoTime();
+        try {
+            service.removeReservation(tableNo);
+        } catch (RuntimeException e) {
+            remove.error();
+            throw e;
+        } finally {
+            remove.record(start);
+        }
+    }
+
+    @Override
+    public Reservation removeReservationById(long id) {
+        long start = System.nanoTime();
+        try {
+            return service.removeReservationById(id);
+        } catch (RuntimeException e) {
+            remove.error();
+            throw e;
+        } finally {
+            remove.record(start);
+        }
+    }
+
+    @Override
+    public Reservation completeReservation(long id) {
+        long start = System.nanoTime();
+        try {
+            return service.completeReservation(id);
+        } catch (RuntimeException e) {
+            remove.error();
+            throw e;
+        } finally {
+            remove.record(start);
+        }
+    }
+
+    @Override
+    public Reservation cancelReservation(long id) {
+        long start = System.nanoTime();
+        try {
+            return service.cancelReservation(id);
+        } catch (RuntimeException e) {
+            remove.error();
+            throw e;
+        } finally {
+            remove.record(start);
+        }
+    }
+
+    @Override
+    public Reservation releaseNoShow(long id) {
+        long start = System.nanoTime();
+        try {
+            return service.releaseNoShow(id);
+        } catch (RuntimeException e) {
+            remove.error();
+            throw e;
+        } finally {
+            remove.record(start);
+        }
+    }
+
+    // --- Lookups ---
+
+    @Override
+    public Reservation getReservationByTableNumber(int tableNo) {
+        long start = System.nanoTime();
+        try {
+            return service.getReservationByTableNumber(tableNo);
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] getReservationsForTable(int tableNo) {
+        long start = System.nanoTime();
+        try {
+            return service.getReservationsForTable(tableNo);
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    @Override
+    public boolean isTableAvailable(int tableNo, LocalDateTime time) {
+        long start = System.nanoTime();
+        try {
+            return service.isTableAvailable(tableNo, time);
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    @Override
+    public Reservation getReservationById(long id) {
+        long start = System.nanoTime();
+        try {
+            return service.getReservationById(id);
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] getReservationsByPhone(String phone) {
+        long start = System.nanoTime();
+        try {
+            return service.getReservationsByPhone(phone);
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    // --- Searches over many tables or reservations ---
+
+    @Override
+    public AbstractTable[] findAvailableTables(LocalDateTime from, LocalDateTime to, int partySize, TableType type) {
+        long start = System.nanoTime();
+        try {
+            return service.findAvailableTables(from, to, partySize, type);
+        } catch (RuntimeException e) {
+            filter.error();
+            throw e;
+        } finally {
+            filter.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] searchCustomers(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return service.searchCustomers(query, limit);
+        } catch (RuntimeException e) {
+            filter.error();
+            throw e;
+        } finally {
+            filter.record(start);
+        }
+    }
+
+    @Override
+    public AbstractTable[] getAllTables() {
+        long start = System.nanoTime();
+        try {
+            return service.getAllTables();
+        } catch (RuntimeException e) {
+            filter.error();
+            throw e;
+        } finally {
+            filter.record(start);
+        }
+    }
+
+    @Override
+    public Reservation[] getAllReservations() {
+        long start = System.nanoTime();
+        try {
+            return service.getAllReservations();
+        } catch (RuntimeException e) {
+            filter.error();
+            throw e;
+        } finally {
+            filter.record(start);
+        }
+    }
+
+    @Override
+    public int reservationCount() {
+        long start = System.nanoTime();
+        try {
+            return service.reservationCount();
+        } catch (RuntimeException e) {
+            lookup.error();
+            throw e;
+        } finally {
+            lookup.record(start);
+        }
+    }
+
+    @Override
+    public void forEachReservation(Consumer<Reservation> action) {
+        long start = System.nanoTime();
+        try {
+            service.forEachReservation(action);
+        } catch (RuntimeException e) {
+            filter.error();
+            throw e;
+        } finally {
+            filter.record(start);
+        }
+    }
+
+    // --- Change notification (not metered) ---
+
+    @Override
+    public void addReservationListener(ReservationListener listener) {
+        service.addReservationListener(listener);
+    }
+
+    @Override
+    public void addReservationListener(ReservationListener listener, Executor executor) {
+        service.addReservationListener(listener, executor);
+    }
+
+    @Override
+    public void removeReservationListener(ReservationListener listener) {
+        service.removeReservationListener(listener);
+    }
+}
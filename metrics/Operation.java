@@ -0,0 +1,12 @@
+package metrics;
+/*
+ * This enum groups the ReservationService calls that are timed separately.
+ */
+public enum Operation {
+    ADD,        // addReservation, addReservations
+    ASSIGN,     // assignTable, assignTables
+    UPDATE,     // updateReservation
+    REMOVE,     // removeReservation, removeReservationById, completeReservation, cancelReservation, releaseNoShow
+    LOOKUP,     // reservations by table, id or phone, isTableAvailable, reservationCount
+    FILTER;     // findAvailableTables, searchCustomers, getAllTables, getAllReservations, forEachReservation
+}
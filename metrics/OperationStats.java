@@ -0,0 +1,85 @@
+package metrics;
+/*
+ * This class holds the counters and the latency histogram of one Operation. All updates are
+ * lock-free (LongAdder and atomic array increments), so concurrent bookings do not serialize on it.
+ */
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationStats implements OperationStatsMBean {
+
+    private final Operation operation;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    // Record a finished call that started at startNanos (System.nanoTime)
+    public void record(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    public void conflict() {
+        conflicts.increment();
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public LatencyHistogram.Snapshot latency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getConflictRate() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getConflicts() / count;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().mean() / 1_000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().valueAt(50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().valueAt(99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.snapshot().valueAt(99.9) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().max() / 1_000.0;
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+/*
+ * This interface is the JMX view of one Operation's counters and latencies (times in microseconds).
+ */
+public interface OperationStatsMBean {
+
+    long getCount();
+
+    // Calls that failed with TableNotAvailableExeception
+    long getConflicts();
+
+    // Calls that failed with any other exception
+    long getErrors();
+
+    double getConflictRate();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
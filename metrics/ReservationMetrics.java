@@ -0,0 +1,133 @@
+package metrics;
+/*
+ * This class is the registry of the reservation metrics: one OperationStats per Operation and one
+ * TableOccupancy gauge per TableType. MeteredReservationService feeds it; it can be published as JMX
+ * MBeans (domain "restaurant.reservations", visible in JConsole / VisualVM) and dumped as plain text,
+ * which the HTTP API serves under /metrics.
+ */
+import model.TableType;
+import service.ReservationService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class ReservationMetrics {
+
+    public static final String JMX_DOMAIN = "restaurant.reservations";
+
+    private final ReservationService service;
+    // Restaurant id added to the MBean names when several locations run in one JVM, or null
+    private final String location;
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+    private final Map<TableType, TableOccupancy> occupancy = new EnumMap<>(TableType.class);
+    // Every MBean registered, with the server it was registered with
+    private final List<Registration> registered = new ArrayList<>();
+
+    private record Registration(MBeanServer server, ObjectName name) {
+    }
+
+    // Gauges are read from this service (the unmetered one, so reading them is not counted)
+    public ReservationMetrics(ReservationService service) {
+        this(service, null);
+    }
+
+    public ReservationMetrics(ReservationService service, String location) {
+        this.service = service;
+        this.location = location;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats(operation));
+        }
+        for (TableType type : TableType.values()) {
+            occupancy.put(type, new TableOccupancy(service, type));
+        }
+    }
+
+    public OperationStats stats(Operation operation) {
+        return operations.get(operation);
+    }
+
+    public TableOccupancy occupancy(TableType type) {
+        return occupancy.get(type);
+    }
+
+    // --- JMX ---
+
+    // Register the MBeans with the platform MBean server
+    public void registerMBeans() throws JMException {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public synchronized void registerMBeans(MBeanServer server) throws JMException {
+        for (OperationStats stats : operations.values()) {
+            register(server, objectName("Operation", stats.operation().name().toLowerCase(Locale.ROOT)), stats);
+        }
+        for (TableOccupancy gauge : occupancy.values()) {
+            register(server, objectName("Occupancy", gauge.type().name()), gauge);
+        }
+    }
+
+    private ObjectName objectName(String type, String name) throws JMException {
+        String scope = location == null ? "" : "location=" + ObjectName.quote(location) + ",";
+        return new ObjectName(JMX_DOMAIN + ":" + scope + "type=" + type + ",name=" + name);
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(mbean, name);
+        registered.add(new Registration(server, name));
+    }
+
+    // Unregister the MBeans from the servers they were registered with
+    public synchronized void unregisterMBeans() {
+        for (Registration registration : registered) {
+            try {
+                if (registration.server().isRegistered(registration.name())) {
+                    registration.server().unregisterMBean(registration.name());
+                }
+            } catch (JMException e) {
+                System.err.println("Could not unregister " + registration.name() + ": " + e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    // --- Text dump ---
+
+    // All metrics as aligned plain text, one operation or table type per line
+    public String dump() {
+        StringBuilder out = new StringBuilder(2048);
+        out.append(String.format(Locale.ROOT, "%-8s %12s %10s %8s %9s %10s %10s %10s %10s %10s%n",
+                "# op", "count", "conflicts", "errors", "conflict%", "mean_us", "p50_us", "p99_us", "p99.9_us", "max_us"));
+        for (OperationStats stats : operations.values()) {
+            LatencyHistogram.Snapshot latency = stats.latency();
+            long conflicts = stats.getConflicts();
+            out.append(String.format(Locale.ROOT, "%-8s %12d %10d %8d %9.2f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    stats.operation().name().toLowerCase(Locale.ROOT),
+                    latency.count(),
+                    conflicts,
+                    stats.getErrors(),
+                    latency.count() == 0 ? 0.0 : 100.0 * conflicts / latency.count(),
+                    latency.mean() / 1_000,
+                    latency.valueAt(50) / 1_000.0,
+                    latency.valueAt(99) / 1_000.0,
+                    latency.valueAt(99.9) / 1_000.0,
+                    latency.max() / 1_000.0));
+        }
+        out.append(String.format(Locale.ROOT, "%n%-8s %12s %10s %10s%n", "# type", "tables", "reserved", "occupancy"));
+        for (TableOccupancy gauge : occupancy.values()) {
+            out.append(String.format(Locale.ROOT, "%-8s %12d %10d %10.2f%n",
+                    gauge.type().name().toLowerCase(Locale.ROOT), gauge.getTables(), gauge.getReservedTables(), gauge.getOccupancy()));
+        }
+        out.append(String.format(Locale.ROOT, "%n%-20s %d%n", "active_reservations", service.reservationCount()));
+        return out.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package metrics;
+/*
+ * This class is the occupancy gauge of one TableType. It is computed from the service's tables when it
+ * is read, so it costs nothing on the booking path.
+ */
+import model.AbstractTable;
+import model.TableType;
+import service.ReservationService;
+
+public class TableOccupancy implements TableOccupancyMBean {
+
+    private final ReservationService service;
+    private final TableType type;
+
+    public TableOccupancy(ReservationService service, TableType type) {
+        this.service = service;
+        this.type = type;
+    }
+
+    public TableType type() {
+        return type;
+    }
+
+    @Override
+    public int getTables() {
+        int tables = 0;
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getType() == type) {
+                tables++;
+            }
+        }
+        return tables;
+    }
+
+    @Override
+    public int getReservedTables() {
+        int reserved = 0;
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getType() == type && table.isReserved()) {
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+
+    @Override
+    public double getOccupancy() {
+        int tables = 0;
+        int reserved = 0;
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getType() == type) {
+                tables++;
+                if (table.isReserved()) {
+                    reserved++;
+                }
+            }
+        }
+        return tables == 0 ? 0 : (double) reserved / tables;
+    }
+}
@@ -0,0 +1,13 @@
+package metrics;
+/*
+ * This interface is the JMX gauge of how many tables of one TableType currently hold bookings.
+ */
+public interface TableOccupancyMBean {
+
+    int getTables();
+
+    int getReservedTables();
+
+    // Reserved tables / tables, 0 when there are no tables of this type
+    double getOccupancy();
+}
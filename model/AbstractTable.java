@@ -6,7 +6,7 @@ public abstract class AbstractTable {
 
     protected final int tableNumber;
     protected final TableType type;
-    private boolean isReserved;
+    private volatile boolean isReserved;
 
     public AbstractTable(int tableNumber, TableType type) {
         this.tableNumber = tableNumber;
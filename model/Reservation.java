@@ -8,12 +8,44 @@ public record Reservation(
         String customerName,
         String customerPhone,
         LocalDateTime reservationTime,
-        int tableNumber) {
+        int tableNumber,
+        int partySize,
+        int durationMinutes,
+        long id) {
+
+    // How long a table is held when the booking does not say otherwise
+    public static final int DEFAULT_DURATION_MINUTES = 120;
 
     public Reservation {
         if (customerName == null || customerName.isBlank()) {
             throw new IllegalArgumentException("Customer name cannot be empty.");
         }
+        if (partySize < 0) {
+            throw new IllegalArgumentException("Party size cannot be negative.");
+        }
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Reservation duration must be positive.");
+        }
+    }
+
+    // A reservation that has not been stored yet has no id (0); party size 0 means not recorded
+    public Reservation(String customerName, String customerPhone, LocalDateTime reservationTime, int tableNumber) {
+        this(customerName, customerPhone, reservationTime, tableNumber, 0, DEFAULT_DURATION_MINUTES, 0L);
+    }
+
+    public Reservation(String customerName, String customerPhone, LocalDateTime reservationTime, int tableNumber,
+            int partySize, int durationMinutes) {
+        this(customerName, customerPhone, reservationTime, tableNumber, partySize, durationMinutes, 0L);
+    }
+
+    // Copy of this reservation with the id assigned by the reservation store
+    public Reservation withId(long newId) {
+        return new Reservation(customerName, customerPhone, reservationTime, tableNumber, partySize, durationMinutes, newId);
     }
-        
-}
\ No newline at end of file
+
+    // Time the table is free again
+    public LocalDateTime endTime() {
+        return reservationTime.plusMinutes(durationMinutes);
+    }
+
+}
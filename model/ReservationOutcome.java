@@ -0,0 +1,11 @@
+package model;
+/*
+ * This enum records how a reservation left the active book: the party was seated and finished, the
+ * booking was called off before that, or the party never came and the table was released after the
+ * grace period. New outcomes go at the end, the archive stores the ordinal.
+ */
+public enum ReservationOutcome {
+    COMPLETED,
+    CANCELLED,
+    NO_SHOW;
+}
@@ -0,0 +1,678 @@
+package persistence;
+/*
+ * This class is an append-only write-ahead journal for reservations. Every add/remove is encoded as a
+ * compact binary record and appended through a FileChannel; a background flusher writes and fsyncs the
+ * records in groups (group commit). Periodic snapshots start a new journal generation so that replay on
+ * startup only reads one snapshot plus the records written after it.
+ *
+ * Files in the data directory:
+ *   snapshot-<gen>.bin  all active reservations at the start of generation <gen>, then their joined-table parties
+ *   journal-<gen>.log   records appended during generation <gen>
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class ReservationJournal implements AutoCloseable {
+
+    // --- Record types ---
+    private static final byte OP_ADD = 1;      // original add record, without party size and duration
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_BOOK = 3;     // add record with party size and duration
+    private static final byte OP_GROUP = 4;    // removes and adds that must replay together (batches, edits)
+    private static final byte OP_CLOSE = 5;    // remove with the outcome and closing time, for the history
+    private static final byte OP_JOIN = 6;     // snapshot only: ids booked together as one joined-table party
+    // Trailing marker of a group record whose adds are the tables of one joined-table party
+    private static final byte JOINED = 1;
+    private static final ReservationOutcome[] OUTCOMES = ReservationOutcome.values();
+
+    private static final int SNAPSHOT_MAGIC = 0x52534E50; // "RSNP"
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    // Group commit: how long the flusher waits to collect more records before one fsync
+    private static final long FLUSH_INTERVAL_NANOS = 2_000_000;
+    // Start a new generation (snapshot) after this many journal records
+    private static final long RECORDS_PER_SNAPSHOT = 50_000;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_FRAME_SIZE = 256 << 20;
+
+    private final Path directory;
+    private final Object lock = new Object();
+    // Held while records are written to the file, so a checkpoint cannot reorder them
+    private final Object writeLock = new Object();
+    private final Thread flusher;
+
+    // --- Guarded by lock ---
+    private FileChannel channel;
+    private long generation;
+    private ByteBuffer pending;
+    private long appendedSeq;
+    private long durableSeq;
+    private long recordsInGeneration;
+    private IOException failure;
+    private boolean closed;
+    // Set by close() once the last records are written (or could not be) and the file is closed
+    private boolean finished;
+
+    // Called when a new generation should be started (see startGeneration)
+    private volatile Runnable checkpointHandler;
+    private volatile boolean checkpointRunning;
+
+    private ReservationJournal(Path directory, long generation) throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.channel = openJournal(generation);
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.flusher = new Thread(this::flushLoop, "reservation-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Open (or create) the journal in the given directory; records are appended to the newest generation
+    public static ReservationJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long newest = Math.max(newestGeneration(directory, JOURNAL_FILE), newestGeneration(directory, SNAPSHOT_FILE));
+        ReservationJournal journal = new ReservationJournal(directory, Math.max(newest, 0));
+        journal.flusher.start();
+        return journal;
+    }
+
+    // --- Appending ---
+
+    // Append an add record, returns the sequence number to pass to awaitDurable
+    public long appendAdd(Reservation res) {
+        return append(encodeBook(res));
+    }
+
+    /*
+     * Append removes and adds as one record, so after a crash either all of them replay or none do.
+     * Removes replay before adds, which lets an edit remove and re-add the same reservation id.
+     */
+    public long appendGroup(long[] removedIds, Reservation[] added) {
+        return appendGroup(removedIds, added, false);
+    }
+
+    // With joined, the adds are replayed as the tables of one party as well (see replay)
+    public long appendGroup(long[] removedIds, Reservation[] added, boolean joined) {
+        byte[][] books = new byte[added.length][];
+        int size = 1 + 4 + 8 * removedIds.length + 4 + (joined ? 1 : 0);
+        for (int i = 0; i < added.length; i++) {
+            books[i] = encodeBook(added[i]);
+            size += books[i].length;
+        }
+        if (size > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Too many changes for one journal record (" + added.length + " adds).");
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        payload.put(OP_GROUP).putInt(removedIds.length);
+        for (long id : removedIds) {
+            payload.putLong(id);
+        }
+        payload.putInt(added.length);
+        for (byte[] book : books) {
+            payload.put(book);
+        }
+        // readers that do not know the marker skip it with the rest of the frame
+        if (joined) {
+            payload.put(JOINED);
+        }
+        return append(payload.array());
+    }
+
+    public long appendRemove(long reservationId) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8);
+        payload.put(OP_REMOVE).putLong(reservationId);
+        return append(payload.array());
+    }
+
+    // A remove that also keeps how the reservation ended, so a history entry lost in a crash can be recovered
+    public long appendClose(long reservationId, ReservationOutcome outcome, LocalDateTime closedAt) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8 + 1 + 8);
+        payload.put(OP_CLOSE).putLong(reservationId).put((byte) outcome.ordinal()).putLong(closedAt.toEpochSecond(ZoneOffset.UTC));
+        return append(payload.array());
+    }
+
+    private long append(byte[] payload) {
+        synchronized (lock) {
+            checkUsable();
+            ensurePending(payload.length + 8);
+            writeFrame(pending, payload);
+            recordsInGeneration++;
+            appendedSeq++;
+            lock.notifyAll();
+            return appendedSeq;
+        }
+    }
+
+    /*
+     * Block until the record with the given sequence number has been fsynced. Throws if it never will be
+     * (a write failed or the journal was closed without it) or the wait is interrupted, in which case the
+     * interrupt flag is set again: the caller must not report the change as durable.
+     */
+    public void awaitDurable(long seq) {
+        synchronized (lock) {
+            // close() still flushes what was appended before it, so wait for that too
+            while (durableSeq < seq && failure == null && !finished) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException(
+                            "Interrupted before reservation journal record " + seq + " was written."));
+                }
+            }
+            if (durableSeq >= seq) {
+                return;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Reservation journal write failed", failure);
+            }
+            throw new IllegalStateException("Reservation journal was closed before record " + seq + " was written.");
+        }
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("Reservation journal is closed.");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Reservation journal write failed", failure);
+        }
+    }
+
+    private void ensurePending(int extra) {
+        if (pending.remaining() < extra) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + extra));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    // --- Group commit ---
+    private void flushLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+        while (true) {
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0 && closed) {
+                    return;
+                }
+                // let a few more records join this batch before paying for the fsync
+                long deadline = System.nanoTime() + FLUSH_INTERVAL_NANOS;
+                long left;
+                while (!closed && (left = deadline - System.nanoTime()) > 0) {
+                    try {
+                        lock.wait(left / 1_000_000, (int) (left % 1_000_000));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            ByteBuffer batch;
+            long batchSeq;
+            boolean wantCheckpoint;
+            synchronized (writeLock) {
+                FileChannel target;
+                synchronized (lock) {
+                    batch = pending;
+                    pending = spare;
+                    target = channel;
+                    batchSeq = appendedSeq;
+                    wantCheckpoint = recordsInGeneration >= RECORDS_PER_SNAPSHOT;
+                }
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        target.write(batch);
+                    }
+                    target.force(false);
+                } catch (IOException e) {
+                    synchronized (lock) {
+                        failure = e;
+                        lock.notifyAll();
+                    }
+                    return;
+                }
+            }
+            batch.clear();
+            spare = batch;
+            synchronized (lock) {
+                durableSeq = Math.max(durableSeq, batchSeq);
+                lock.notifyAll();
+            }
+            if (wantCheckpoint) {
+                startCheckpoint();
+            }
+        }
+    }
+
+    // Run the checkpoint handler on its own thread so group commits continue while the snapshot is written
+    private void startCheckpoint() {
+        Runnable handler = checkpointHandler;
+        if (handler == null || checkpointRunning) {
+            return;
+        }
+        checkpointRunning = true;
+        Thread snapshotter = new Thread(() -> {
+            try {
+                handler.run();
+            } finally {
+                checkpointRunning = false;
+            }
+        }, "reservation-journal-snapshot");
+        snapshotter.setDaemon(true);
+        snapshotter.start();
+    }
+
+    // Write everything appended so far and fsync it
+    private void flushPendingLocked() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+        channel.force(false);
+        durableSeq = appendedSeq;
+        lock.notifyAll();
+    }
+
+    // --- Snapshots ---
+
+    // Register the callback that snapshots the owner's state (see startGeneration)
+    public void setCheckpointHandler(Runnable handler) {
+        this.checkpointHandler = handler;
+    }
+
+    /*
+     * Checkpointing is two steps. startGeneration() closes the current journal and directs new records
+     * to a fresh generation; the caller must make sure no add/remove is in flight between copying its
+     * active reservations and this call, so the copy reflects exactly the records of the old generations.
+     * completeCheckpoint() then writes that copy as the new generation's snapshot (no locks needed) and
+     * deletes the files it supersedes.
+     */
+    public long startGeneration() {
+        synchronized (writeLock) {
+            synchronized (lock) {
+                checkUsable();
+                try {
+                    flushPendingLocked();
+                    channel.close();
+                    long newGeneration = generation + 1;
+                    channel = openJournal(newGeneration);
+                    generation = newGeneration;
+                    recordsInGeneration = 0;
+                    return newGeneration;
+                } catch (IOException e) {
+                    failure = e;
+                    lock.notifyAll();
+                    throw new UncheckedIOException("Could not start a new journal generation", e);
+                }
+            }
+        }
+    }
+
+    public void completeCheckpoint(long newGeneration, Reservation[] activeReservations) {
+        completeCheckpoint(newGeneration, activeReservations, List.of());
+    }
+
+    // The snapshot also keeps the joined-table parties among the active reservations (ids per party)
+    public void completeCheckpoint(long newGeneration, Reservation[] activeReservations, List<long[]> joinedParties) {
+        try {
+            writeSnapshot(newGeneration, activeReservations, joinedParties);
+            deleteGenerationsBefore(newGeneration);
+        } catch (IOException e) {
+            // the older generations stay on disk, so replay is still complete without this snapshot
+            System.err.println("Reservation snapshot failed: " + e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(long gen, Reservation[] reservations, List<long[]> joinedParties) throws IOException {
+        Path tmp = directory.resolve("snapshot-" + gen + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC).putLong(gen).putInt(reservations.length + joinedParties.size());
+            for (Reservation res : reservations) {
+                writeSnapshotFrame(out, buffer, encodeBook(res));
+            }
+            // after the books, so the parties' reservations are back when they are joined again
+            for (long[] ids : joinedParties) {
+                ByteBuffer payload = ByteBuffer.allocate(1 + 4 + 8 * ids.length);
+                payload.put(OP_JOIN).putInt(ids.length);
+                for (long id : ids) {
+                    payload.putLong(id);
+                }
+                writeSnapshotFrame(out, buffer, payload.array());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, directory.resolve("snapshot-" + gen + ".bin"), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeSnapshotFrame(FileChannel out, ByteBuffer buffer, byte[] payload) throws IOException {
+        if (buffer.remaining() < payload.length + 8) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        writeFrame(buffer, payload);
+    }
+
+    private void deleteGenerationsBefore(long gen) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher journal = JOURNAL_FILE.matcher(name);
+                Matcher snapshot = SNAPSHOT_FILE.matcher(name);
+                if ((journal.matches() && Long.parseLong(journal.group(1)) < gen)
+                        || (snapshot.matches() && Long.parseLong(snapshot.group(1)) < gen)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // --- Replay ---
+
+    // Receives a replayed close: the reservation left the book with this outcome at closedAt
+    @FunctionalInterface
+    public interface CloseHandler {
+        void closed(long reservationId, ReservationOutcome outcome, LocalDateTime closedAt);
+    }
+
+    /*
+     * Feed the newest complete snapshot and every journal record written after it to the callbacks, in
+     * order. Replay is idempotent for the owner: an add may repeat a reservation from the snapshot and a
+     * remove may name one that is already gone. A torn record at the end of the last journal is cut off;
+     * a bad record in an older journal fails the replay with an IOException. Call this before appending anything. Returns the number of records replayed.
+     */
+    public long replay(Consumer<Reservation> onAdd, LongConsumer onRemove) throws IOException {
+        return replay(onAdd, onRemove, (id, outcome, closedAt) -> onRemove.accept(id));
+    }
+
+    // Replay, handing closes (removes with an outcome) to onClose instead of onRemove
+    public long replay(Consumer<Reservation> onAdd, LongConsumer onRemove, CloseHandler onClose) throws IOException {
+        return replay(onAdd, onRemove, onClose, ids -> { });
+    }
+
+    // Replay, also handing the ids of every joined-table party to onJoin once its reservations are added
+    public long replay(Consumer<Reservation> onAdd, LongConsumer onRemove, CloseHandler onClose, Consumer<long[]> onJoin)
+            throws IOException {
+        long snapshotGen = newestGeneration(directory, SNAPSHOT_FILE);
+        long count = 0;
+        if (snapshotGen >= 0) {
+            count += readSnapshot(directory.resolve("snapshot-" + snapshotGen + ".bin"), onAdd, onJoin);
+        }
+        List<Long> journals = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> JOURNAL_FILE.matcher(p.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(m -> Long.parseLong(m.group(1)))
+                    .filter(gen -> gen >= snapshotGen)
+                    .sorted()
+                    .forEach(journals::add);
+        }
+        for (int i = 0; i < journals.size(); i++) {
+            count += readJournal(directory.resolve("journal-" + journals.get(i) + ".log"), i == journals.size() - 1,
+                    onAdd, onRemove, onClose, onJoin);
+        }
+        return count;
+    }
+
+    private long readSnapshot(Path file, Consumer<Reservation> onAdd, Consumer<long[]> onJoin) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            FrameReader reader = new FrameReader(in);
+            if (!reader.ensure(16) || reader.buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a reservation snapshot: " + file);
+            }
+            reader.buffer.getLong();
+            int expected = reader.buffer.getInt();
+            long count = readFrames(reader, onAdd, id -> { }, (id, outcome, closedAt) -> { }, onJoin);
+            if (count != expected) {
+                throw new IOException("Snapshot " + file + " is incomplete (" + count + " of " + expected + " records).");
+            }
+            return count;
+        }
+    }
+
+    // Only the last journal can end in a torn record (the crash); a bad frame in an older one is damage,
+    // and replaying the newer generations over the gap would restore a wrong book
+    private long readJournal(Path file, boolean last, Consumer<Reservation> onAdd, LongConsumer onRemove,
+            CloseHandler onClose, Consumer<long[]> onJoin) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FrameReader reader = new FrameReader(in);
+            long count = readFrames(reader, onAdd, onRemove, onClose, onJoin);
+            long validEnd = in.position() - reader.buffer.remaining();
+            if (validEnd < in.size()) {
+                if (!last) {
+                    throw new IOException("Journal " + file + " is damaged at byte " + validEnd + " of " + in.size()
+                            + " and newer journals follow it.");
+                }
+                // drop a torn tail so new records are appended after the last good one
+                in.truncate(validEnd);
+            }
+            return count;
+        }
+    }
+
+    // Reads frames until end of file or the first incomplete/corrupt frame
+    private long readFrames(FrameReader reader, Consumer<Reservation> onAdd, LongConsumer onRemove, CloseHandler onClose,
+            Consumer<long[]> onJoin) throws IOException {
+        CRC32 crc = new CRC32();
+        long count = 0;
+        while (true) {
+            if (!reader.ensure(4)) {
+                return count;
+            }
+            int length = reader.buffer.getInt(reader.buffer.position());
+            if (length <= 0 || length > MAX_FRAME_SIZE || !reader.ensure(length + 8)) {
+                return count;
+            }
+            ByteBuffer buffer = reader.buffer;
+            int start = buffer.position() + 4;
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if ((int) crc.getValue() != buffer.getInt(start + length)) {
+                return count;
+            }
+            buffer.position(start);
+            byte op = buffer.get();
+            if (op == OP_BOOK || op == OP_ADD) {
+                onAdd.accept(decodeReservation(buffer, op == OP_BOOK));
+            } else if (op == OP_REMOVE) {
+                onRemove.accept(buffer.getLong());
+            } else if (op == OP_CLOSE) {
+                long id = buffer.getLong();
+                ReservationOutcome outcome = OUTCOMES[buffer.get()];
+                onClose.closed(id, outcome, LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC));
+            } else if (op == OP_GROUP) {
+                int removed = buffer.getInt();
+                for (int i = 0; i < removed; i++) {
+                    onRemove.accept(buffer.getLong());
+                }
+                int added = buffer.getInt();
+                long[] addedIds = new long[added];
+                for (int i = 0; i < added; i++) {
+                    byte nestedOp = buffer.get();
+                    Reservation res = decodeReservation(buffer, nestedOp == OP_BOOK);
+                    addedIds[i] = res.id();
+                    onAdd.accept(res);
+                }
+                if (buffer.position() < start + length && buffer.get() == JOINED) {
+                    onJoin.accept(addedIds);
+                }
+            } else if (op == OP_JOIN) {
+                long[] ids = new long[buffer.getInt()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = buffer.getLong();
+                }
+                onJoin.accept(ids);
+            }
+            buffer.position(start + length + 4);
+            count++;
+        }
+    }
+
+    // Buffered reader over a channel whose buffer grows when a frame is larger than it
+    private static final class FrameReader {
+        private final FileChannel in;
+        private ByteBuffer buffer;
+
+        FrameReader(FileChannel in) {
+            this.in = in;
+            this.buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            this.buffer.flip();
+        }
+
+        // Make sure at least `needed` bytes are readable in the buffer, returns false at end of file
+        boolean ensure(int needed) throws IOException {
+            if (buffer.remaining() >= needed) {
+                return true;
+            }
+            if (needed > buffer.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocate(needed);
+                bigger.put(buffer);
+                buffer = bigger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < needed) {
+                if (in.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= needed;
+        }
+    }
+
+    // --- Encoding ---
+
+    // Frame layout: int payload length, payload, int CRC32 of payload
+    private static void writeFrame(ByteBuffer out, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+    }
+
+    private static byte[] encodeBook(Reservation res) {
+        byte[] name = res.customerName().getBytes(StandardCharsets.UTF_8);
+        byte[] phone = res.customerPhone() == null ? new byte[0] : res.customerPhone().getBytes(StandardCharsets.UTF_8);
+        // party size and the string lengths are stored as unsigned shorts
+        if (res.partySize() > 0xFFFF || name.length > 0xFFFF || phone.length > 0xFFFF) {
+            throw new IllegalArgumentException("Reservation " + res.id()
+                    + " has a party size, name or phone too large for the journal.");
+        }
+        LocalDateTime time = res.reservationTime();
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + 4 + 8 + 4 + 2 + 4 + 2 + name.length + 2 + phone.length);
+        out.put(OP_BOOK);
+        out.putLong(res.id());
+        out.putInt(res.tableNumber());
+        out.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(time.getNano());
+        out.putShort((short) res.partySize());
+        out.putInt(res.durationMinutes());
+        out.putShort((short) name.length).put(name);
+        out.putShort((short) phone.length).put(phone);
+        return out.array();
+    }
+
+    private static Reservation decodeReservation(ByteBuffer in, boolean withPartyAndDuration) {
+        long id = in.getLong();
+        int tableNo = in.getInt();
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        int partySize = 0;
+        int durationMinutes = Reservation.DEFAULT_DURATION_MINUTES;
+        if (withPartyAndDuration) {
+            partySize = Short.toUnsignedInt(in.getShort());
+            durationMinutes = in.getInt();
+        }
+        byte[] name = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(name);
+        byte[] phone = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(phone);
+        return new Reservation(new String(name, StandardCharsets.UTF_8), new String(phone, StandardCharsets.UTF_8),
+                LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC), tableNo, partySize, durationMinutes, id);
+    }
+
+    // --- Files ---
+    private FileChannel openJournal(long gen) throws IOException {
+        return FileChannel.open(directory.resolve("journal-" + gen + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static long newestGeneration(Path directory, Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> pattern.matcher(p.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToLong(m -> Long.parseLong(m.group(1)))
+                    .max()
+                    .orElse(-1);
+        }
+    }
+
+    // Flush and fsync everything appended so far, then close the journal file
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            synchronized (lock) {
+                try {
+                    if (failure == null) {
+                        flushPendingLocked();
+                    }
+                } finally {
+                    finished = true;
+                    lock.notifyAll();
+                    channel.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package repository;
+/*
+ * This class is a small fixed-size JDBC connection pool. Connections are opened on demand up to the
+ * pool size through DriverManager, handed out from an idle queue, checked with isValid before reuse
+ * and replaced when they have gone bad. A caller that finds every connection busy waits up to the
+ * borrow timeout.
+ */
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final Properties properties;
+    private final BlockingQueue<Connection> idle;
+    // One permit per connection that may exist (idle or borrowed)
+    private final Semaphore permits;
+    private final long borrowTimeoutMillis;
+    private final List<Connection> opened = new ArrayList<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, Properties properties, int size, long borrowTimeoutMillis) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+        this.url = url;
+        this.properties = properties;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.permits = new Semaphore(size, true);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    // Take a connection; give it back with release(), not close()
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No database connection free after " + borrowTimeoutMillis + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        try {
+            Connection connection = idle.poll();
+            if (connection != null && !connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                discard(connection);
+                connection = null;
+            }
+            if (connection == null) {
+                connection = DriverManager.getConnection(url, properties);
+                synchronized (opened) {
+                    opened.add(connection);
+                }
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /*
+     * Return a borrowed connection. A connection left in a transaction is rolled back first; with
+     * broken = true (e.g. after an I/O error) it is closed instead of being reused.
+     */
+    public void release(Connection connection, boolean broken) {
+        try {
+            if (!broken && !closed && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            broken = true;
+        }
+        if (broken || closed || !idle.offer(connection)) {
+            discard(connection);
+        }
+        permits.release();
+    }
+
+    private void discard(Connection connection) {
+        synchronized (opened) {
+            opened.remove(connection);
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // already unusable
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<Connection> all;
+        synchronized (opened) {
+            all = new ArrayList<>(opened);
+            opened.clear();
+        }
+        idle.clear();
+        for (Connection connection : all) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package repository;
+/*
+ * This class is the in-memory ReservationRepository: reservations are indexed by id, by start time
+ * and by normalized phone number behind a read/write lock. It keeps nothing on disk, so it is meant for
+ * running without a database and for trying out code that uses the repository SPI.
+ */
+import history.ArchivedReservation;
+import model.Reservation;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+public class InMemoryReservationRepository implements ReservationRepository {
+
+    private final Map<Long, Reservation> byId = new HashMap<>();
+    // start minute -> id -> reservation
+    private final NavigableMap<Long, Map<Long, Reservation>> byStart = new TreeMap<>();
+    private final Map<String, Set<Long>> byPhone = new HashMap<>();
+    // Ids of the reservations closed with an outcome
+    private final Set<Long> closedIds = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Longest booking seen, bounds how far back an overlap search has to look
+    private int longestDuration;
+
+    @Override
+    public void apply(long[] deletedIds, Collection<Reservation> saved, Collection<ArchivedReservation> closed) {
+        lock.writeLock().lock();
+        try {
+            for (long id : deletedIds) {
+                remove(id);
+            }
+            for (Reservation res : saved) {
+                put(res);
+            }
+            for (ArchivedReservation entry : closed) {
+                put(entry.reservation());
+                closedIds.add(entry.reservation().id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Reservation res) {
+        remove(res.id());
+        byId.put(res.id(), res);
+        byStart.computeIfAbsent(startMinute(res), m -> new HashMap<>()).put(res.id(), res);
+        byPhone.computeIfAbsent(ReservationRepository.phoneKey(res.customerPhone()), p -> new HashSet<>()).add(res.id());
+        longestDuration = Math.max(longestDuration, res.durationMinutes());
+    }
+
+    private void remove(long id) {
+        closedIds.remove(id);
+        Reservation old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        Map<Long, Reservation> sameStart = byStart.get(startMinute(old));
+        sameStart.remove(id);
+        if (sameStart.isEmpty()) {
+            byStart.remove(startMinute(old));
+        }
+        Set<Long> ids = byPhone.get(ReservationRepository.phoneKey(old.customerPhone()));
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            byPhone.remove(ReservationRepository.phoneKey(old.customerPhone()));
+        }
+    }
+
+    @Override
+    public void reconcile(LocalDateTime now, Collection<Reservation> active) {
+        long nowMinute = ReservationRepository.toEpochMinute(now);
+        lock.writeLock().lock();
+        try {
+            List<Long> stale = new ArrayList<>();
+            for (Reservation res : byId.values()) {
+                if (startMinute(res) + res.durationMinutes() > nowMinute && !closedIds.contains(res.id())) {
+                    stale.add(res.id());
+                }
+            }
+            for (long id : stale) {
+                remove(id);
+            }
+            apply(new long[0], active);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Reservation findById(long id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> findByTable(int tableNo, LocalDateTime from, LocalDateTime to) {
+        List<Reservation> found = new ArrayList<>();
+        forEachBetween(from, to, res -> {
+            if (res.tableNumber() == tableNo) {
+                found.add(res);
+            }
+        });
+        return found;
+    }
+
+    @Override
+    public List<Reservation> findByPhone(String phone) {
+        lock.readLock().lock();
+        try {
+            List<Reservation> found = new ArrayList<>();
+            for (long id : byPhone.getOrDefault(ReservationRepository.phoneKey(phone), Set.of())) {
+                found.add(byId.get(id));
+            }
+            found.sort(Comparator.comparingLong(Reservation::id));
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachBetween(LocalDateTime from, LocalDateTime to, Consumer<Reservation> action) {
+        forEach(ReservationRepository.toEpochMinute(from), ReservationRepository.toEpochMinute(to), false, action);
+    }
+
+    @Override
+    public void forEachOpen(LocalDateTime from, Consumer<Reservation> action) {
+        forEach(ReservationRepository.toEpochMinute(from), Long.MAX_VALUE, true, action);
+    }
+
+    private void forEach(long fromMinute, long toMinute, boolean openOnly, Consumer<Reservation> action) {
+        List<Reservation> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map<Long, Reservation> sameStart : byStart.subMap(fromMinute - longestDuration, false, toMinute, false).values()) {
+                for (Reservation res : sameStart.values()) {
+                    if (startMinute(res) + res.durationMinutes() > fromMinute && !(openOnly && closedIds.contains(res.id()))) {
+                        found.add(res);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // call back outside the lock so the action may use the repository
+        found.sort(Comparator.comparing(Reservation::reservationTime).thenComparingLong(Reservation::id));
+        found.forEach(action);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static long startMinute(Reservation res) {
+        return ReservationRepository.toEpochMinute(res.reservationTime());
+    }
+}
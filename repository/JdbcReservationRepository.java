@@ -0,0 +1,352 @@
+package repository;
+/*
+ * This class stores reservations in an embedded (or any JDBC) database, e.g. H2 or SQLite in file mode:
+ *   -Dreservation.jdbc.url=jdbc:h2:./data/reservations      or      jdbc:sqlite:data/reservations.db
+ * The driver jar only has to be on the classpath at runtime; this code uses plain java.sql and
+ * portable SQL (an upsert is a delete plus an insert in the same transaction).
+ *
+ * Times are stored as epoch minutes (wall-clock time, no zone), which keeps the columns plain BIGINTs
+ * and the comparisons index friendly. Indexes cover table number + start time, start time, end time
+ * and the normalized phone number. A closed reservation keeps its row with the outcome name and the
+ * closing minute filled in (both are NULL while it is open). Writes are sent with prepared-statement
+ * batches inside one transaction per apply(); connections come from a ConnectionPool.
+ */
+import history.ArchivedReservation;
+import model.Reservation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+public class JdbcReservationRepository implements ReservationRepository {
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+    private static final long BORROW_TIMEOUT_MILLIS = 5_000;
+    // Rows per executeBatch round trip
+    private static final int BATCH_SIZE = 500;
+    private static final int FETCH_SIZE = 1_000;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS reservations ("
+            + "id BIGINT PRIMARY KEY, "
+            + "table_number INT NOT NULL, "
+            + "start_minute BIGINT NOT NULL, "
+            + "end_minute BIGINT NOT NULL, "
+            + "party_size INT NOT NULL, "
+            + "duration_minutes INT NOT NULL, "
+            + "customer_name VARCHAR(200) NOT NULL, "
+            + "customer_phone VARCHAR(40), "
+            + "phone_key VARCHAR(40) NOT NULL, "
+            + "outcome VARCHAR(16), "
+            + "closed_minute BIGINT)",
+        "CREATE INDEX IF NOT EXISTS idx_reservations_table_start ON reservations (table_number, start_minute)",
+        "CREATE INDEX IF NOT EXISTS idx_reservations_start ON reservations (start_minute)",
+        "CREATE INDEX IF NOT EXISTS idx_reservations_end ON reservations (end_minute)",
+        "CREATE INDEX IF NOT EXISTS idx_reservations_phone ON reservations (phone_key)"
+    };
+
+    private static final String COLUMNS =
+            "id, table_number, start_minute, party_size, duration_minutes, customer_name, customer_phone";
+    private static final String INSERT = "INSERT INTO reservations (" + COLUMNS
+            + ", end_minute, phone_key, outcome, closed_minute) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM reservations WHERE id = ?";
+    private static final String DELETE_ACTIVE = "DELETE FROM reservations WHERE end_minute > ? AND outcome IS NULL";
+    private static final String BY_ID = "SELECT " + COLUMNS + " FROM reservations WHERE id = ?";
+    private static final String BY_TABLE = "SELECT " + COLUMNS + " FROM reservations "
+            + "WHERE table_number = ? AND start_minute < ? AND end_minute > ? ORDER BY start_minute";
+    private static final String BY_PHONE = "SELECT " + COLUMNS + " FROM reservations WHERE phone_key = ? ORDER BY id";
+    private static final String BETWEEN = "SELECT " + COLUMNS + " FROM reservations "
+            + "WHERE start_minute < ? AND end_minute > ? ORDER BY start_minute, id";
+    private static final String OPEN = "SELECT " + COLUMNS + " FROM reservations "
+            + "WHERE end_minute > ? AND outcome IS NULL ORDER BY start_minute, id";
+    private static final String COUNT = "SELECT COUNT(*) FROM reservations";
+
+    private final ConnectionPool pool;
+
+    public JdbcReservationRepository(String url) throws SQLException {
+        this(url, new Properties(), DEFAULT_POOL_SIZE);
+    }
+
+    public JdbcReservationRepository(String url, Properties properties, int poolSize) throws SQLException {
+        this.pool = new ConnectionPool(url, properties, poolSize, BORROW_TIMEOUT_MILLIS);
+        createSchema();
+    }
+
+    private void createSchema() throws SQLException {
+        Connection connection = pool.borrow();
+        boolean broken = true;
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+            broken = false;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    // --- Writes ---
+
+    @Override
+    public void apply(long[] deletedIds, Collection<Reservation> saved, Collection<ArchivedReservation> closed) {
+        if (deletedIds.length == 0 && saved.isEmpty() && closed.isEmpty()) {
+            return;
+        }
+        inTransaction(connection -> {
+            long[] replaced = new long[saved.size() + closed.size()];
+            int i = 0;
+            for (Reservation res : saved) {
+                replaced[i++] = res.id();
+            }
+            for (ArchivedReservation entry : closed) {
+                replaced[i++] = entry.reservation().id();
+            }
+            deleteIds(connection, deletedIds);
+            deleteIds(connection, replaced);
+            insert(connection, saved);
+            insertClosed(connection, closed);
+        });
+    }
+
+    @Override
+    public void reconcile(LocalDateTime now, Collection<Reservation> active) {
+        inTransaction(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE_ACTIVE)) {
+                delete.setLong(1, ReservationRepository.toEpochMinute(now));
+                delete.executeUpdate();
+            }
+            // the active set can still contain bookings that ended before now
+            long[] ids = new long[active.size()];
+            int i = 0;
+            for (Reservation res : active) {
+                ids[i++] = res.id();
+            }
+            deleteIds(connection, ids);
+            insert(connection, active);
+        });
+    }
+
+    private static void deleteIds(Connection connection, long[] ids) throws SQLException {
+        if (ids.length == 0) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement(DELETE)) {
+            for (int i = 0; i < ids.length; i++) {
+                delete.setLong(1, ids[i]);
+                delete.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    delete.executeBatch();
+                }
+            }
+            delete.executeBatch();
+        }
+    }
+
+    private static void insert(Connection connection, Collection<Reservation> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            int pending = 0;
+            for (Reservation res : rows) {
+                bind(insert, res);
+                insert.setNull(10, Types.VARCHAR);
+                insert.setNull(11, Types.BIGINT);
+                insert.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void insertClosed(Connection connection, Collection<ArchivedReservation> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            int pending = 0;
+            for (ArchivedReservation entry : rows) {
+                bind(insert, entry.reservation());
+                insert.setString(10, entry.outcome().name());
+                insert.setLong(11, ReservationRepository.toEpochMinute(entry.closedAt()));
+                insert.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // The reservation columns of INSERT, without the outcome
+    private static void bind(PreparedStatement insert, Reservation res) throws SQLException {
+        long start = ReservationRepository.toEpochMinute(res.reservationTime());
+        insert.setLong(1, res.id());
+        insert.setInt(2, res.tableNumber());
+        insert.setLong(3, start);
+        insert.setInt(4, res.partySize());
+        insert.setInt(5, res.durationMinutes());
+        insert.setString(6, res.customerName());
+        insert.setString(7, res.customerPhone());
+        insert.setLong(8, start + res.durationMinutes());
+        insert.setString(9, ReservationRepository.phoneKey(res.customerPhone()));
+    }
+
+    // --- Reads ---
+
+    @Override
+    public Reservation findById(long id) {
+        List<Reservation> found = query(BY_ID, statement -> statement.setLong(1, id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public List<Reservation> findByTable(int tableNo, LocalDateTime from, LocalDateTime to) {
+        return query(BY_TABLE, statement -> {
+            statement.setInt(1, tableNo);
+            statement.setLong(2, ReservationRepository.toEpochMinute(to));
+            statement.setLong(3, ReservationRepository.toEpochMinute(from));
+        });
+    }
+
+    @Override
+    public List<Reservation> findByPhone(String phone) {
+        return query(BY_PHONE, statement -> statement.setString(1, ReservationRepository.phoneKey(phone)));
+    }
+
+    @Override
+    public void forEachBetween(LocalDateTime from, LocalDateTime to, Consumer<Reservation> action) {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(BETWEEN)) {
+                statement.setLong(1, ReservationRepository.toEpochMinute(to));
+                statement.setLong(2, ReservationRepository.toEpochMinute(from));
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        action.accept(read(rows));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void forEachOpen(LocalDateTime from, Consumer<Reservation> action) {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(OPEN)) {
+                statement.setLong(1, ReservationRepository.toEpochMinute(from));
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        action.accept(read(rows));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public long count() {
+        long[] count = new long[1];
+        withConnection(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery(COUNT)) {
+                rows.next();
+                count[0] = rows.getLong(1);
+            }
+        });
+        return count[0];
+    }
+
+    private List<Reservation> query(String sql, StatementSetup setup) {
+        List<Reservation> found = new ArrayList<>();
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                setup.bind(statement);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        found.add(read(rows));
+                    }
+                }
+            }
+        });
+        return found;
+    }
+
+    private static Reservation read(ResultSet rows) throws SQLException {
+        return new Reservation(
+                rows.getString(6),
+                rows.getString(7),
+                ReservationRepository.fromEpochMinute(rows.getLong(3)),
+                rows.getInt(2),
+                rows.getInt(4),
+                rows.getInt(5),
+                rows.getLong(1));
+    }
+
+    // --- Connection handling ---
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface StatementSetup {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private void withConnection(SqlWork work) {
+        Connection connection = borrow();
+        boolean broken = true;
+        try {
+            work.run(connection);
+            broken = false;
+        } catch (SQLException e) {
+            throw new RepositoryException("Reservation query failed: " + e.getMessage(), e);
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    private void inTransaction(SqlWork work) {
+        withConnection(connection -> {
+            connection.setAutoCommit(false);
+            try {
+                work.run(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    private Connection borrow() {
+        try {
+            return pool.borrow();
+        } catch (SQLException e) {
+            throw new RepositoryException("No database connection: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,11 @@
+package repository;
+/*
+ * This exception reports a storage failure inside a ReservationRepository (for the JDBC repository it
+ * wraps the SQLException). It is unchecked because the repository is written to off the booking path.
+ */
+public class RepositoryException extends RuntimeException {
+
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,168 @@
+package repository;
+/*
+ * This class keeps a ReservationRepository in step with a ReservationManager. It subscribes to the
+ * manager's event bus on its own writer thread, so bookings never wait for the database; every batch
+ * of events is folded into one apply() call (one transaction, batched statements), and while a write
+ * is running new events pile up into the next batch. A completion, cancellation or no-show closes the
+ * reservation's row with its outcome; only a removal without an outcome deletes it. If the bus drops
+ * events, the repository is reconciled with the manager's working set.
+ *
+ * Startup order: load(...) the working set from the repository, replay(...) the journal, then attach(...).
+ */
+import history.ArchivedReservation;
+import model.Reservation;
+import persistence.ReservationJournal;
+import service.ReservationEvent;
+import service.ReservationListener;
+import service.ReservationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RepositorySync implements ReservationListener, AutoCloseable {
+
+    private final ReservationManager manager;
+    private final ReservationRepository repository;
+    private final ExecutorService writer;
+    // Set when a write failed, the next batch reconciles instead (only touched on the writer thread)
+    private boolean dirty;
+
+    private RepositorySync(ReservationManager manager, ReservationRepository repository) {
+        this.manager = manager;
+        this.repository = repository;
+        this.writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("reservation-repository-writer").daemon().factory());
+    }
+
+    // Put the open bookings that end after `from` back into the manager; older ones stay in the repository only
+    public static long load(ReservationRepository repository, ReservationManager manager, LocalDateTime from) {
+        long[] loaded = new long[1];
+        repository.forEachOpen(from, res -> {
+            manager.restoreReservation(res);
+            loaded[0]++;
+        });
+        return loaded[0];
+    }
+
+    /*
+     * Replay the journal into the manager after load(...) with the same `from`. The journal still holds
+     * every booking since its last snapshot; the ones that ended before `from` are not put back into
+     * heap but saved to the repository, which may have missed them if the writer was behind when the
+     * application stopped, and so are the closes it holds. If that save fails the past bookings are
+     * restored into the manager instead, so the next journal snapshot still has them. Returns the
+     * number of journal records replayed.
+     */
+    public static long replay(ReservationJournal journal, ReservationRepository repository, ReservationManager manager,
+            LocalDateTime from) throws IOException {
+        Map<Long, Reservation> past = new LinkedHashMap<>();
+        Map<Long, ArchivedReservation> closed = new LinkedHashMap<>();
+        List<long[]> parties = new ArrayList<>();
+        long count = journal.replay(res -> {
+            if (res.endTime().isAfter(from)) {
+                past.remove(res.id());
+                manager.restoreReservation(res);
+            } else {
+                past.put(res.id(), res);
+            }
+        }, id -> {
+            past.remove(id);
+            manager.removeReservationById(id);
+        }, (id, outcome, closedAt) -> {
+            Reservation res = past.remove(id);
+            if (res != null) {
+                manager.restoreClose(res, outcome, closedAt);
+            } else {
+                res = manager.restoreClose(id, outcome, closedAt);
+            }
+            if (res != null) {
+                closed.put(id, new ArchivedReservation(res, outcome, closedAt));
+            }
+        }, parties::add);
+        try {
+            repository.apply(new long[0], past.values(), closed.values());
+        } catch (RepositoryException e) {
+            System.err.println("Could not save " + (past.size() + closed.size()) + " reservations from the journal: "
+                    + e.getMessage());
+            past.values().forEach(manager::restoreReservation);
+        }
+        // once the book is complete; the tables of a party that are not in it are left out
+        parties.forEach(manager::restoreJoin);
+        return count;
+    }
+
+    // Bring the repository up to date with the manager and follow every later change
+    public static RepositorySync attach(ReservationManager manager, ReservationRepository repository) {
+        RepositorySync sync = new RepositorySync(manager, repository);
+        repository.reconcile(LocalDateTime.now(), List.of(manager.getAllReservations()));
+        manager.addReservationListener(sync, sync.writer);
+        return sync;
+    }
+
+    @Override
+    public void reservationChanged(ReservationEvent event) {
+        reservationsChanged(List.of(event));
+    }
+
+    // Fold the batch down to the last state of every id and write it in one transaction
+    @Override
+    public void reservationsChanged(List<ReservationEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Reservation> saved = new LinkedHashMap<>();
+        Map<Long, ArchivedReservation> closed = new LinkedHashMap<>();
+        Set<Long> deleted = new LinkedHashSet<>();
+        for (ReservationEvent event : events) {
+            Reservation res = event.reservation();
+            saved.remove(res.id());
+            closed.remove(res.id());
+            deleted.remove(res.id());
+            if (event.type() != ReservationEvent.Type.REMOVED) {
+                saved.put(res.id(), res);
+            } else if (event.outcome() != null) {
+                closed.put(res.id(), new ArchivedReservation(res, event.outcome(), now));
+            } else {
+                deleted.add(res.id());
+            }
+        }
+        try {
+            if (dirty) {
+                // reconcile deletes the rows closed by this batch (they left the working set), so close them again
+                reconcile();
+                repository.apply(new long[0], List.of(), closed.values());
+            } else {
+                repository.apply(deleted.stream().mapToLong(Long::longValue).toArray(), saved.values(), closed.values());
+            }
+        } catch (RepositoryException e) {
+            dirty = true;
+            System.err.println("Could not write " + events.size() + " reservation changes: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void eventsLost() {
+        try {
+            reconcile();
+        } catch (RepositoryException e) {
+            dirty = true;
+            System.err.println("Could not reconcile the reservation repository: " + e.getMessage());
+        }
+    }
+
+    private void reconcile() {
+        repository.reconcile(LocalDateTime.now(), List.of(manager.getAllReservations()));
+        dirty = false;
+    }
+
+    // Stop following the manager; changes already handed to the writer are still written
+    @Override
+    public void close() {
+        manager.removeReservationListener(this);
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,87 @@
+package repository;
+/*
+ * This interface is the storage SPI under the service layer. ReservationManager keeps the working set
+ * (the bookings that can still change) in its in-heap ReservationStore; a repository is the long-term
+ * home of every reservation, including months of past ones that do not need to stay in heap.
+ * Reservations are open until they are closed with an outcome (completed, cancelled, no-show); closed
+ * ones are kept as history, only a removal without an outcome (an undo) deletes a reservation.
+ * Implementations must be thread-safe. Saving a reservation whose id already exists replaces it.
+ */
+import history.ArchivedReservation;
+import model.Reservation;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ReservationRepository extends AutoCloseable {
+
+    // Delete the given ids, then save (insert or replace) the given open reservations and the closed
+    // ones with their outcome and closing time, as one unit
+    void apply(long[] deletedIds, Collection<Reservation> saved, Collection<ArchivedReservation> closed);
+
+    default void apply(long[] deletedIds, Collection<Reservation> saved) {
+        apply(deletedIds, saved, List.of());
+    }
+
+    default void save(Reservation res) {
+        apply(new long[0], List.of(res));
+    }
+
+    default void delete(long id) {
+        apply(new long[] {id}, List.of());
+    }
+
+    /*
+     * Make the repository agree with the manager's working set after notifications were lost: every
+     * open reservation that ends after `now` but is not in `active` is deleted (how it ended was lost
+     * with the notifications), and all of `active` is saved. Closed reservations and ones that ended
+     * before `now` are history and are kept.
+     */
+    void reconcile(LocalDateTime now, Collection<Reservation> active);
+
+    // The lookups below return open and closed reservations alike
+    Reservation findById(long id);
+
+    // Bookings of one table that overlap [from, to), ordered by time
+    List<Reservation> findByTable(int tableNo, LocalDateTime from, LocalDateTime to);
+
+    // Bookings made with this phone number (compared on digits only), ordered by id
+    List<Reservation> findByPhone(String phone);
+
+    // Stream the bookings that overlap [from, to) in time order, without loading them all at once
+    void forEachBetween(LocalDateTime from, LocalDateTime to, Consumer<Reservation> action);
+
+    // Stream the open reservations that end after `from` in time order: the working set to load on startup
+    void forEachOpen(LocalDateTime from, Consumer<Reservation> action);
+
+    long count();
+
+    @Override
+    void close();
+
+    // Minutes since 1970-01-01T00:00 (wall-clock time, no zone), the time unit repositories index on
+    static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime fromEpochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    // Phone numbers are compared on their digits only, as in ReservationStore
+    static String phoneKey(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -0,0 +1,280 @@
+package server;
+/*
+ * This class writes the JSON responses of the HTTP API and reads the flat JSON objects it accepts as
+ * request bodies (string, number, boolean and null values). It is hand-written so the server needs
+ * nothing beyond the JDK.
+ */
+import model.AbstractTable;
+import model.Reservation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Json {
+
+    private Json() {
+    }
+
+    // --- Writing ---
+
+    public static String reservation(Reservation res) {
+        StringBuilder out = new StringBuilder(160);
+        appendReservation(out, res);
+        return out.toString();
+    }
+
+    public static String reservations(Reservation[] reservations) {
+        StringBuilder out = new StringBuilder(2 + reservations.length * 160);
+        out.append('[');
+        for (int i = 0; i < reservations.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendReservation(out, reservations[i]);
+        }
+        return out.append(']').toString();
+    }
+
+    public static String tables(AbstractTable[] tables) {
+        StringBuilder out = new StringBuilder(2 + tables.length * 80);
+        out.append('[');
+        for (int i = 0; i < tables.length; i++) {
+            AbstractTable table = tables[i];
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"tableNumber\":").append(table.getTableNumber())
+               .append(",\"type\":\"").append(table.getType())
+               .append("\",\"capacity\":").append(table.getCapacity())
+               .append(",\"reserved\":").append(table.isReserved())
+               .append('}');
+        }
+        return out.append(']').toString();
+    }
+
+    public static String locations(Map<String, LocationSummary> locations) {
+        StringBuilder out = new StringBuilder(2 + locations.size() * 100);
+        out.append('[');
+        for (Map.Entry<String, LocationSummary> location : locations.entrySet()) {
+            LocationSummary summary = location.getValue();
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            out.append("{\"restaurantId\":");
+            appendString(out, location.getKey());
+            out.append(",\"tables\":").append(summary.tables())
+               .append(",\"reservedTables\":").append(summary.reservedTables())
+               .append(",\"activeReservations\":").append(summary.activeReservations())
+               .append('}');
+        }
+        return out.append(']').toString();
+    }
+
+    public static String error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        appendString(out, message == null ? "" : message);
+        return out.append('}').toString();
+    }
+
+    private static void appendReservation(StringBuilder out, Reservation res) {
+        out.append("{\"id\":").append(res.id())
+           .append(",\"tableNumber\":").append(res.tableNumber())
+           .append(",\"customerName\":");
+        appendString(out, res.customerName());
+        out.append(",\"customerPhone\":");
+        appendString(out, res.customerPhone());
+        out.append(",\"reservationTime\":\"").append(res.reservationTime())
+           .append("\",\"partySize\":").append(res.partySize())
+           .append(",\"durationMinutes\":").append(res.durationMinutes())
+           .append('}');
+    }
+
+    public static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    // --- Reading ---
+
+    /*
+     * Parse a flat JSON object into field -> value, where a value is a String, a Long or Double,
+     * a Boolean or null. Nested objects and arrays are rejected.
+     */
+    public static Map<String, Object> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> fields = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected text after the JSON object");
+        }
+        return fields;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return fields;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                fields.put(name, value());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return fields;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return number();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            throw error("Unsupported JSON value");
+        }
+
+        private Object number() {
+            int start = pos;
+            boolean decimal = false;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    decimal = true;
+                } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                    break;
+                }
+                pos++;
+            }
+            String digits = text.substring(start, pos);
+            try {
+                return decimal ? (Object) Double.parseDouble(digits) : (Object) Long.parseLong(digits);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + digits);
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> out.append(escaped);
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("Truncated unicode escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("Invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("Unexpected end of JSON");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + ".");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package server;
+/*
+ * This record is one line of the cross-location report served at GET /locations.
+ */
+import model.AbstractTable;
+import service.ReservationService;
+
+public record LocationSummary(int tables, int reservedTables, int activeReservations) {
+
+    public static LocationSummary of(ReservationService service) {
+        AbstractTable[] tables = service.getAllTables();
+        int reserved = 0;
+        for (AbstractTable table : tables) {
+            if (table.isReserved()) {
+                reserved++;
+            }
+        }
+        return new LocationSummary(tables.length, reserved, service.reservationCount());
+    }
+}
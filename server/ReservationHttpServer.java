@@ -0,0 +1,429 @@
+package server;
+/*
+ * This class exposes the ReservationService over HTTP/JSON using the JDK's built-in HttpServer, so the
+ * online booking widget and kiosk tablets can book without the Swing client. Every request runs on its
+ * own virtual thread, so a request waiting on a table lock or a journal fsync does not hold a platform
+ * thread and thousands of requests can be in flight on one node.
+ *
+ *   GET    /tables[?type=BOOTH&minCapacity=4&reserved=false]   tables, optionally filtered
+ *   GET    /tables/{no}/reservations                           bookings of one table, by time
+ *   GET    /tables/{no}/availability?time=2030-01-01T19:00     whether a seating fits at that time
+ *   GET    /availability?time=...&until=...&partySize=4        tables that seat the party and are free
+ *   GET    /reservations[?phone=...]                           all reservations, or one customer's
+ *   GET    /reservations?search=sha[&limit=20]                 customers whose name or phone starts with it
+ *   GET    /reservations/{id}
+ *   POST   /reservations                                       book; without tableNumber a table is assigned
+ *                                                               ("combine": true joins tables, answers an array)
+ *   DELETE /reservations/{id}[?outcome=completed|no_show]      cancel (complete, release) a booking, it is archived
+ *   GET    /metrics                                            plain-text metrics dump (when metrics are given)
+ *   GET    /reports?from=...&to=...[&chain=true]               plain-text occupancy report (when analytics are given)
+ *   GET    /locations                                          every location of a chain with its current load
+ *          /locations/{id}/tables|availability|reservations... the paths above for one location (and reports)
+ */
+import analytics.OccupancyReport;
+import analytics.ReservationAnalytics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import model.ReservationOutcome;
+import model.TableType;
+import metrics.ReservationMetrics;
+import service.ReservationRouter;
+import service.ReservationService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ReservationHttpServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    // Pending connections the OS queues while all accept slots are busy
+    private static final int BACKLOG = 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Occupancy reports of the locations, or null
+    private final ReservationAnalytics analytics;
+
+    public ReservationHttpServer(ReservationService service, int port) throws IOException {
+        this(service, port, null);
+    }
+
+    // With metrics, GET /metrics serves ReservationMetrics.dump()
+    public ReservationHttpServer(ReservationService service, int port, ReservationMetrics metrics) throws IOException {
+        this(service, null, null, port, metrics, null);
+    }
+
+    /*
+     * Serve every location of a chain under /locations/{restaurantId}/..., e.g.
+     * /locations/dublin/reservations; the unprefixed paths go to the default location.
+     */
+    public ReservationHttpServer(ReservationRouter router, String defaultLocation, int port, ReservationMetrics metrics) throws IOException {
+        this(router, defaultLocation, port, metrics, null);
+    }
+
+    // With analytics over the same locations, GET /reports serves occupancy reports
+    public ReservationHttpServer(ReservationRouter router, String defaultLocation, int port, ReservationMetrics metrics,
+            ReservationAnalytics analytics) throws IOException {
+        this(router.location(defaultLocation), router, defaultLocation, port, metrics, analytics);
+    }
+
+    private ReservationHttpServer(ReservationService service, ReservationRouter router, String defaultLocation, int port,
+            ReservationMetrics metrics, ReservationAnalytics analytics) throws IOException {
+        this.analytics = analytics;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tables", exchange -> handle(exchange, () -> tables(service, exchange, pathSegments(exchange))));
+        server.createContext("/availability", exchange -> handle(exchange, () -> availability(service, exchange)));
+        server.createContext("/reservations", exchange -> handle(exchange, () -> reservations(service, exchange, pathSegments(exchange))));
+        if (metrics != null) {
+            server.createContext("/metrics", exchange -> handle(exchange, () -> {
+                requireMethod(exchange, "GET");
+                return new Response(200, metrics.dump(), "text/plain; charset=utf-8");
+            }));
+        }
+        if (analytics != null) {
+            server.createContext("/reports", exchange -> handle(exchange, () -> report(defaultLocation, exchange)));
+        }
+        if (router != null) {
+            server.createContext("/locations", exchange -> handle(exchange, () -> locations(router, exchange)));
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // The port actually bound, useful when the server was created with port 0
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // --- Handlers ---
+
+    // Route /locations/{id}/<tables|availability|reservations>/... to that location's service
+    private Response locations(ReservationRouter router, HttpExchange exchange) throws Exception {
+        String[] path = pathSegments(exchange);
+        if (path.length == 1) {
+            requireMethod(exchange, "GET");
+            return ok(Json.locations(router.acrossLocations(LocationSummary::of)));
+        }
+        if (!router.hasLocation(path[1]) || path.length == 2) {
+            return notFound();
+        }
+        ReservationService service = router.location(path[1]);
+        String[] rest = Arrays.copyOfRange(path, 2, path.length);
+        return switch (rest[0]) {
+            case "tables" -> tables(service, exchange, rest);
+            case "availability" -> rest.length == 1 ? availability(service, exchange) : notFound();
+            case "reservations" -> reservations(service, exchange, rest);
+            case "reports" -> rest.length == 1 && analytics != null ? report(path[1], exchange) : notFound();
+            default -> notFound();
+        };
+    }
+
+    // An occupancy report of one location, or of the whole chain with chain=true
+    private Response report(String location, HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        LocalDateTime from = parseTime(required(query, "from"));
+        LocalDateTime to = parseTime(required(query, "to"));
+        OccupancyReport report = Boolean.parseBoolean(query.get("chain"))
+                ? analytics.chainReport(from, to)
+                : analytics.report(location, from, to);
+        return new Response(200, report.toText(), "text/plain; charset=utf-8");
+    }
+
+    private Response tables(ReservationService service, HttpExchange exchange, String[] path) {
+        Map<String, String> query = query(exchange);
+        requireMethod(exchange, "GET");
+        if (path.length == 1) {
+            return ok(Json.tables(filterTables(service, query)));
+        }
+        int tableNo = parseInt(path[1], "table number");
+        if (path.length == 3 && path[2].equals("reservations")) {
+            return ok(Json.reservations(service.getReservationsForTable(tableNo)));
+        }
+        if (path.length == 3 && path[2].equals("availability")) {
+            LocalDateTime time = parseTime(required(query, "time"));
+            return ok("{\"tableNumber\":" + tableNo + ",\"time\":\"" + time
+                    + "\",\"available\":" + service.isTableAvailable(tableNo, time) + "}");
+        }
+        return notFound();
+    }
+
+    private Response availability(ReservationService service, HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        LocalDateTime time = parseTime(required(query, "time"));
+        LocalDateTime until = query.containsKey("until") ? parseTime(query.get("until"))
+                : time.plusMinutes(Reservation.DEFAULT_DURATION_MINUTES);
+        int partySize = query.containsKey("partySize") ? parseInt(query.get("partySize"), "partySize") : 1;
+        TableType type = query.containsKey("type") ? parseType(query.get("type")) : null;
+        AbstractTable[] free = service.findAvailableTables(time, until, partySize, type);
+        return ok(Json.tables(free));
+    }
+
+    private Response reservations(ReservationService service, HttpExchange exchange, String[] path) throws Exception {
+        String method = exchange.getRequestMethod();
+        if (path.length == 1) {
+            if (method.equals("POST")) {
+                Map<String, Object> body = Json.parseObject(readBody(exchange));
+                Reservation[] booked = book(service, body);
+                return new Response(201, combine(body) ? Json.reservations(booked) : Json.reservation(booked[0]));
+            }
+            requireMethod(exchange, "GET");
+            Map<String, String> query = query(exchange);
+            String phone = query.get("phone");
+            String search = query.get("search");
+            Reservation[] found;
+            if (search != null) {
+                int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_SEARCH_LIMIT;
+                found = service.searchCustomers(search, limit);
+            } else {
+                found = phone == null ? service.getAllReservations() : service.getReservationsByPhone(phone);
+            }
+            return ok(Json.reservations(found));
+        }
+        if (path.length != 2) {
+            return notFound();
+        }
+        long id = parseLong(path[1], "reservation id");
+        Reservation res;
+        if (method.equals("DELETE")) {
+            String outcome = query(exchange).get("outcome");
+            res = switch (outcome == null ? ReservationOutcome.CANCELLED : parseOutcome(outcome)) {
+                case CANCELLED -> service.cancelReservation(id);
+                case COMPLETED -> service.completeReservation(id);
+                case NO_SHOW -> service.releaseNoShow(id);
+            };
+        } else {
+            requireMethod(exchange, "GET");
+            res = service.getReservationById(id);
+        }
+        return res == null ? notFound() : ok(Json.reservation(res));
+    }
+
+    // Book from a JSON body; without a tableNumber the best fitting free table (or joinable group) is assigned
+    private Reservation[] book(ReservationService service, Map<String, Object> body) throws TableNotAvailableExeception {
+        String name = stringField(body, "customerName");
+        String phone = stringField(body, "customerPhone");
+        LocalDateTime time = parseTime(stringField(body, "reservationTime"));
+        if (time.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Reservation time must be in the future.");
+        }
+        int partySize = intField(body, "partySize", 0);
+        int duration = intField(body, "durationMinutes", Reservation.DEFAULT_DURATION_MINUTES);
+        if (body.get("tableNumber") == null) {
+            if (combine(body)) {
+                return service.assignTables(name, phone, partySize, time, duration);
+            }
+            Object preference = body.get("preference");
+            TableType type = preference == null ? null : parseType(preference.toString());
+            return new Reservation[] {service.assignTable(name, phone, partySize, time, duration, type)};
+        }
+        int tableNo = intField(body, "tableNumber", 0);
+        return new Reservation[] {service.addReservation(tableNo, new Reservation(name, phone, time, tableNo, partySize, duration))};
+    }
+
+    private static boolean combine(Map<String, Object> body) {
+        return Boolean.TRUE.equals(body.get("combine"));
+    }
+
+    private AbstractTable[] filterTables(ReservationService service, Map<String, String> query) {
+        TableType type = query.containsKey("type") ? parseType(query.get("type")) : null;
+        int minCapacity = query.containsKey("minCapacity") ? parseInt(query.get("minCapacity"), "minCapacity") : 0;
+        String reserved = query.get("reserved");
+        List<AbstractTable> result = new ArrayList<>();
+        for (AbstractTable table : service.getAllTables()) {
+            if ((type == null || table.getType() == type) && table.getCapacity() >= minCapacity
+                    && (reserved == null || table.isReserved() == Boolean.parseBoolean(reserved))) {
+                result.add(table);
+            }
+        }
+        return result.toArray(new AbstractTable[0]);
+    }
+
+    // --- Request / response plumbing ---
+
+    private record Response(int status, String body, String contentType) {
+        Response(int status, String body) {
+            this(status, body, "application/json; charset=utf-8");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Response handle() throws Exception;
+    }
+
+    private static Response ok(String body) {
+        return new Response(200, body);
+    }
+
+    private static Response notFound() {
+        return new Response(404, Json.error("Not found."));
+    }
+
+    // Map service exceptions to status codes: 400 bad input, 405 wrong method, 409 booking conflict
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (MethodNotAllowed e) {
+            response = new Response(405, Json.error("Method not allowed."));
+        } catch (TableNotAvailableExeception e) {
+            response = new Response(409, Json.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, Json.error(e.getMessage()));
+        } catch (Exception e) {
+            response = new Response(500, Json.error("Internal error: " + e.getMessage()));
+        }
+        byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class MethodNotAllowed extends RuntimeException {
+        MethodNotAllowed() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new MethodNotAllowed();
+        }
+    }
+
+    // "/reservations/12" -> ["reservations", "12"]
+    private static String[] pathSegments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is too large.");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter '" + name + "'.");
+        }
+        return value;
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String text)) {
+            throw new IllegalArgumentException("Field '" + name + "' must be a string.");
+        }
+        return text;
+    }
+
+    private static int intField(Map<String, Object> body, String name, int defaultValue) {
+        Object value = body.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long number) || number != number.intValue()) {
+            throw new IllegalArgumentException("Field '" + name + "' must be an integer.");
+        }
+        return number.intValue();
+    }
+
+    private static int parseInt(String text, String what) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + text);
+        }
+    }
+
+    private static long parseLong(String text, String what) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + text);
+        }
+    }
+
+    private static LocalDateTime parseTime(String text) {
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time '" + text + "', use YYYY-MM-DDTHH:MM.");
+        }
+    }
+
+    private static TableType parseType(String text) {
+        try {
+            return TableType.valueOf(text.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown table type: " + text);
+        }
+    }
+
+    private static ReservationOutcome parseOutcome(String text) {
+        try {
+            return ReservationOutcome.valueOf(text.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown outcome: " + text);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package service;
+/*
+ * This class keeps the clock for every upcoming reservation, so tables of parties that never come go
+ * back into circulation without the host clearing them. Each reservation has one timer on a
+ * TimingWheel, re-armed from stage to stage: ARRIVING_SOON a heads-up before the party is due, LATE a
+ * little after the start, and NO_SHOW once the grace period is over, when the reservation is released
+ * as a no-show and its table can be booked again. Marking the party as arrived cancels its timer.
+ *
+ * Reservations are followed through the reservation events, so there is no thread per reservation and
+ * no periodic scan of the book: the current reservations are read once when monitoring starts (and
+ * again only if the event bus dropped events). A reservation that has already started when it is
+ * booked or when monitoring starts (a walk-in, or a party that may be seated already after a restart)
+ * counts as arrived; only parties watched from before their start time are ever released.
+ */
+import model.Reservation;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+public class ArrivalMonitor implements ReservationListener, AutoCloseable {
+
+    public static final Duration DEFAULT_HEADS_UP = Duration.ofMinutes(15);
+    public static final Duration DEFAULT_LATE_AFTER = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_GRACE = Duration.ofMinutes(15);
+
+    // One-second ticks, about 68 minutes per turn of the wheel
+    private static final Duration TICK = Duration.ofSeconds(1);
+    private static final int WHEEL_SIZE = 4096;
+
+    // The stages of a reservation, in the order they fire
+    public enum Alert {
+        ARRIVING_SOON,
+        LATE,
+        NO_SHOW;
+    }
+
+    private static final Alert[] STAGES = Alert.values();
+
+    // The timer of one watched reservation and the stage it fires next
+    private static final class Watch {
+        final Reservation res;
+        Alert next;
+        TimingWheel.Timeout timeout;
+
+        Watch(Reservation res) {
+            this.res = res;
+        }
+    }
+
+    private final ReservationService service;
+    private final Duration headsUp;
+    private final Duration lateAfter;
+    private final Duration grace;
+    // Events and expired timers are handled on this one thread, in order
+    private final ExecutorService alerts;
+    private final TimingWheel wheel;
+    private final Map<Long, Watch> watched = new HashMap<>();
+    // Parties marked as arrived whose reservation is still in the book
+    private final Set<Long> arrived = new HashSet<>();
+    private final List<BiConsumer<Alert, Reservation>> alertListeners = new CopyOnWriteArrayList<>();
+
+    private ArrivalMonitor(ReservationService service, Duration headsUp, Duration lateAfter, Duration grace) {
+        this.service = service;
+        this.headsUp = headsUp;
+        this.lateAfter = lateAfter;
+        this.grace = grace;
+        this.alerts = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("arrival-monitor").daemon().factory());
+        this.wheel = new TimingWheel(TICK, WHEEL_SIZE, "arrival-timer", alerts);
+    }
+
+    // Watch the service's reservations with the default heads-up, lateness and grace period
+    public static ArrivalMonitor attach(ReservationService service) {
+        return attach(service, DEFAULT_HEADS_UP, DEFAULT_LATE_AFTER, DEFAULT_GRACE);
+    }
+
+    public static ArrivalMonitor attach(ReservationService service, Duration headsUp, Duration lateAfter, Duration grace) {
+        if (headsUp.isNegative() || lateAfter.isNegative()) {
+            throw new IllegalArgumentException("Alert times cannot be negative.");
+        }
+        if (grace.compareTo(lateAfter) <= 0) {
+            throw new IllegalArgumentException("The grace period must be longer than the time until a party counts as late.");
+        }
+        ArrivalMonitor monitor = new ArrivalMonitor(service, headsUp, lateAfter, grace);
+        service.addReservationListener(monitor, monitor.alerts);
+        monitor.alerts.execute(monitor::watchAll);
+        return monitor;
+    }
+
+    // Called on the monitor thread with the stage and the reservation (already released for NO_SHOW)
+    public void addAlertListener(BiConsumer<Alert, Reservation> listener) {
+        alertListeners.add(listener);
+    }
+
+    public void removeAlertListener(BiConsumer<Alert, Reservation> listener) {
+        alertListeners.remove(listener);
+    }
+
+    // --- The host's side ---
+
+    // The party is here: its table is never released; returns whether a timer was still pending
+    public synchronized boolean arrived(long id) {
+        arrived.add(id);
+        Watch watch = watched.remove(id);
+        if (watch == null) {
+            return false;
+        }
+        watch.timeout.cancel();
+        return true;
+    }
+
+    // Number of reservations with a pending timer
+    public synchronized int watching() {
+        return watched.size();
+    }
+
+    // --- Following the book, on the monitor thread ---
+
+    @Override
+    public void reservationChanged(ReservationEvent event) {
+        Reservation res = event.reservation();
+        if (event.type() == ReservationEvent.Type.REMOVED) {
+            forget(res.id());
+        } else {
+            // an update keeps the id, watch() replaces the timer of the old version
+            watch(res, LocalDateTime.now());
+        }
+    }
+
+    // Events were dropped: read the book once more, timers of removed reservations drop out when they fire
+    @Override
+    public void eventsLost() {
+        watchAll();
+    }
+
+    private void watchAll() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Reservation res : service.getAllReservations()) {
+            watch(res, now);
+        }
+    }
+
+    // Start (or restart, if the reservation changed) the timer of a reservation that has not started yet
+    private synchronized void watch(Reservation res, LocalDateTime now) {
+        Watch existing = watched.get(res.id());
+        if (existing != null) {
+            if (existing.res.equals(res)) {
+                return;
+            }
+            existing.timeout.cancel();
+            watched.remove(res.id());
+        }
+        if (arrived.contains(res.id()) || !res.reservationTime().isAfter(now)) {
+            return;
+        }
+        Watch watch = new Watch(res);
+        watched.put(res.id(), watch);
+        arm(watch, 0, now);
+    }
+
+    private synchronized void forget(long id) {
+        arrived.remove(id);
+        Watch watch = watched.remove(id);
+        if (watch != null) {
+            watch.timeout.cancel();
+        }
+    }
+
+    // Schedule the first stage from `from` on that is still ahead (a no-show is always released),
+    // caller holds the monitor
+    private void arm(Watch watch, int from, LocalDateTime now) {
+        for (int i = from; i < STAGES.length; i++) {
+            LocalDateTime due = dueAt(STAGES[i], watch.res);
+            if (due.isAfter(now) || STAGES[i] == Alert.NO_SHOW) {
+                watch.next = STAGES[i];
+                watch.timeout = wheel.schedule(() -> fire(watch), Duration.between(now, due).toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+    }
+
+    private LocalDateTime dueAt(Alert stage, Reservation res) {
+        return switch (stage) {
+            case ARRIVING_SOON -> res.reservationTime().minus(headsUp);
+            case LATE -> res.reservationTime().plus(lateAfter);
+            case NO_SHOW -> res.reservationTime().plus(grace);
+        };
+    }
+
+    // A timer expired: tell the listeners, and release the table once the grace period is over
+    private void fire(Watch watch) {
+        long id = watch.res.id();
+        Alert stage;
+        synchronized (this) {
+            if (watched.get(id) != watch) {
+                return; // arrived, removed or changed meanwhile
+            }
+            stage = watch.next;
+        }
+        Reservation current = service.getReservationById(id);
+        if (!watch.res.equals(current)) {
+            // the change was among dropped events: follow the book
+            synchronized (this) {
+                watched.remove(id, watch);
+            }
+            if (current != null) {
+                watch(current, LocalDateTime.now());
+            }
+            return;
+        }
+        Reservation subject = watch.res;
+        synchronized (this) {
+            if (watched.get(id) != watch) {
+                return; // the host marked the party as arrived just now
+            }
+            if (stage == Alert.NO_SHOW) {
+                watched.remove(id);
+            } else {
+                arm(watch, stage.ordinal() + 1, LocalDateTime.now());
+            }
+        }
+        if (stage == Alert.NO_SHOW) {
+            subject = service.releaseNoShow(id);
+            if (subject == null) {
+                return;
+            }
+        }
+        for (BiConsumer<Alert, Reservation> listener : alertListeners) {
+            listener.accept(stage, subject);
+        }
+    }
+
+    // Stop watching; pending timers are dropped and no table is released any more
+    @Override
+    public void close() {
+        service.removeReservationListener(this);
+        wheel.close();
+        alerts.shutdown();
+    }
+}
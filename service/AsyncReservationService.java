@@ -0,0 +1,105 @@
+package service;
+/*
+ * This class runs reservation service calls on virtual threads and returns CompletableFutures, so a
+ * caller such as the Swing Event Dispatch Thread never waits for locks, journal fsyncs or a remote
+ * backend. A checked TableNotAvailableExeception completes the future exceptionally; use cause() to
+ * get it back from the CompletionException.
+ */
+import model.Reservation;
+import model.TableType;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AsyncReservationService implements AutoCloseable {
+
+    private final ReservationService service;
+    private final ExecutorService executor;
+
+    public AsyncReservationService(ReservationService service) {
+        this(service, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public AsyncReservationService(ReservationService service, ExecutorService executor) {
+        this.service = service;
+        this.executor = executor;
+    }
+
+    // The wrapped service, for synchronous reads of in-memory state
+    public ReservationService service() {
+        return service;
+    }
+
+    public CompletableFuture<Reservation> addReservation(int tableNo, Reservation res) {
+        return call(() -> service.addReservation(tableNo, res));
+    }
+
+    public CompletableFuture<Reservation> assignTable(String name, String phone, int partySize,
+            LocalDateTime dateTime, int durationMinutes, TableType preference) {
+        return call(() -> service.assignTable(name, phone, partySize, dateTime, durationMinutes, preference));
+    }
+
+    public CompletableFuture<Reservation[]> assignTables(String name, String phone, int partySize,
+            LocalDateTime dateTime, int durationMinutes) {
+        return call(() -> service.assignTables(name, phone, partySize, dateTime, durationMinutes));
+    }
+
+    public CompletableFuture<Reservation> updateReservation(long id, Reservation updated) {
+        return call(() -> service.updateReservation(id, updated));
+    }
+
+    public CompletableFuture<Reservation> getReservationByTableNumber(int tableNo) {
+        return call(() -> service.getReservationByTableNumber(tableNo));
+    }
+
+    public CompletableFuture<Reservation[]> getReservationsForTable(int tableNo) {
+        return call(() -> service.getReservationsForTable(tableNo));
+    }
+
+    public CompletableFuture<Reservation[]> searchCustomers(String query, int limit) {
+        return call(() -> service.searchCustomers(query, limit));
+    }
+
+    public CompletableFuture<Reservation> completeReservation(long id) {
+        return call(() -> service.completeReservation(id));
+    }
+
+    public CompletableFuture<Reservation> cancelReservation(long id) {
+        return call(() -> service.cancelReservation(id));
+    }
+
+    public CompletableFuture<Reservation> releaseNoShow(long id) {
+        return call(() -> service.releaseNoShow(id));
+    }
+
+    private <T> CompletableFuture<T> call(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // The exception thrown by the service call, without the CompletableFuture wrapper
+    public static Throwable cause(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    // Stop accepting calls; calls already running are allowed to finish
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,175 @@
+package service;
+/*
+ * This class keeps a per-day occupancy bitmap of every table so that "which tables for 4 are free on
+ * Saturday from 18:00 to 21:00" is answered with a few bitwise ANDs instead of walking the schedules.
+ * A day is cut into 96 quarter-hour slots, stored as two longs per table (slots 0-63 and 64-95) in one
+ * array per day; a slot is set when any booking touches it, so a table reported free really is free
+ * (bookings that do not start or end on a quarter hour can hide a table for the rest of that slot).
+ * Tables are grouped by capacity and TableType, so a search skips groups that cannot seat the party.
+ *
+ * Writers rebuild the bits of one table from its schedule while holding that table's lock; readers
+ * take no lock.
+ */
+import model.AbstractTable;
+import model.Reservation;
+import model.TableType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class AvailabilityIndex {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    // Tables of one capacity and type, with their position in the day arrays
+    private record Group(int capacity, TableType type, AbstractTable[] tables, int[] slots) {
+    }
+
+    private final Group[] groups;              // by capacity, then type
+    private final IntHashMap<Integer> slotByTable;
+    private final int tableCount;
+    // epoch day -> 2 words per table
+    private final Map<Long, AtomicLongArray> days = new ConcurrentHashMap<>();
+
+    public AvailabilityIndex(AbstractTable[] tables) {
+        this.tableCount = tables.length;
+        this.slotByTable = new IntHashMap<>();
+        TreeMap<Integer, Map<TableType, List<Integer>>> grouped = new TreeMap<>();
+        for (int i = 0; i < tables.length; i++) {
+            slotByTable.put(tables[i].getTableNumber(), i);
+            grouped.computeIfAbsent(tables[i].getCapacity(), c -> new TreeMap<>())
+                   .computeIfAbsent(tables[i].getType(), t -> new ArrayList<>()).add(i);
+        }
+        List<Group> list = new ArrayList<>();
+        grouped.forEach((capacity, byType) -> byType.forEach((type, positions) -> {
+            AbstractTable[] members = new AbstractTable[positions.size()];
+            int[] slots = new int[positions.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = positions.get(i);
+                members[i] = tables[slots[i]];
+            }
+            list.add(new Group(capacity, type, members, slots));
+        }));
+        this.groups = list.toArray(new Group[0]);
+    }
+
+    /*
+     * Recompute the bits of one table for every day touched by the changed booking. Bookings never
+     * overlap, but two of them can share a partly used slot, so the bits are rebuilt from the
+     * schedule rather than cleared for the removed booking only. Caller holds the table's lock.
+     */
+    public void refresh(int tableNo, TableSchedule schedule, Reservation changed) {
+        Integer slot = slotByTable.get(tableNo);
+        if (slot == null) {
+            return;
+        }
+        long start = TableSchedule.toEpochMinute(changed.reservationTime());
+        long end = start + changed.durationMinutes();
+        long firstDay = Math.floorDiv(start, MINUTES_PER_DAY);
+        long lastDay = Math.floorDiv(end - 1, MINUTES_PER_DAY);
+        for (long day = firstDay; day <= lastDay; day++) {
+            long dayStart = day * MINUTES_PER_DAY;
+            long[] bits = new long[2];
+            schedule.forEachOverlapping(dayStart, dayStart + MINUTES_PER_DAY, (res, bookingStart) -> {
+                long from = Math.max(bookingStart, dayStart) - dayStart;
+                long to = Math.min(bookingStart + res.durationMinutes(), dayStart + MINUTES_PER_DAY) - dayStart;
+                setSlots(bits, (int) (from / SLOT_MINUTES), (int) ((to + SLOT_MINUTES - 1) / SLOT_MINUTES));
+            });
+            AtomicLongArray words = days.get(day);
+            if (words == null) {
+                if (bits[0] == 0 && bits[1] == 0) {
+                    continue;
+                }
+                words = days.computeIfAbsent(day, d -> new AtomicLongArray(2 * tableCount));
+            }
+            words.set(2 * slot, bits[0]);
+            words.set(2 * slot + 1, bits[1]);
+        }
+    }
+
+    /*
+     * Tables seating at least partySize (of the given type, or any type when null) that have no
+     * booking between from and to, smallest capacity first.
+     */
+    public List<AbstractTable> findFree(LocalDateTime from, LocalDateTime to, int partySize, TableType type) {
+        long start = TableSchedule.toEpochMinute(from);
+        long end = TableSchedule.toEpochMinute(to);
+        if (end <= start) {
+            throw new IllegalArgumentException("The end of the search range must be after its start.");
+        }
+        // per day of the range, the slots asked for
+        long firstDay = Math.floorDiv(start, MINUTES_PER_DAY);
+        long lastDay = Math.floorDiv(end - 1, MINUTES_PER_DAY);
+        int dayCount = (int) (lastDay - firstDay + 1);
+        AtomicLongArray[] dayWords = new AtomicLongArray[dayCount];
+        long[] masks = new long[2 * dayCount];
+        boolean anyBooked = false;
+        for (int d = 0; d < dayCount; d++) {
+            long dayStart = (firstDay + d) * MINUTES_PER_DAY;
+            dayWords[d] = days.get(firstDay + d);
+            anyBooked |= dayWords[d] != null;
+            long fromMin = Math.max(start, dayStart) - dayStart;
+            long toMin = Math.min(end, dayStart + MINUTES_PER_DAY) - dayStart;
+            long[] mask = new long[2];
+            setSlots(mask, (int) (fromMin / SLOT_MINUTES), (int) ((toMin + SLOT_MINUTES - 1) / SLOT_MINUTES));
+            masks[2 * d] = mask[0];
+            masks[2 * d + 1] = mask[1];
+        }
+
+        List<AbstractTable> free = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.capacity() < partySize || (type != null && group.type() != type)) {
+                continue;
+            }
+            int[] slots = group.slots();
+            if (!anyBooked) {
+                free.addAll(List.of(group.tables()));
+                continue;
+            }
+            for (int i = 0; i < slots.length; i++) {
+                if (isFree(dayWords, masks, slots[i])) {
+                    free.add(group.tables()[i]);
+                }
+            }
+        }
+        if (type == null) {
+            // smallest capacity first, then by table number
+            free.sort((a, b) -> a.getCapacity() != b.getCapacity()
+                    ? Integer.compare(a.getCapacity(), b.getCapacity())
+                    : Integer.compare(a.getTableNumber(), b.getTableNumber()));
+        }
+        return free;
+    }
+
+    private static boolean isFree(AtomicLongArray[] dayWords, long[] masks, int slot) {
+        for (int d = 0; d < dayWords.length; d++) {
+            AtomicLongArray words = dayWords[d];
+            if (words != null && ((words.get(2 * slot) & masks[2 * d]) != 0
+                    || (words.get(2 * slot + 1) & masks[2 * d + 1]) != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Set slots [from, to) of a day in a two-word bitmap
+    private static void setSlots(long[] bits, int from, int to) {
+        bits[0] |= rangeMask(from, Math.min(to, 64));
+        bits[1] |= rangeMask(Math.max(from, 64) - 64, to - 64);
+    }
+
+    // Bits [from, to) of one word
+    private static long rangeMask(int from, int to) {
+        if (from >= to) {
+            return 0L;
+        }
+        long upper = to >= 64 ? -1L : (1L << to) - 1;
+        return upper & (-1L << from);
+    }
+}
@@ -0,0 +1,116 @@
+package service;
+/*
+ * This class is the customer lookup behind the host's search field ("I booked under Sharma").
+ * Names and phone numbers are kept in sorted concurrent maps (skip lists), so a prefix search is one
+ * O(log n) seek plus a walk over the first matches, without locks, while bookings keep changing.
+ *
+ * Names are lower-cased with runs of spaces collapsed and indexed from the start of every word, so
+ * "Priya  Sharma" is found by "pri", "priya sh" and "sharma". Phone numbers are indexed by their digits
+ * (as in ReservationStore), so "087 12" finds "0871234567". Each key ends in the reservation id, which
+ * keeps customers with the same name apart.
+ */
+import model.Reservation;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class CustomerIndex {
+
+    // Sorts before every character a name or phone key can contain
+    private static final char SEPARATOR = '\u0000';
+
+    private final NavigableMap<String, Reservation> names = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Reservation> phones = new ConcurrentSkipListMap<>();
+
+    public void add(Reservation res) {
+        for (String key : nameKeys(res)) {
+            names.put(key, res);
+        }
+        String phone = ReservationStore.normalizePhone(res.customerPhone());
+        if (!phone.isEmpty()) {
+            phones.put(phone + SEPARATOR + res.id(), res);
+        }
+    }
+
+    public void remove(Reservation res) {
+        for (String key : nameKeys(res)) {
+            names.remove(key, res);
+        }
+        String phone = ReservationStore.normalizePhone(res.customerPhone());
+        if (!phone.isEmpty()) {
+            phones.remove(phone + SEPARATOR + res.id(), res);
+        }
+    }
+
+    /*
+     * Reservations whose customer name (from any word) starts with the query, or whose phone starts with
+     * it when the query has digits but no letters. At most `limit` results, ordered by the matched key.
+     */
+    public List<Reservation> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive.");
+        }
+        String prefix = isPhoneQuery(query) ? ReservationStore.normalizePhone(query) : normalizeName(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        NavigableMap<String, Reservation> index = isPhoneQuery(query) ? phones : names;
+        // a name can match from several of its words, keep each reservation once
+        Map<Long, Reservation> found = new LinkedHashMap<>();
+        for (Reservation res : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            found.putIfAbsent(res.id(), res);
+            if (found.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    private static boolean isPhoneQuery(String query) {
+        boolean digits = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isLetter(c)) {
+                return false;
+            }
+            digits |= c >= '0' && c <= '9';
+        }
+        return digits;
+    }
+
+    // One key per word of the name: the rest of the name from that word on, then the id
+    private static List<String> nameKeys(Reservation res) {
+        String name = normalizeName(res.customerName());
+        List<String> keys = new ArrayList<>(2);
+        for (int i = 0; i < name.length(); i++) {
+            if (i == 0 || name.charAt(i - 1) == ' ') {
+                keys.add(name.substring(i) + SEPARATOR + res.id());
+            }
+        }
+        return keys;
+    }
+
+    // Lower case, trimmed, single spaces between words
+    static String normalizeName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                    normalized.append(' ');
+                }
+            } else if (c != SEPARATOR) {
+                normalized.append(c);
+            }
+        }
+        int end = normalized.length();
+        if (end > 0 && normalized.charAt(end - 1) == ' ') {
+            normalized.setLength(end - 1);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+}
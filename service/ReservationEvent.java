@@ -0,0 +1,33 @@
+package service;
+/*
+ * This record describes one change to the reservation book, published to ReservationListeners.
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+
+public record ReservationEvent(Type type, Reservation reservation, Reservation previous, ReservationOutcome outcome) {
+
+    public enum Type {
+        ADDED,
+        REMOVED,
+        UPDATED;
+    }
+
+    public static ReservationEvent added(Reservation res) {
+        return new ReservationEvent(Type.ADDED, res, null, null);
+    }
+
+    // A removal without an outcome (e.g. a rolled back import) is not part of the history
+    public static ReservationEvent removed(Reservation res) {
+        return new ReservationEvent(Type.REMOVED, res, null, null);
+    }
+
+    public static ReservationEvent removed(Reservation res, ReservationOutcome outcome) {
+        return new ReservationEvent(Type.REMOVED, res, null, outcome);
+    }
+
+    // previous is the reservation as it was before the update (it may have been on another table)
+    public static ReservationEvent updated(Reservation previous, Reservation res) {
+        return new ReservationEvent(Type.UPDATED, res, previous, null);
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+/*
+ * This class is a non-blocking publish/subscribe bus for reservation changes. Publishers (the booking
+ * threads) only claim a slot in a bounded ring buffer and never wait for subscribers; one dispatcher
+ * thread drains the ring in batches and hands each batch to every subscriber on its own executor.
+ * While a subscriber's executor (e.g. the Swing EDT) is still busy with an earlier batch, new events are
+ * appended to the pending batch instead of scheduling another task, so bursts are coalesced.
+ * If the ring is full the event is dropped and subscribers are told to re-read the state (eventsLost).
+ * A subscriber whose executor refuses a batch (typically shut down right after unsubscribing) is
+ * dropped; one subscriber's failure never stops delivery to the others.
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class ReservationEventBus {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+
+    private final AtomicReferenceArray<ReservationEvent> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // next slot to claim (publishers)
+    private volatile long head;                         // next slot to read (dispatcher only)
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Thread dispatcher;
+    private volatile boolean dispatcherIdle;
+
+    public ReservationEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ReservationEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Deliver events to the listener on the dispatcher thread
+    public void subscribe(ReservationListener listener) {
+        subscribe(listener, Runnable::run);
+    }
+
+    // Deliver events to the listener through the executor, e.g. SwingUtilities::invokeLater
+    public void subscribe(ReservationListener listener, Executor executor) {
+        subscriptions.add(new Subscription(listener, executor));
+        startDispatcher();
+    }
+
+    public void unsubscribe(ReservationListener listener) {
+        subscriptions.removeIf(s -> s.listener == listener);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    // Never blocks; returns false if the ring was full and the event was dropped
+    public boolean publish(ReservationEvent event) {
+        if (subscriptions.isEmpty()) {
+            return true;
+        }
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= ring.length()) {
+                dropped.incrementAndGet();
+                wakeDispatcher();
+                return false;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        ring.lazySet((int) (seq & mask), event);
+        wakeDispatcher();
+        return true;
+    }
+
+    private void wakeDispatcher() {
+        Thread thread = dispatcher;
+        if (dispatcherIdle && thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher == null) {
+            Thread thread = new Thread(this::dispatchLoop, "reservation-event-dispatcher");
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            List<ReservationEvent> batch = drain();
+            boolean lost = dropped.getAndSet(0) > 0;
+            if (batch.isEmpty() && !lost) {
+                dispatcherIdle = true;
+                // re-check after announcing we are idle, a publisher may have missed the flag
+                if (head == tail.get() && dropped.get() == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherIdle = false;
+                continue;
+            }
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.deliver(batch, lost)) {
+                    subscriptions.remove(subscription);
+                }
+            }
+        }
+    }
+
+    // Take up to MAX_BATCH published events off the ring, in publish order
+    private List<ReservationEvent> drain() {
+        List<ReservationEvent> batch = new ArrayList<>();
+        long next = head;
+        long end = tail.get();
+        while (next < end && batch.size() < MAX_BATCH) {
+            int index = (int) (next & mask);
+            ReservationEvent event = ring.get(index);
+            if (event == null) {
+                // slot claimed but not written yet, pick it up on the next round
+                Thread.onSpinWait();
+                break;
+            }
+            ring.lazySet(index, null);
+            batch.add(event);
+            next++;
+            head = next;
+        }
+        return batch;
+    }
+
+    // One subscriber with the batch that is waiting for its executor
+    private static final class Subscription {
+        private final ReservationListener listener;
+        private final Executor executor;
+        private List<ReservationEvent> pending = new ArrayList<>();
+        private boolean lost;
+        private boolean scheduled;
+
+        Subscription(ReservationListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        // Returns false if the executor refused the batch (e.g. it was shut down), the subscription is then dead
+        boolean deliver(List<ReservationEvent> batch, boolean eventsLost) {
+            synchronized (this) {
+                pending.addAll(batch);
+                lost |= eventsLost;
+                if (scheduled) {
+                    return true; // coalesced into the batch the executor has not run yet
+                }
+                scheduled = true;
+            }
+            try {
+                executor.execute(this::run);
+                return true;
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pending = new ArrayList<>();
+                    lost = false;
+                    scheduled = false;
+                }
+                System.err.println("Dropped reservation listener " + listener + ", its executor refused events: " + e);
+                return false;
+            }
+        }
+
+        private void run() {
+            List<ReservationEvent> events;
+            boolean resync;
+            synchronized (this) {
+                events = pending;
+                resync = lost;
+                pending = new ArrayList<>();
+                lost = false;
+                scheduled = false;
+            }
+            try {
+                if (!events.isEmpty()) {
+                    listener.reservationsChanged(events);
+                }
+                if (resync) {
+                    listener.eventsLost();
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Reservation listener failed: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package service;
+/*
+ * This interface receives every reservation that leaves the book with an outcome (completed,
+ * cancelled, no-show). Unlike a ReservationListener, whose events can be dropped when the event bus
+ * falls behind, it is called on the closing thread once the close is in the journal, so a history
+ * built on it has no gaps. ReservationArchive implements it; see ReservationManager.attachHistory.
+ */
+import model.Reservation;
+import model.ReservationOutcome;
+
+import java.time.LocalDateTime;
+
+public interface ReservationHistory {
+
+    // Keep a closed reservation; failures must be handled (retried, reported) here, the close stands
+    void recordClosed(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt);
+
+    // A close replayed from the journal on startup, which may have been recorded before a crash or not;
+    // one that is already kept must not be kept twice
+    void recoverClosed(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt);
+}
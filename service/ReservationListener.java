@@ -0,0 +1,24 @@
+package service;
+/*
+ * This interface is implemented by views and other components that react to reservation changes.
+ * Events arrive through the ReservationEventBus, after the change has been applied (and journaled),
+ * never while a table lock is held and never on the booking thread.
+ */
+import java.util.List;
+
+@FunctionalInterface
+public interface ReservationListener {
+
+    void reservationChanged(ReservationEvent event);
+
+    // Called with a burst of events in publish order; override to handle the burst as a whole
+    default void reservationsChanged(List<ReservationEvent> events) {
+        for (ReservationEvent event : events) {
+            reservationChanged(event);
+        }
+    }
+
+    // Called when events were dropped because the bus was full; the listener should re-read the state
+    default void eventsLost() {
+    }
+}
@@ -1,80 +1,298 @@
 package service;
 /*
  * This class defines the operations for managing reservations and tables in the restaurant.
+ * It is safe to share between threads: each table's schedule is guarded by a striped lock keyed by
+ * table number, so bookings on different tables never wait for each other.
  */
 import model.AbstractTable;
 import model.Reservation;
+import model.ReservationOutcome;
 import exception.TableNotAvailableExeception;
+import persistence.ReservationJournal;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import model.FourSeaterTable;
 import model.TwoSeaterTable;
 import model.TableType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class ReservationManager implements ReservationService {
 
-    // --- Array Storage ---
-    private static final int MAX_TABLES = 30;
-    private static final int MAX_RESERVATIONS = 50;
-    
-    private final AbstractTable[] tables; 
-    private Reservation[] reservations;
-    
-    private int tableCount;
-    private int reservationCount;
+    // --- Indexed Storage ---
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReservationStore store;
+    private final StripedLock tableLocks;
+    private final AtomicLong lastReservationId;
+    // Rebuilt (under every table lock) when the floor plan changes
+    private volatile TableAllocator allocator;
+    private volatile AvailabilityIndex availability;
+    private volatile TableCombiner combiner;
+    // Which tables can be joined (by number), kept for rebuilding the floor plan
+    private volatile Map<Integer, ? extends Collection<Integer>> joins;
+    // Tables kept for saved bookings the loaded floor plan dropped or shrank (guarded by itself)
+    private final List<String> keptTables = new ArrayList<>();
+    private final ReservationEventBus eventBus;
+    // Write-ahead journal, null while the manager is purely in-memory (or still replaying)
+    private volatile ReservationJournal journal;
+    // Gets every closed reservation, null until one is attached
+    private volatile ReservationHistory history;
+    // Closes replayed from the journal, handed to the history once it is attached (guarded by itself)
+    private final List<ClosedReservation> replayedCloses = new ArrayList<>();
+    // Reservation id -> ids of every table of its joined-table party (one array shared by the party),
+    // written under the tables' locks; a completion, cancellation or no-show closes the whole party
+    private final Map<Long, long[]> joinedParties = new ConcurrentHashMap<>();
+
+    private record ClosedReservation(Reservation reservation, ReservationOutcome outcome, LocalDateTime closedAt) {
+    }
 
     // Constructor initializes tables and reservations
     public ReservationManager() {
-        this.tables = new AbstractTable[MAX_TABLES];
-        this.reservations = new Reservation[MAX_RESERVATIONS];
-        this.tableCount = 0;
-        this.reservationCount = 0;
-        initializeDefaultTables();
-    }
-    
-    // Initialize some default tables for the restaurant
-    private void initializeDefaultTables() {
-        tables[tableCount++] = new TwoSeaterTable(1, TableType.WINDOW);
-        tables[tableCount++] = new FourSeaterTable(2, TableType.BOOTH);
-        tables[tableCount++] = new FourSeaterTable(3, TableType.STANDARD, 6);
-        tables[tableCount++] = new TwoSeaterTable(4, TableType.STANDARD);
-        tables[tableCount++] = new TwoSeaterTable(5, TableType.WINDOW);
-        tables[tableCount++] = new TwoSeaterTable(6, TableType.WINDOW);
-        tables[tableCount++] = new TwoSeaterTable(7, TableType.STANDARD);
-        tables[tableCount++] = new TwoSeaterTable(8, TableType.OUTDOOR);
-        tables[tableCount++] = new FourSeaterTable(9, TableType.STANDARD);
-        tables[tableCount++] = new FourSeaterTable(10, TableType.STANDARD);
-        tables[tableCount++] = new FourSeaterTable(11, TableType.BOOTH);
-        tables[tableCount++] = new FourSeaterTable(12, TableType.BOOTH);
-        tables[tableCount++] = new FourSeaterTable(13, TableType.OUTDOOR);
-        tables[tableCount++] = new FourSeaterTable(14, TableType.OUTDOOR);
-        tables[tableCount++] = new FourSeaterTable(15, TableType.WINDOW);
-        tables[tableCount++] = new FourSeaterTable(16, TableType.STANDARD, 6);
-        tables[tableCount++] = new FourSeaterTable(17, TableType.STANDARD, 6);
-        tables[tableCount++] = new FourSeaterTable(18, TableType.OUTDOOR, 8);
-        tables[tableCount++] = new FourSeaterTable(19, TableType.BOOTH, 8);
-        tables[tableCount++] = new FourSeaterTable(20, TableType.STANDARD, 8); // Final Table
+        this(defaultTables());
+    }
+    
+    // Constructor for a custom floor plan
+    public ReservationManager(Collection<? extends AbstractTable> tables) {
+        this(tables, Map.of());
+    }
+    
+    // Constructor for a custom floor plan with the tables each table can be joined with (by number)
+    public ReservationManager(Collection<? extends AbstractTable> tables, Map<Integer, ? extends Collection<Integer>> joins) {
+        this.store = new ReservationStore();
+        this.tableLocks = new StripedLock(LOCK_STRIPES);
+        this.lastReservationId = new AtomicLong();
+        store.addTables(tables);
+        this.allocator = new TableAllocator(store.getTables());
+        this.availability = new AvailabilityIndex(store.getTables());
+        this.combiner = new TableCombiner(store.getTables(), joins);
+        this.joins = joins;
+        this.eventBus = new ReservationEventBus();
+    }
+    
+    // Built-in floor plan, used when no layout file is configured (see layout.TableLayout)
+    public static List<AbstractTable> defaultTables() {
+        return List.of(
+            new TwoSeaterTable(1, TableType.WINDOW),
+            new FourSeaterTable(2, TableType.BOOTH),
+            new FourSeaterTable(3, TableType.STANDARD, 6),
+            new TwoSeaterTable(4, TableType.STANDARD),
+            new TwoSeaterTable(5, TableType.WINDOW),
+            new TwoSeaterTable(6, TableType.WINDOW),
+            new TwoSeaterTable(7, TableType.STANDARD),
+            new TwoSeaterTable(8, TableType.OUTDOOR),
+            new FourSeaterTable(9, TableType.STANDARD),
+            new FourSeaterTable(10, TableType.STANDARD),
+            new FourSeaterTable(11, TableType.BOOTH),
+            new FourSeaterTable(12, TableType.BOOTH),
+            new FourSeaterTable(13, TableType.OUTDOOR),
+            new FourSeaterTable(14, TableType.OUTDOOR),
+            new FourSeaterTable(15, TableType.WINDOW),
+            new FourSeaterTable(16, TableType.STANDARD, 6),
+            new FourSeaterTable(17, TableType.STANDARD, 6),
+            new FourSeaterTable(18, TableType.OUTDOOR, 8),
+            new FourSeaterTable(19, TableType.BOOTH, 8),
+            new FourSeaterTable(20, TableType.STANDARD, 8)); // Final Table
     }
     
     // Implementation of ReservationService methods
     @Override
     public Reservation addReservation(int tableNo, Reservation res) throws TableNotAvailableExeception {
-        AbstractTable table = findTable(tableNo);
+        if (res.tableNumber() != tableNo) {
+            throw new IllegalArgumentException("Reservation is for table " + res.tableNumber() + ", not table " + tableNo + ".");
+        }
+        Reservation stored;
+        long journalSeq = 0;
+        tableLocks.lock(tableNo);
+        try {
+            // checked under the lock, the floor plan can change while the manager runs
+            AbstractTable table = validateTable(res);
+            TableSchedule schedule = store.getSchedule(tableNo);
+            if (!schedule.isFree(res)) {
+                throw new TableNotAvailableExeception("Table " + tableNo + " is already reserved between "
+                        + res.reservationTime() + " and " + res.endTime() + ".");
+            }
 
-        if (table == null || tableNo > MAX_TABLES) {
-            throw new IllegalArgumentException("Table number " + tableNo + " does not exist (Max table is " + MAX_TABLES + ").");
+            stored = assignId(res);
+            if (!store.addReservation(stored)) {
+                throw new IllegalArgumentException("Reservation id " + stored.id() + " is already in use.");
+            }
+            ReservationJournal log = journal;
+            if (log != null) {
+                try {
+                    journalSeq = log.appendAdd(stored);
+                } catch (RuntimeException e) {
+                    store.removeReservation(stored);
+                    throw e;
+                }
+            }
+            schedule.add(stored);
+            availability.refresh(tableNo, schedule, stored);
+            table.setReserved(true);
+        } finally {
+            tableLocks.unlock(tableNo);
+        }
+        RuntimeException notDurable = awaitDurable(journalSeq);
+        publish(ReservationEvent.added(stored));
+        throwIfNotDurable(notDurable);
+        return stored;
+    }
+    // Check the reservation's table exists and seats the party, returns the table
+    private AbstractTable validateTable(Reservation res) {
+        AbstractTable table = store.getTable(res.tableNumber());
+        if (table == null) {
+            throw new IllegalArgumentException("Table number " + res.tableNumber() + " does not exist.");
+        }
+        if (res.partySize() > table.getCapacity()) {
+            throw new IllegalArgumentException("A party of " + res.partySize() + " does not fit table " + res.tableNumber()
+                    + " (capacity " + table.getCapacity() + ").");
+        }
+        return table;
+    }
+    
+    // Add a whole batch or nothing: every row is validated and conflict-checked (against existing
+    // bookings and earlier rows of the batch) under the locks of all tables involved, then committed
+    // together with one journal record
+    @Override
+    public Reservation[] addReservations(List<Reservation> batch) throws TableNotAvailableExeception {
+        return addBatch(batch, false);
+    }
+    
+    // addReservations, with joined the rows are the tables of one party and are closed together
+    private Reservation[] addBatch(List<Reservation> batch, boolean joined) throws TableNotAvailableExeception {
+        Reservation[] stored = new Reservation[batch.size()];
+        int[] tableNos = new int[stored.length];
+        for (int i = 0; i < stored.length; i++) {
+            tableNos[i] = batch.get(i).tableNumber();
         }
         
-        if (table.isReserved()) {
-            throw new TableNotAvailableExeception("Table " + tableNo + " is already reserved.");
+        long journalSeq = 0;
+        int[] locked = tableLocks.lockAll(tableNos);
+        try {
+            for (int i = 0; i < stored.length; i++) {
+                try {
+                    validateTable(batch.get(i));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Row " + (i + 1) + ": " + e.getMessage(), e);
+                }
+            }
+            int scheduled = 0;
+            int indexed = 0;
+            try {
+                for (; scheduled < stored.length; scheduled++) {
+                    Reservation res = assignId(batch.get(scheduled));
+                    if (!store.getSchedule(res.tableNumber()).add(res)) {
+                        throw new TableNotAvailableExeception("Row " + (scheduled + 1) + ": table " + res.tableNumber()
+                                + " is already reserved between " + res.reservationTime() + " and " + res.endTime() + ".");
+                    }
+                    stored[scheduled] = res;
+                }
+                for (; indexed < stored.length; indexed++) {
+                    if (!store.addReservation(stored[indexed])) {
+                        throw new IllegalArgumentException("Row " + (indexed + 1) + ": reservation id "
+                                + stored[indexed].id() + " is already in use.");
+                    }
+                }
+                ReservationJournal log = journal;
+                if (log != null) {
+                    journalSeq = log.appendGroup(new long[0], stored, joined);
+                }
+            } catch (TableNotAvailableExeception | RuntimeException e) {
+                // undo the rows applied so far, nobody has seen them because the tables are still locked
+                for (int i = 0; i < indexed; i++) {
+                    store.removeReservation(stored[i]);
+                }
+                for (int i = 0; i < scheduled; i++) {
+                    store.getSchedule(stored[i].tableNumber()).remove(stored[i]);
+                }
+                throw e;
+            }
+            for (Reservation res : stored) {
+                availability.refresh(res.tableNumber(), store.getSchedule(res.tableNumber()), res);
+                store.getTable(res.tableNumber()).setReserved(true);
+            }
+            if (joined) {
+                joinParty(Arrays.stream(stored).mapToLong(Reservation::id).toArray());
+            }
+        } finally {
+            tableLocks.unlockAll(locked);
+        }
+        RuntimeException notDurable = awaitDurable(journalSeq);
+        for (Reservation res : stored) {
+            publish(ReservationEvent.added(res));
+        }
+        throwIfNotDurable(notDurable);
+        return stored;
+    }
+    
+    // Replace a reservation in one step: the original stays in place if the new time or table is taken
+    @Override
+    public Reservation updateReservation(long id, Reservation updated) throws TableNotAvailableExeception {
+        Reservation original = store.getReservation(id);
+        if (original == null) {
+            throw new IllegalArgumentException("No reservation with id " + id + ".");
         }
+        Reservation replacement = updated.withId(id);
         
-        if (reservationCount >= MAX_RESERVATIONS) {
-            throw new IllegalStateException("Maximum reservations reached.");
+        long journalSeq = 0;
+        int[] locked = tableLocks.lockAll(original.tableNumber(), replacement.tableNumber());
+        try {
+            AbstractTable newTable = validateTable(updated);
+            // re-check under the lock, another thread may have changed it meanwhile
+            if (store.getReservation(id) != original) {
+                throw new IllegalArgumentException("Reservation " + id + " was changed or removed by someone else.");
+            }
+            TableSchedule oldSchedule = store.getSchedule(original.tableNumber());
+            TableSchedule newSchedule = store.getSchedule(replacement.tableNumber());
+            oldSchedule.remove(original);
+            if (!newSchedule.isFree(replacement)) {
+                oldSchedule.add(original);
+                throw new TableNotAvailableExeception("Table " + replacement.tableNumber() + " is already reserved between "
+                        + replacement.reservationTime() + " and " + replacement.endTime() + ".");
+            }
+            ReservationJournal log = journal;
+            if (log != null) {
+                try {
+                    journalSeq = log.appendGroup(new long[] {id}, new Reservation[] {replacement});
+                } catch (RuntimeException e) {
+                    oldSchedule.add(original);
+                    throw e;
+                }
+            }
+            newSchedule.add(replacement);
+            availability.refresh(original.tableNumber(), oldSchedule, original);
+            availability.refresh(replacement.tableNumber(), newSchedule, replacement);
+            store.removeReservation(original);
+            store.addReservation(replacement);
+            store.getTable(original.tableNumber()).setReserved(!oldSchedule.isEmpty());
+            newTable.setReserved(true);
+        } finally {
+            tableLocks.unlockAll(locked);
         }
-
-        table.setReserved(true);
-        reservations[reservationCount++] = res;
+        RuntimeException notDurable = awaitDurable(journalSeq);
+        publish(ReservationEvent.updated(original, replacement));
+        throwIfNotDurable(notDurable);
+        return replacement;
+    }
+    
+    // Give new reservations the next id, keep the id of reservations that already have one
+    private Reservation assignId(Reservation res) {
+        if (res.id() == 0) {
+            return res.withId(lastReservationId.incrementAndGet());
+        }
+        lastReservationId.accumulateAndGet(res.id(), Math::max);
         return res;
     }
     // Overloaded method to create and add a reservation
@@ -87,80 +305,570 @@ public class ReservationManager implements ReservationService {
         return addReservation(tableNo, res); // Calls the @Override method above
     }
     
-    //mark reservation as complete and free up the table
+    // Overloaded method to create and add a reservation for a party of a known size
+    public Reservation addReservation(int tableNo, String name, String phone, LocalDateTime dateTime, int partySize) throws TableNotAvailableExeception {
+        if (dateTime.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Reservation time must be in the future.");
+        }
+        
+        Reservation res = new Reservation(name, phone, dateTime, tableNo, partySize, Reservation.DEFAULT_DURATION_MINUTES);
+        return addReservation(tableNo, res);
+    }
+    
+    // Book the smallest free table that seats the party, trying the preferred type (may be null) first
+    @Override
+    public Reservation assignTable(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes, TableType preference) throws TableNotAvailableExeception {
+        if (partySize <= 0) {
+            throw new IllegalArgumentException("Party size must be at least 1.");
+        }
+        if (partySize > allocator.maxCapacity()) {
+            throw new TableNotAvailableExeception("No table seats a party of " + partySize + " (largest table seats "
+                    + allocator.maxCapacity() + ").");
+        }
+        Iterator<AbstractTable> candidates = allocator.candidates(partySize, preference).iterator();
+        while (candidates.hasNext()) {
+            int tableNo = candidates.next().getTableNumber();
+            Reservation res = new Reservation(name, phone, dateTime, tableNo, partySize, durationMinutes);
+            // a taken table costs one schedule lookup rather than a failed booking
+            if (!isFree(tableNo, res)) {
+                continue;
+            }
+            try {
+                return addReservation(tableNo, res);
+            } catch (TableNotAvailableExeception e) {
+                // booked by someone else since the look, try the next best fit
+            }
+        }
+        throw new TableNotAvailableExeception("No table for " + partySize + " guests is free at " + dateTime + ".");
+    }
+    
+    // Whether the seating fits into the table's schedule right now; addReservation checks again when it books
+    private boolean isFree(int tableNo, Reservation res) {
+        TableSchedule schedule = store.getSchedule(tableNo);
+        if (schedule == null) {
+            return false;
+        }
+        tableLocks.lock(tableNo);
+        try {
+            return schedule.isFree(res);
+        } finally {
+            tableLocks.unlock(tableNo);
+        }
+    }
+    
+    // Book the free table or joinable group with the least waste (see TableCombiner) as one batch;
+    // the tables of a group are linked as one party
+    @Override
+    public Reservation[] assignTables(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes) throws TableNotAvailableExeception {
+        if (partySize <= 0) {
+            throw new IllegalArgumentException("Party size must be at least 1.");
+        }
+        TableCombiner groups = combiner;
+        if (partySize > groups.maxCapacity()) {
+            throw new TableNotAvailableExeception("No table or group of joinable tables seats a party of " + partySize
+                    + " (the largest seats " + groups.maxCapacity() + ").");
+        }
+        List<AbstractTable> free = availability.findFree(dateTime, dateTime.plusMinutes(durationMinutes), 1, null);
+        for (int skip = 0; ; skip++) {
+            AbstractTable[] chosen = groups.best(partySize, free, skip);
+            if (chosen == null) {
+                throw new TableNotAvailableExeception("No table or group of joinable tables for " + partySize
+                        + " guests is free at " + dateTime + ".");
+            }
+            int[] seats = TableCombiner.seat(chosen, partySize);
+            List<Reservation> batch = new ArrayList<>(chosen.length);
+            for (int i = 0; i < chosen.length; i++) {
+                batch.add(new Reservation(name, phone, dateTime, chosen[i].getTableNumber(), seats[i], durationMinutes));
+            }
+            try {
+                return addBatch(batch, chosen.length > 1);
+            } catch (TableNotAvailableExeception e) {
+                // one of the tables was taken meanwhile, try the next best group
+            }
+        }
+    }
+    
+    //mark the table's current (earliest) reservation as complete and free up its slot
     @Override
     public void removeReservation(int tableNo) {
-        AbstractTable table = findTable(tableNo);
-        
-        if (table != null) {
-            table.setReserved(false); 
+        TableSchedule schedule = store.getSchedule(tableNo);
+        if (schedule == null) {
+            return;
         }
-
-        int indexToRemove = -1;
-        for (int i = 0; i < reservationCount; i++) {
-            if (reservations[i] != null && reservations[i].tableNumber() == tableNo) {
-                indexToRemove = i;
-                break;
+        while (true) {
+            Reservation first;
+            tableLocks.lock(tableNo);
+            try {
+                if (schedule.isEmpty()) {
+                    return;
+                }
+                first = schedule.first();
+            } finally {
+                tableLocks.unlock(tableNo);
+            }
+            // through removeById so a joined party is completed on all of its tables;
+            // look again if another thread removed this one meanwhile
+            if (removeById(first.id(), ReservationOutcome.COMPLETED) != null) {
+                return;
             }
         }
-        
-        if (indexToRemove != -1) {
-            for (int i = indexToRemove; i < reservationCount - 1; i++) {
-                reservations[i] = reservations[i+1];
+    }
+    // method to remove a specific reservation, returns the removed reservation or null
+    @Override
+    public Reservation removeReservationById(long id) {
+        return removeById(id, null);
+    }
+    
+    @Override
+    public Reservation completeReservation(long id) {
+        return removeById(id, ReservationOutcome.COMPLETED);
+    }
+    
+    @Override
+    public Reservation cancelReservation(long id) {
+        return removeById(id, ReservationOutcome.CANCELLED);
+    }
+    
+    @Override
+    public Reservation releaseNoShow(long id) {
+        return removeById(id, ReservationOutcome.NO_SHOW);
+    }
+    
+    // Remove a reservation by id and publish the removal with its outcome (null = no history).
+    // With an outcome, the other tables of a joined party are closed with it
+    private Reservation removeById(long id, ReservationOutcome outcome) {
+        if (outcome != null) {
+            long[] party = joinedParties.get(id);
+            if (party != null) {
+                return removeParty(id, party, outcome);
             }
-            reservations[--reservationCount] = null;
+        }
+        Reservation res = store.getReservation(id);
+        if (res == null) {
+            return null;
+        }
+        long journalSeq;
+        LocalDateTime closedAt = LocalDateTime.now();
+        tableLocks.lock(res.tableNumber());
+        try {
+            // re-check under the lock, another thread may have removed it meanwhile
+            if (store.getReservation(id) != res) {
+                return null;
+            }
+            journalSeq = remove(res, outcome, closedAt);
+        } finally {
+            tableLocks.unlock(res.tableNumber());
+        }
+        RuntimeException notDurable = awaitDurable(journalSeq);
+        recordClosed(res, outcome, closedAt);
+        publish(ReservationEvent.removed(res, outcome));
+        throwIfNotDurable(notDurable);
+        return res;
+    }
+    // Close every table of a joined party under all of their locks; returns the requested reservation,
+    // or null if it is gone (closed with its party by another thread meanwhile)
+    private Reservation removeParty(long id, long[] party, ReservationOutcome outcome) {
+        while (true) {
+            List<Reservation> members = new ArrayList<>(party.length);
+            for (long memberId : party) {
+                Reservation member = store.getReservation(memberId);
+                if (member != null) {
+                    members.add(member);
+                }
+            }
+            int[] tableNos = members.stream().mapToInt(Reservation::tableNumber).toArray();
+            Reservation requested = null;
+            long journalSeq = 0;
+            LocalDateTime closedAt = LocalDateTime.now();
+            int[] locked = tableLocks.lockAll(tableNos);
+            try {
+                if (store.getReservation(id) == null) {
+                    return null;
+                }
+                boolean moved = false;
+                for (long memberId : party) {
+                    Reservation member = store.getReservation(memberId);
+                    moved |= member != null && !members.contains(member);
+                }
+                if (!moved) {
+                    for (Reservation member : members) {
+                        if (store.getReservation(member.id()) == member) {
+                            journalSeq = remove(member, outcome, closedAt);
+                            requested = member.id() == id ? member : requested;
+                        }
+                    }
+                }
+            } finally {
+                tableLocks.unlockAll(locked);
+            }
+            if (requested == null) {
+                // a table of the party was edited before we held its lock, lock the tables it has now
+                continue;
+            }
+            RuntimeException notDurable = awaitDurable(journalSeq);
+            for (Reservation member : members) {
+                recordClosed(member, outcome, closedAt);
+                publish(ReservationEvent.removed(member, outcome));
+            }
+            throwIfNotDurable(notDurable);
+            return requested;
+        }
+    }
+    // Link reservations (already booked, their tables locked or the journal still replaying) as one party
+    private void joinParty(long[] ids) {
+        for (long id : ids) {
+            joinedParties.put(id, ids);
         }
     }
-    // method to get reservation by table number
+    // Helper method to drop a stored reservation from every index, caller holds the table's lock.
+    // Returns the journal sequence of the remove record, which keeps the outcome if there is one (0 without a journal)
+    private long remove(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt) {
+        ReservationJournal log = journal;
+        long journalSeq = log == null ? 0
+                : outcome == null ? log.appendRemove(res.id()) : log.appendClose(res.id(), outcome, closedAt);
+        TableSchedule schedule = store.getSchedule(res.tableNumber());
+        schedule.remove(res);
+        availability.refresh(res.tableNumber(), schedule, res);
+        store.getTable(res.tableNumber()).setReserved(!schedule.isEmpty());
+        store.removeReservation(res);
+        joinedParties.remove(res.id());
+        return journalSeq;
+    }
+    // --- Change notification ---
+    
     @Override
-    public Reservation getReservationByTableNumber(int tableNo) {
-        for (int i = 0; i < reservationCount; i++) {
-            if (reservations[i] != null && reservations[i].tableNumber() == tableNo) {
-                return reservations[i];
+    public void addReservationListener(ReservationListener listener) {
+        eventBus.subscribe(listener);
+    }
+
+    @Override
+    public void addReservationListener(ReservationListener listener, Executor executor) {
+        eventBus.subscribe(listener, executor);
+    }
+
+    @Override
+    public void removeReservationListener(ReservationListener listener) {
+        eventBus.unsubscribe(listener);
+    }
+
+    // Hand a change to the event bus; called after the table locks are released and never blocks
+    private void publish(ReservationEvent event) {
+        eventBus.publish(event);
+    }
+    
+    // Hand a closed reservation to the history, on the closing thread once the close is durable
+    private void recordClosed(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt) {
+        ReservationHistory target = history;
+        if (outcome != null && target != null) {
+            target.recordClosed(res, outcome, closedAt);
+        }
+    }
+    
+    /*
+     * Wait for the group commit that covers a journal record; called after the table lock is released.
+     * Returns why the record is not durable (journal failed or closed, thread interrupted), or null. The
+     * change is in the book by then, so callers still publish and record it, keeping the views and the
+     * history in step with the book, and only then throw (throwIfNotDurable): the caller learns that the
+     * change is in effect but may be lost if the application stops.
+     */
+    private RuntimeException awaitDurable(long journalSeq) {
+        ReservationJournal log = journal;
+        if (journalSeq > 0 && log != null) {
+            try {
+                log.awaitDurable(journalSeq);
+            } catch (RuntimeException e) {
+                return e;
             }
         }
         return null;
     }
+    
+    private static void throwIfNotDurable(RuntimeException notDurable) {
+        if (notDurable != null) {
+            throw notDurable;
+        }
+    }
+    
+    // --- Persistence ---
+    
+    // Put back a reservation read from the journal (or database); ones that are already present are skipped.
+    // A booking on a table the floor plan dropped or shrank keeps a table that seats it (see keepTableFor)
+    public void restoreReservation(Reservation res) {
+        if (store.getReservation(res.id()) != null) {
+            return;
+        }
+        AbstractTable table = store.getTable(res.tableNumber());
+        if (table == null || res.partySize() > table.getCapacity()) {
+            keepTableFor(res, table);
+        }
+        try {
+            addReservation(res.tableNumber(), res);
+        } catch (TableNotAvailableExeception | IllegalArgumentException e) {
+            System.err.println("Skipped journal record for reservation " + res.id() + ": " + e.getMessage());
+        }
+    }
+    // Like updateTables refusing a plan that drops or shrinks a booked table: the saved booking is not
+    // skipped (the next checkpoint would lose it) but gets its table back, as large as the booking needs
+    private void keepTableFor(Reservation res, AbstractTable current) {
+        List<AbstractTable> tables = new ArrayList<>(Arrays.asList(store.getTables()));
+        tables.remove(current);
+        tables.add(new FourSeaterTable(res.tableNumber(), current == null ? TableType.STANDARD : current.getType(),
+                current == null ? res.partySize() : Math.max(res.partySize(), current.getCapacity())));
+        updateTables(tables, joins);
+        synchronized (keptTables) {
+            keptTables.add("table " + res.tableNumber() + (current == null ? " is not in the floor plan" : " seats " + current.getCapacity())
+                    + " but has a saved booking for " + res.partySize() + " (reservation " + res.id() + ")");
+        }
+    }
+    
+    /*
+     * The tables kept for saved bookings while loading them, one line each, empty if the floor plan
+     * fits the book. Such a table stays in the plan until its bookings are moved or closed and the
+     * layout is reloaded; the app shows the list as a storage warning.
+     */
+    public List<String> keptTables() {
+        synchronized (keptTables) {
+            return List.copyOf(keptTables);
+        }
+    }
+    // Link the reservations of a joined-table party read from the journal; ids not in the book are left out
+    public void restoreJoin(long[] ids) {
+        long[] present = Arrays.stream(ids).filter(id -> store.getReservation(id) != null).toArray();
+        if (present.length > 1) {
+            joinParty(present);
+        }
+    }
+    // Put back a close read from the journal: the reservation leaves the book (if it is still there) and is
+    // offered to the history again, which may have missed it. Returns the reservation or null
+    public Reservation restoreClose(long id, ReservationOutcome outcome, LocalDateTime closedAt) {
+        Reservation res = removeReservationById(id);
+        if (res != null) {
+            restoreClose(res, outcome, closedAt);
+        }
+        return res;
+    }
+    
+    // A close read from the journal for a reservation that was not put back into the book (see RepositorySync.replay)
+    public void restoreClose(Reservation res, ReservationOutcome outcome, LocalDateTime closedAt) {
+        synchronized (replayedCloses) {
+            replayedCloses.add(new ClosedReservation(res, outcome, closedAt));
+        }
+    }
+    
+    /*
+     * Hand every reservation closed from now on to the history, and recover the closes replayed from
+     * the journal into it: one that was journaled but not kept before a crash is added, the others are
+     * skipped by the history. Call after the journal has been replayed.
+     */
+    public void attachHistory(ReservationHistory history) {
+        this.history = history;
+        List<ClosedReservation> replayed;
+        synchronized (replayedCloses) {
+            replayed = new ArrayList<>(replayedCloses);
+            replayedCloses.clear();
+        }
+        for (ClosedReservation closed : replayed) {
+            history.recoverClosed(closed.reservation(), closed.outcome(), closed.closedAt());
+        }
+    }
+    
+    // Stop handing closed reservations to the history (if it is still the attached one)
+    public void detachHistory(ReservationHistory history) {
+        if (this.history == history) {
+            this.history = null;
+        }
+    }
+    
+    // Replay the journal into this manager: bookings, removes, closes (kept for the history) and joined
+    // parties. Tools that attach the journal afterwards replay through here, so their checkpoints keep
+    // everything the journal had. Returns the number of records replayed
+    public long replayJournal(ReservationJournal journal) throws IOException {
+        return journal.replay(this::restoreReservation, this::removeReservationById, this::restoreClose, this::restoreJoin);
+    }
+    
+    // Start journaling every change; call after the journal has been replayed into this manager
+    public void attachJournal(ReservationJournal journal) {
+        this.journal = journal;
+        journal.setCheckpointHandler(this::checkpoint);
+    }
+    // Snapshot the active reservations into a new journal generation while no change is in flight
+    public void checkpoint() {
+        ReservationJournal log = journal;
+        if (log == null) {
+            return;
+        }
+        Reservation[] active;
+        List<long[]> parties = new ArrayList<>();
+        long generation;
+        int[] locked = tableLocks.lockEverything();
+        try {
+            active = store.getReservations();
+            Set<long[]> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (long[] party : joinedParties.values()) {
+                if (seen.add(party)) {
+                    parties.add(party);
+                }
+            }
+            generation = log.startGeneration();
+        } finally {
+            tableLocks.unlockAll(locked);
+        }
+        log.completeCheckpoint(generation, active, parties);
+    }
+    // method to get the current (earliest) reservation of a table
+    @Override
+    public Reservation getReservationByTableNumber(int tableNo) {
+        TableSchedule schedule = store.getSchedule(tableNo);
+        if (schedule == null) {
+            return null;
+        }
+        tableLocks.lock(tableNo);
+        try {
+            return schedule.first();
+        } finally {
+            tableLocks.unlock(tableNo);
+        }
+    }
+    // method to get a reservation by its id
+    @Override
+    public Reservation getReservationById(long id) {
+        return store.getReservation(id);
+    }
+    // method to get all reservations made with a phone number
+    @Override
+    public Reservation[] getReservationsByPhone(String phone) {
+        return store.getReservationsByPhone(phone).toArray(new Reservation[0]);
+    }
+    // method to find bookings while the host types a customer's name or phone number
+    @Override
+    public Reservation[] searchCustomers(String query, int limit) {
+        return store.searchCustomers(query, limit).toArray(new Reservation[0]);
+    }
+    // method to get the current table object of a number (replaced when the floor plan is reloaded), or null
+    public AbstractTable getTable(int tableNo) {
+        return store.getTable(tableNo);
+    }
+    // method to get every booking of a table ordered by time
+    @Override
+    public Reservation[] getReservationsForTable(int tableNo) {
+        TableSchedule schedule = store.getSchedule(tableNo);
+        if (schedule == null) {
+            return new Reservation[0];
+        }
+        tableLocks.lock(tableNo);
+        try {
+            return schedule.toArray();
+        } finally {
+            tableLocks.unlock(tableNo);
+        }
+    }
+    // method to check if a table is free for a seating starting at the given time
+    @Override
+    public boolean isTableAvailable(int tableNo, LocalDateTime time) {
+        TableSchedule schedule = store.getSchedule(tableNo);
+        if (schedule == null) {
+            return false;
+        }
+        tableLocks.lock(tableNo);
+        try {
+            return schedule.isFree(time, time.plusMinutes(Reservation.DEFAULT_DURATION_MINUTES));
+        } finally {
+            tableLocks.unlock(tableNo);
+        }
+    }
+    // Availability search over the occupancy bitmaps, no table lock is taken
+    @Override
+    public AbstractTable[] findAvailableTables(LocalDateTime from, LocalDateTime to, int partySize, TableType type) {
+        return availability.findFree(from, to, partySize, type).toArray(new AbstractTable[0]);
+    }
+    
     // method to get all tables
     @Override
     public AbstractTable[] getAllTables() {
-        AbstractTable[] copy = new AbstractTable[tableCount];
-        System.arraycopy(tables, 0, copy, 0, tableCount);
-        return copy; 
+        return store.getTables().clone();
+    }
+    
+    /*
+     * Switch to a new floor plan while running, e.g. after the layout file was edited. Tables are
+     * matched by number: bookings stay on their table, new tables become bookable and changed ones take
+     * the new type and capacity, and joins replaces the joinable groups. Nothing is applied (IllegalArgumentException) if a dropped table still
+     * has bookings or a booked party no longer fits its table; move those bookings first.
+     */
+    public void updateTables(Collection<? extends AbstractTable> tables, Map<Integer, ? extends Collection<Integer>> joins) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("The floor plan does not list any tables.");
+        }
+        IntHashMap<AbstractTable> next = new IntHashMap<>(tables.size());
+        for (AbstractTable table : tables) {
+            if (next.put(table.getTableNumber(), table) != null) {
+                throw new IllegalArgumentException("Table " + table.getTableNumber() + " is listed twice.");
+            }
+        }
+        int[] locked = tableLocks.lockEverything();
+        try {
+            List<String> problems = new ArrayList<>();
+            for (AbstractTable current : store.getTables()) {
+                AbstractTable replacement = next.get(current.getTableNumber());
+                Reservation[] booked = store.getSchedule(current.getTableNumber()).toArray();
+                if (replacement == null && booked.length > 0) {
+                    problems.add("table " + current.getTableNumber() + " is dropped but has " + booked.length + " booking(s)");
+                    continue;
+                }
+                for (Reservation res : booked) {
+                    if (res.partySize() > replacement.getCapacity()) {
+                        problems.add("reservation " + res.id() + " for " + res.partySize() + " does not fit table "
+                                + current.getTableNumber() + " (new capacity " + replacement.getCapacity() + ")");
+                    }
+                }
+            }
+            if (!problems.isEmpty()) {
+                throw new IllegalArgumentException("The new floor plan was not applied: " + String.join("; ", problems) + ".");
+            }
+            store.replaceTables(tables);
+            AvailabilityIndex index = new AvailabilityIndex(store.getTables());
+            for (AbstractTable table : store.getTables()) {
+                TableSchedule schedule = store.getSchedule(table.getTableNumber());
+                table.setReserved(!schedule.isEmpty());
+                for (Reservation res : schedule.toArray()) {
+                    index.refresh(table.getTableNumber(), schedule, res);
+                }
+            }
+            allocator = new TableAllocator(store.getTables());
+            availability = index;
+            combiner = new TableCombiner(store.getTables(), joins);
+            this.joins = joins;
+        } finally {
+            tableLocks.unlockAll(locked);
+        }
     }
     // method to get all reservations 
     @Override
     public Reservation[] getAllReservations() {
-        Reservation[] copy = new Reservation[reservationCount];
-        System.arraycopy(reservations, 0, copy, 0, reservationCount);
-        return copy;
+        return store.getReservations();
     }
-    // Helper method to find a table by its number
-    private AbstractTable findTable(int tableNo) {
-        for (int i = 0; i < tableCount; i++) {
-            if (tables[i].getTableNumber() == tableNo) {
-                return tables[i];
-            }
-        }
-        return null;
+    
+    @Override
+    public int reservationCount() {
+        return store.reservationCount();
+    }
+    // Walks the id index directly; no table lock is taken
+    @Override
+    public void forEachReservation(Consumer<Reservation> action) {
+        store.forEachReservation(action);
     }
     // Method to get filtered tables based on a predicate
     public AbstractTable[] getFilteredTables(Predicate<AbstractTable> filter) {
+        AbstractTable[] tables = store.getTables();
         int matchCount = 0;
-        for (int i = 0; i < tableCount; i++) {
-            if (filter.test(tables[i])) { 
-                matchCount++;
-            }
-        }
-        
-        AbstractTable[] filtered = new AbstractTable[matchCount];
-        int j = 0;
-        for (int i = 0; i < tableCount; i++) {
-            if (filter.test(tables[i])) {
-                filtered[j++] = tables[i];
+        AbstractTable[] filtered = new AbstractTable[tables.length];
+        for (AbstractTable table : tables) {
+            if (filter.test(table)) { 
+                filtered[matchCount++] = table;
             }
         }
-        return filtered;
+        return Arrays.copyOf(filtered, matchCount);
     }
     // Method to get reservation details as a formatted string to be displayed on table 
     public String getReservationDetails(Reservation res, String... fields) {
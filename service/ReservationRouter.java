@@ -0,0 +1,76 @@
+package service;
+/*
+ * This class routes calls for a restaurant chain to the location they belong to. Every location
+ * (restaurant id) is its own ReservationService, usually a ReservationManager with its own tables,
+ * store, table locks, event bus and journal, so bookings at one location never contend with another.
+ * Routing is one lookup in a map that is fixed once the router is built.
+ *
+ * Reservation ids are only unique within a location; callers always name the location first.
+ * Cross-location reports run one query per location in parallel (see acrossLocations).
+ */
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public class ReservationRouter {
+
+    private final Map<String, ReservationService> locations;
+
+    // Locations keep the order of the given map (e.g. sorted by restaurant id)
+    public ReservationRouter(Map<String, ? extends ReservationService> locations) {
+        if (locations.isEmpty()) {
+            throw new IllegalArgumentException("A restaurant chain needs at least one location.");
+        }
+        this.locations = Collections.unmodifiableMap(new LinkedHashMap<>(locations));
+    }
+
+    // The service of one location
+    public ReservationService location(String restaurantId) {
+        ReservationService service = locations.get(restaurantId);
+        if (service == null) {
+            throw new IllegalArgumentException("Unknown location: " + restaurantId);
+        }
+        return service;
+    }
+
+    public boolean hasLocation(String restaurantId) {
+        return locations.containsKey(restaurantId);
+    }
+
+    public Set<String> locationIds() {
+        return locations.keySet();
+    }
+
+    /*
+     * Run a read-only query against every location at the same time, one virtual thread per location,
+     * and return the results by restaurant id (in location order). The locations share no locks, so
+     * the scans do not slow each other or the bookings at other locations down.
+     */
+    public <T> Map<String, T> acrossLocations(Function<? super ReservationService, ? extends T> query) {
+        Map<String, Future<? extends T>> running = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Map.Entry<String, ReservationService> location : locations.entrySet()) {
+                running.put(location.getKey(), executor.submit(() -> query.apply(location.getValue())));
+            }
+            Map<String, T> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<? extends T>> result : running.entrySet()) {
+                results.put(result.getKey(), result.getValue().get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the locations.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Location query failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
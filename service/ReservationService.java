@@ -4,21 +4,131 @@ package service;
  */
 import model.AbstractTable;
 import model.Reservation;
+import model.TableType;
 import exception.TableNotAvailableExeception;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public interface ReservationService {
     // Add a reservation for a specific table
 Reservation addReservation(int tableNo, Reservation res) throws TableNotAvailableExeception;
     
+    // Add all reservations or none of them (each row names its table)
+    Reservation[] addReservations(List<Reservation> batch) throws TableNotAvailableExeception;
+    
+    // Replace the reservation with the given id, keeping the original if the change cannot be booked
+    Reservation updateReservation(long id, Reservation updated) throws TableNotAvailableExeception;
+    
+    // Book the best fitting free table for a party, preference may be null
+    Reservation assignTable(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes, TableType preference) throws TableNotAvailableExeception;
+    
+    // Book the free table or group of joinable tables with the fewest spare seats for the party,
+    // one reservation per table, all booked together or not at all. The tables of a group stay one party:
+    // completing, cancelling or releasing a no-show on any of them closes all of them (edits move one table)
+    Reservation[] assignTables(String name, String phone, int partySize, LocalDateTime dateTime,
+            int durationMinutes) throws TableNotAvailableExeception;
+    
     Reservation getReservationByTableNumber(int tableNo);
     
+    // All bookings of a table ordered by time
+    Reservation[] getReservationsForTable(int tableNo);
+    
+    // Whether a seating starting at the given time fits into the table's schedule
+    boolean isTableAvailable(int tableNo, LocalDateTime time);
+    
+    // Tables seating the party (of the given type, or any when null) with no booking between from and to
+    AbstractTable[] findAvailableTables(LocalDateTime from, LocalDateTime to, int partySize, TableType type);
+    
+    // Mark the table's current (earliest) reservation as complete
     void removeReservation(int tableNo);
     
+    // Withdraw one specific reservation without recording an outcome (undoing a booking, replaying the
+    // journal); returns it or null if there was none with that id
+    Reservation removeReservationById(long id);
+    
+    // The party has been seated and left: remove the reservation and record it as completed
+    Reservation completeReservation(long id);
+    
+    // The booking was called off: remove the reservation and record it as cancelled
+    Reservation cancelReservation(long id);
+    
+    // The party did not turn up within the grace period: remove the reservation and record a no-show
+    Reservation releaseNoShow(long id);
+    
+    Reservation getReservationById(long id);
+    
+    Reservation[] getReservationsByPhone(String phone);
+    
+    // Up to limit reservations whose customer name (any word) or phone number starts with the query
+    Reservation[] searchCustomers(String query, int limit);
+    
     AbstractTable[] getAllTables();
     
     Reservation[] getAllReservations(); 
     
+    // Number of reservations in the book, without copying it
+    default int reservationCount() {
+        return getAllReservations().length;
+    }
+    
+    // Hand every reservation to the action, in no particular order and without copying the whole book
+    // (e.g. for an export); reservations changed meanwhile may or may not be seen
+    default void forEachReservation(Consumer<Reservation> action) {
+        for (Reservation res : getAllReservations()) {
+            action.accept(res);
+        }
+    }
+    
+    // Subscribe to add/remove/update events, delivered in batches on the event bus thread
+    void addReservationListener(ReservationListener listener);
+    
+    // Subscribe with the executor the batches are delivered on, e.g. SwingUtilities::invokeLater
+    void addReservationListener(ReservationListener listener, Executor executor);
+    
+    void removeReservationListener(ReservationListener listener);
+    
+    /*
+     * Stream a large import through addReservations in chunks, so only one chunk is held in memory.
+     * Each chunk is all-or-nothing, the import as a whole only best-effort: a chunk is booked, journaled
+     * and visible to readers and listeners as soon as it is added. If a later chunk fails, the chunks
+     * committed before it are withdrawn again (removeReservationById) and the error is rethrown, but a
+     * crash in between leaves them booked. Returns the number of reservations imported.
+     */
+    default long importReservations(Iterator<Reservation> rows, int chunkSize) throws TableNotAvailableExeception {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The import chunk size must be at least 1.");
+        }
+        long[] committedIds = new long[1024];
+        int imported = 0;
+        List<Reservation> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (rows.hasNext()) {
+                chunk.add(rows.next());
+                if (chunk.size() == chunkSize || !rows.hasNext()) {
+                    for (Reservation res : addReservations(chunk)) {
+                        if (imported == committedIds.length) {
+                            committedIds = Arrays.copyOf(committedIds, committedIds.length * 2);
+                        }
+                        committedIds[imported++] = res.id();
+                    }
+                    chunk.clear();
+                }
+            }
+        } catch (TableNotAvailableExeception | RuntimeException e) {
+            for (int i = 0; i < imported; i++) {
+                removeReservationById(committedIds[i]);
+            }
+            throw e;
+        }
+        return imported;
+    }
+    
     static LocalDateTime calculateFutureTime(int minutesFromNow) {
         if (minutesFromNow <= 0) {
             return LocalDateTime.now();
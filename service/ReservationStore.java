@@ -0,0 +1,178 @@
+package service;
+/*
+ * This class is the storage engine behind ReservationManager. Tables and their schedules are kept in
+ * int-keyed maps and reservations are indexed by id and customer phone, so lookups and removals are O(1)
+ * (plus O(log n) inside a table's schedule) and capacity grows with the data. A CustomerIndex adds
+ * prefix search on customer names and phone numbers.
+ * The reservation indexes are concurrent maps; a table's schedule is only touched while holding that
+ * table's lock in ReservationManager. Tables are added while the manager is being built, before it is shared;
+ * a running manager swaps in a whole new floor plan with replaceTables.
+ */
+import model.AbstractTable;
+import model.Reservation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class ReservationStore {
+
+    private volatile IntHashMap<AbstractTable> tables;
+    private volatile IntHashMap<TableSchedule> schedules;
+    private final Map<Long, Reservation> reservationsById;
+    private final Map<String, Set<Long>> reservationsByPhone;
+    private final CustomerIndex customers;
+
+    // Tables ordered by number, rebuilt only when the floor plan changes
+    private volatile AbstractTable[] orderedTables;
+
+    public ReservationStore() {
+        this.tables = new IntHashMap<>();
+        this.schedules = new IntHashMap<>();
+        this.reservationsById = new ConcurrentHashMap<>();
+        this.reservationsByPhone = new ConcurrentHashMap<>();
+        this.customers = new CustomerIndex();
+        this.orderedTables = new AbstractTable[0];
+    }
+
+    // --- Tables ---
+    public void addTable(AbstractTable table) {
+        addTables(List.of(table));
+    }
+
+    public void addTables(Collection<? extends AbstractTable> newTables) {
+        for (AbstractTable table : newTables) {
+            if (tables.put(table.getTableNumber(), table) == null) {
+                schedules.put(table.getTableNumber(), new TableSchedule());
+            }
+        }
+        orderedTables = ordered(tables);
+    }
+
+    /*
+     * Swap in a new floor plan. Tables that stay (by number) keep their schedule, new ones start empty
+     * and dropped ones are forgotten, so the caller must hold every table lock and have checked that no
+     * dropped table still has bookings. Readers see either the old or the new maps, never a half-built one.
+     */
+    public void replaceTables(Collection<? extends AbstractTable> newTables) {
+        IntHashMap<AbstractTable> nextTables = new IntHashMap<>(newTables.size());
+        IntHashMap<TableSchedule> nextSchedules = new IntHashMap<>(newTables.size());
+        for (AbstractTable table : newTables) {
+            TableSchedule schedule = schedules.get(table.getTableNumber());
+            nextTables.put(table.getTableNumber(), table);
+            nextSchedules.put(table.getTableNumber(), schedule != null ? schedule : new TableSchedule());
+        }
+        schedules = nextSchedules;
+        tables = nextTables;
+        orderedTables = ordered(nextTables);
+    }
+
+    private static AbstractTable[] ordered(IntHashMap<AbstractTable> tables) {
+        int[] numbers = tables.sortedKeys(n -> true);
+        AbstractTable[] ordered = new AbstractTable[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            ordered[i] = tables.get(numbers[i]);
+        }
+        return ordered;
+    }
+
+    public AbstractTable getTable(int tableNo) {
+        return tables.get(tableNo);
+    }
+
+    public TableSchedule getSchedule(int tableNo) {
+        return schedules.get(tableNo);
+    }
+
+    public AbstractTable[] getTables() {
+        return orderedTables;
+    }
+
+    public int tableCount() {
+        return orderedTables.length;
+    }
+
+    // --- Reservations ---
+    // Adds the reservation, returns false if its id is already taken
+    public boolean addReservation(Reservation res) {
+        if (reservationsById.putIfAbsent(res.id(), res) != null) {
+            return false;
+        }
+        reservationsByPhone.compute(normalizePhone(res.customerPhone()), (key, ids) -> {
+            Set<Long> set = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            set.add(res.id());
+            return set;
+        });
+        customers.add(res);
+        return true;
+    }
+
+    public void removeReservation(Reservation res) {
+        reservationsById.remove(res.id());
+        reservationsByPhone.computeIfPresent(normalizePhone(res.customerPhone()), (key, ids) -> {
+            ids.remove(res.id());
+            return ids.isEmpty() ? null : ids;
+        });
+        customers.remove(res);
+    }
+
+    public Reservation getReservation(long id) {
+        return reservationsById.get(id);
+    }
+
+    public List<Reservation> getReservationsByPhone(String phone) {
+        Set<Long> ids = reservationsByPhone.get(normalizePhone(phone));
+        List<Reservation> result = new ArrayList<>();
+        if (ids != null) {
+            for (long id : ids) {
+                Reservation res = reservationsById.get(id);
+                if (res != null) {
+                    result.add(res);
+                }
+            }
+            result.sort(Comparator.comparingLong(Reservation::id));
+        }
+        return result;
+    }
+
+    // Reservations whose customer name or phone starts with the query (see CustomerIndex)
+    public List<Reservation> searchCustomers(String query, int limit) {
+        return customers.search(query, limit);
+    }
+
+    // Snapshot of all reservations in booking (id) order
+    public Reservation[] getReservations() {
+        Reservation[] snapshot = reservationsById.values().toArray(new Reservation[0]);
+        Arrays.sort(snapshot, Comparator.comparingLong(Reservation::id));
+        return snapshot;
+    }
+
+    // Every reservation, unordered and weakly consistent (the index is a ConcurrentHashMap)
+    public void forEachReservation(Consumer<Reservation> action) {
+        reservationsById.values().forEach(action);
+    }
+
+    public int reservationCount() {
+        return reservationsById.size();
+    }
+
+    // Phone numbers are compared on their digits only ("087 123-4567" == "0871234567")
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
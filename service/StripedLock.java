@@ -0,0 +1,72 @@
+package service;
+/*
+ * This class hands out one of a fixed set of locks per table number (lock striping), so bookings on
+ * different tables run in parallel while two bookings on the same table are serialized.
+ */
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    private int stripeOf(int tableNo) {
+        int h = tableNo * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void lock(int tableNo) {
+        stripes[stripeOf(tableNo)].lock();
+    }
+
+    public void unlock(int tableNo) {
+        stripes[stripeOf(tableNo)].unlock();
+    }
+
+    // Lock the stripes of several tables, always in stripe order so two callers cannot deadlock
+    public int[] lockAll(int... tableNos) {
+        int[] order = new int[tableNos.length];
+        for (int i = 0; i < tableNos.length; i++) {
+            order[i] = stripeOf(tableNos[i]);
+        }
+        Arrays.sort(order);
+        int distinct = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || order[i] != order[i - 1]) {
+                order[distinct++] = order[i];
+            }
+        }
+        order = Arrays.copyOf(order, distinct);
+        for (int stripe : order) {
+            stripes[stripe].lock();
+        }
+        return order;
+    }
+
+    // Lock every stripe, e.g. to take a consistent snapshot of all tables
+    public int[] lockEverything() {
+        int[] order = new int[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].lock();
+            order[i] = i;
+        }
+        return order;
+    }
+
+    // Release the stripes returned by lockAll
+    public void unlockAll(int[] lockedStripes) {
+        for (int i = lockedStripes.length - 1; i >= 0; i--) {
+            stripes[lockedStripes[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+/*
+ * This class indexes the tables by capacity (and by TableType within each capacity) so that the best
+ * fitting tables for a party can be listed smallest-first without looking at tables that are too small.
+ */
+import model.AbstractTable;
+import model.TableType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+public class TableAllocator {
+
+    // capacity -> tables of that capacity, ordered by table number
+    private final NavigableMap<Integer, AbstractTable[]> byCapacity;
+    // type -> capacity -> tables
+    private final Map<TableType, NavigableMap<Integer, AbstractTable[]>> byTypeAndCapacity;
+
+    public TableAllocator(AbstractTable[] tables) {
+        this.byCapacity = bucket(List.of(tables));
+        this.byTypeAndCapacity = new EnumMap<>(TableType.class);
+        Map<TableType, List<AbstractTable>> byType = new EnumMap<>(TableType.class);
+        for (AbstractTable table : tables) {
+            byType.computeIfAbsent(table.getType(), t -> new ArrayList<>()).add(table);
+        }
+        byType.forEach((type, list) -> byTypeAndCapacity.put(type, bucket(list)));
+    }
+
+    private static NavigableMap<Integer, AbstractTable[]> bucket(Collection<AbstractTable> tables) {
+        TreeMap<Integer, List<AbstractTable>> lists = new TreeMap<>();
+        for (AbstractTable table : tables) {
+            lists.computeIfAbsent(table.getCapacity(), c -> new ArrayList<>()).add(table);
+        }
+        NavigableMap<Integer, AbstractTable[]> buckets = new TreeMap<>();
+        lists.forEach((capacity, list) -> buckets.put(capacity, list.toArray(new AbstractTable[0])));
+        return buckets;
+    }
+
+    /*
+     * Tables that can seat the party, smallest capacity first. With a preferred type, the tables of
+     * that type come first (best fit among them), followed by every other type (best fit overall).
+     * The buckets are walked lazily, so a caller that stops at the first free table only looks at the
+     * tables before it.
+     */
+    public Stream<AbstractTable> candidates(int partySize, TableType preference) {
+        Stream<AbstractTable> preferred = Stream.empty();
+        if (preference != null) {
+            NavigableMap<Integer, AbstractTable[]> byCapacityOfType = byTypeAndCapacity.get(preference);
+            if (byCapacityOfType != null) {
+                preferred = byCapacityOfType.tailMap(partySize, true).values().stream().flatMap(Arrays::stream);
+            }
+        }
+        Stream<AbstractTable> others = byCapacity.tailMap(partySize, true).values().stream().flatMap(Arrays::stream)
+                .filter(table -> table.getType() != preference);
+        return Stream.concat(preferred, others);
+    }
+
+    // Largest capacity of any single table
+    public int maxCapacity() {
+        return byCapacity.isEmpty() ? 0 : byCapacity.lastKey();
+    }
+}
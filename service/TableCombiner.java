@@ -0,0 +1,227 @@
+package service;
+/*
+ * This class finds the table, or group of tables pushed together, that seats a large party with the
+ * fewest empty seats. Which tables can be joined comes from the floor plan (see layout.TableLayout).
+ *
+ * Every connected group of up to maxTables joinable tables is listed once when the floor plan is set,
+ * each connected set exactly once (the extension-set method: a group only grows with tables numbered
+ * above its first table that are not already next to it). The groups are sorted by total capacity,
+ * then by how many tables they use, so a search starts at the first group that is large enough and
+ * stops at the first one whose tables are all free: the least waste, with the fewest tables to move.
+ * A floor of 120 tables in a grid has a few thousand such groups; a search is a binary search plus a
+ * scan that tests each member against a bitmap of free tables.
+ */
+import model.AbstractTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class TableCombiner {
+
+    public static final int DEFAULT_MAX_TABLES = 4;
+
+    private final AbstractTable[] tables;             // by position
+    private final IntHashMap<Integer> positionOf;     // table number -> position
+    // The groups sorted by capacity, then size, then table numbers; members are positions
+    private final int[][] groups;
+    private final int[] capacities;
+
+    public TableCombiner(AbstractTable[] tables, Map<Integer, ? extends Collection<Integer>> joins) {
+        this(tables, joins, DEFAULT_MAX_TABLES);
+    }
+
+    public TableCombiner(AbstractTable[] tables, Map<Integer, ? extends Collection<Integer>> joins, int maxTables) {
+        if (maxTables < 1) {
+            throw new IllegalArgumentException("At least one table per group is needed.");
+        }
+        this.tables = tables.clone();
+        this.positionOf = new IntHashMap<>(tables.length);
+        for (int i = 0; i < tables.length; i++) {
+            positionOf.put(tables[i].getTableNumber(), i);
+        }
+        int[][] neighbours = neighbours(joins);
+        List<int[]> found = new ArrayList<>();
+        for (int first = 0; first < tables.length; first++) {
+            int[] extension = above(neighbours[first], first);
+            extend(new int[] {first}, extension, first, neighbours, maxTables, found);
+        }
+        found.sort(Comparator.<int[]>comparingInt(this::capacityOf)
+                .thenComparingInt(group -> group.length)
+                .thenComparing(Arrays::compare));
+        this.groups = found.toArray(new int[0][]);
+        this.capacities = new int[groups.length];
+        for (int i = 0; i < groups.length; i++) {
+            capacities[i] = capacityOf(groups[i]);
+        }
+    }
+
+    // Join lists by table number -> neighbour positions, in both directions, ignoring unknown tables
+    private int[][] neighbours(Map<Integer, ? extends Collection<Integer>> joins) {
+        List<List<Integer>> lists = new ArrayList<>(tables.length);
+        for (int i = 0; i < tables.length; i++) {
+            lists.add(new ArrayList<>());
+        }
+        joins.forEach((tableNo, others) -> {
+            Integer from = positionOf.get(tableNo);
+            for (int other : others) {
+                Integer to = positionOf.get(other);
+                if (from == null || to == null || from.equals(to)) {
+                    continue;
+                }
+                if (!lists.get(from).contains(to)) {
+                    lists.get(from).add(to);
+                    lists.get(to).add(from);
+                }
+            }
+        });
+        int[][] neighbours = new int[tables.length][];
+        for (int i = 0; i < tables.length; i++) {
+            neighbours[i] = lists.get(i).stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+        return neighbours;
+    }
+
+    /*
+     * Record the group and grow it by each table of the extension set in turn. A table added later
+     * from the extension may only bring in neighbours that are not in or next to the group yet, which
+     * is what keeps every connected group from being produced twice.
+     */
+    private static void extend(int[] group, int[] extension, int first, int[][] neighbours, int maxTables, List<int[]> found) {
+        int[] members = group.clone();
+        Arrays.sort(members);
+        found.add(members);
+        if (group.length == maxTables) {
+            return;
+        }
+        for (int i = 0; i < extension.length; i++) {
+            int next = extension[i];
+            int[] grown = Arrays.copyOf(group, group.length + 1);
+            grown[group.length] = next;
+            // the rest of the extension set, plus the exclusive neighbours of the new table
+            int[] nextExtension = Arrays.copyOfRange(extension, i + 1, extension.length);
+            for (int candidate : neighbours[next]) {
+                if (candidate > first && !contains(nextExtension, candidate) && !inOrNextTo(group, candidate, neighbours)) {
+                    nextExtension = Arrays.copyOf(nextExtension, nextExtension.length + 1);
+                    nextExtension[nextExtension.length - 1] = candidate;
+                }
+            }
+            extend(grown, nextExtension, first, neighbours, maxTables, found);
+        }
+    }
+
+    private static int[] above(int[] positions, int first) {
+        return Arrays.stream(positions).filter(p -> p > first).toArray();
+    }
+
+    private static boolean inOrNextTo(int[] group, int candidate, int[][] neighbours) {
+        for (int member : group) {
+            if (member == candidate || contains(neighbours[member], candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int capacityOf(int[] group) {
+        int capacity = 0;
+        for (int position : group) {
+            capacity += tables[position].getCapacity();
+        }
+        return capacity;
+    }
+
+    // --- Searching ---
+
+    /*
+     * The group with the fewest spare seats (then the fewest tables) that seats the party and whose
+     * tables are all in freeTables, skipping the first `skip` such groups (to retry after a lost race).
+     * A group never has more tables than guests. Returns null if there is none.
+     */
+    public AbstractTable[] best(int partySize, Collection<AbstractTable> freeTables, int skip) {
+        BitSet free = new BitSet(tables.length);
+        for (AbstractTable table : freeTables) {
+            Integer position = positionOf.get(table.getTableNumber());
+            if (position != null) {
+                free.set(position);
+            }
+        }
+        int skipped = 0;
+        for (int i = firstSeating(partySize); i < groups.length; i++) {
+            int[] group = groups[i];
+            if (group.length > partySize || !allFree(group, free)) {
+                continue;
+            }
+            if (skipped++ < skip) {
+                continue;
+            }
+            AbstractTable[] chosen = new AbstractTable[group.length];
+            for (int j = 0; j < group.length; j++) {
+                chosen[j] = tables[group[j]];
+            }
+            return chosen;
+        }
+        return null;
+    }
+
+    // Index of the first group seating at least partySize
+    private int firstSeating(int partySize) {
+        int low = 0;
+        int high = capacities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (capacities[mid] < partySize) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean allFree(int[] group, BitSet free) {
+        for (int position : group) {
+            if (!free.get(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Most guests any group seats
+    public int maxCapacity() {
+        return capacities.length == 0 ? 0 : capacities[capacities.length - 1];
+    }
+
+    // Number of precomputed groups, single tables included
+    public int groupCount() {
+        return groups.length;
+    }
+
+    /*
+     * Spread a party over the chosen tables: every table is filled up in turn, but each later table
+     * keeps at least one guest. Returns the guests per table, in the order of the tables.
+     */
+    public static int[] seat(AbstractTable[] chosen, int partySize) {
+        int[] seats = new int[chosen.length];
+        int remaining = partySize;
+        for (int i = 0; i < chosen.length; i++) {
+            int later = chosen.length - 1 - i;
+            seats[i] = Math.min(chosen[i].getCapacity(), remaining - later);
+            remaining -= seats[i];
+        }
+        return seats;
+    }
+}
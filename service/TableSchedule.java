@@ -0,0 +1,99 @@
+package service;
+/*
+ * This class keeps the bookings of a single table ordered by start time, so one table can serve
+ * many seatings and an overlap check only looks at the neighbouring bookings (O(log n)).
+ * Times are kept as epoch minutes so comparisons do not go through LocalDateTime arithmetic.
+ */
+import model.Reservation;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ObjLongConsumer;
+
+public class TableSchedule {
+
+    // start minute -> booking
+    private final TreeMap<Long, Reservation> bookings;
+
+    public TableSchedule() {
+        this.bookings = new TreeMap<>();
+    }
+
+    // Minutes since 1970-01-01T00:00 (wall-clock time, no zone)
+    public static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // Check whether a seating from startMinute to endMinute overlaps any existing booking
+    public boolean isFree(long startMinute, long endMinute) {
+        Map.Entry<Long, Reservation> before = bookings.floorEntry(startMinute);
+        if (before != null && before.getKey() + before.getValue().durationMinutes() > startMinute) {
+            return false;
+        }
+        Map.Entry<Long, Reservation> after = bookings.higherEntry(startMinute);
+        return after == null || after.getKey() >= endMinute;
+    }
+
+    public boolean isFree(LocalDateTime start, LocalDateTime end) {
+        return isFree(toEpochMinute(start), toEpochMinute(end));
+    }
+
+    public boolean isFree(Reservation res) {
+        long start = toEpochMinute(res.reservationTime());
+        return isFree(start, start + res.durationMinutes());
+    }
+
+    // Adds the booking, returns false if it overlaps an existing one
+    public boolean add(Reservation res) {
+        long start = toEpochMinute(res.reservationTime());
+        if (!isFree(start, start + res.durationMinutes())) {
+            return false;
+        }
+        bookings.put(start, res);
+        return true;
+    }
+
+    public boolean remove(Reservation res) {
+        return bookings.remove(toEpochMinute(res.reservationTime()), res);
+    }
+
+    // The earliest booking of the table, i.e. the one being served or served next
+    public Reservation first() {
+        Map.Entry<Long, Reservation> first = bookings.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    // The booking that covers the given time, if any
+    public Reservation at(LocalDateTime time) {
+        long minute = toEpochMinute(time);
+        Map.Entry<Long, Reservation> entry = bookings.floorEntry(minute);
+        if (entry != null && entry.getKey() + entry.getValue().durationMinutes() > minute) {
+            return entry.getValue();
+        }
+        return null;
+    }
+
+    // Every booking that overlaps [fromMinute, toMinute), with its start minute, in time order
+    public void forEachOverlapping(long fromMinute, long toMinute, ObjLongConsumer<Reservation> action) {
+        Map.Entry<Long, Reservation> before = bookings.lowerEntry(fromMinute);
+        if (before != null && before.getKey() + before.getValue().durationMinutes() > fromMinute) {
+            action.accept(before.getValue(), before.getKey());
+        }
+        for (Map.Entry<Long, Reservation> entry : bookings.subMap(fromMinute, true, toMinute, false).entrySet()) {
+            action.accept(entry.getValue(), entry.getKey());
+        }
+    }
+
+    public Reservation[] toArray() {
+        return bookings.values().toArray(new Reservation[0]);
+    }
+
+    public boolean isEmpty() {
+        return bookings.isEmpty();
+    }
+
+    public int size() {
+        return bookings.size();
+    }
+}
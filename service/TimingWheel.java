@@ -0,0 +1,179 @@
+package service;
+/*
+ * This class is a hashed timing wheel: a ring of buckets, one per tick, each a doubly linked list of the
+ * timers whose deadline falls on that slot of the ring. Scheduling appends a timer to the bucket of its
+ * deadline tick and cancelling unlinks it, both O(1) however many timers are pending, and nothing is
+ * ever sorted. One thread advances the wheel once per tick and fires the timers of the bucket whose
+ * deadline has come; a timer more than one turn of the wheel away stays in its bucket until the turn it
+ * is due in, so a bucket holds about pending / wheel size timers to look at per tick.
+ * A timer fires at most one tick late, never early. Expired tasks are handed to the wheel's executor.
+ */
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class TimingWheel implements AutoCloseable {
+
+    // About 146 years; keeps deadlines of absurd delays from overflowing
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE / 2;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;    // sentinel of each bucket's list
+    private final int mask;
+    private final Executor executor;
+    private final long startNanos;
+    private final Thread worker;
+    private long currentTick;           // last tick fired, guarded by this
+    private int pending;                // guarded by this
+    private volatile boolean closed;
+
+    // A wheel whose expired tasks run on its own thread
+    public TimingWheel(Duration tick, int wheelSize, String threadName) {
+        this(tick, wheelSize, threadName, Runnable::run);
+    }
+
+    // A wheel whose expired tasks are handed to the executor, e.g. a listener's own thread
+    public TimingWheel(Duration tick, int wheelSize, String threadName, Executor executor) {
+        if (tick.toNanos() <= 0) {
+            throw new IllegalArgumentException("The tick must be positive.");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("The wheel needs at least one bucket.");
+        }
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.tickNanos = tick.toNanos();
+        this.buckets = new Timeout[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Timeout(null, 0);
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = Thread.ofPlatform().name(threadName).daemon().unstarted(this::run);
+        worker.start();
+    }
+
+    // One scheduled task; cancel() takes it off the wheel if it has not fired yet
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+            if (task == null) {
+                // sentinel: an empty list points at itself
+                prev = this;
+                next = this;
+            }
+        }
+
+        // True if the timer was still pending and will not fire now
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (next == null) {
+                    return false;
+                }
+                unlink(this);
+                pending--;
+                return true;
+            }
+        }
+
+        public boolean isPending() {
+            synchronized (TimingWheel.this) {
+                return next != null;
+            }
+        }
+    }
+
+    // Run the task once the delay has passed
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long delayNanos = Math.min(Math.max(0, unit.toNanos(delay)), MAX_DELAY_NANOS);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The timing wheel has been closed.");
+            }
+            long due = System.nanoTime() - startNanos + delayNanos;
+            long tick = Math.max(currentTick + 1, (due + tickNanos - 1) / tickNanos);
+            Timeout timeout = new Timeout(task, tick);
+            Timeout bucket = buckets[(int) (tick & mask)];
+            timeout.prev = bucket.prev;
+            timeout.next = bucket;
+            bucket.prev.next = timeout;
+            bucket.prev = timeout;
+            pending++;
+            return timeout;
+        }
+    }
+
+    // Number of timers that have neither fired nor been cancelled
+    public synchronized int pending() {
+        return pending;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    // --- The wheel's thread ---
+
+    private void run() {
+        long tick = 1;
+        while (!closed) {
+            long wait = startNanos + tick * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            // a late thread catches up tick by tick, so no bucket is skipped
+            for (Timeout timeout : advance(tick++)) {
+                fire(timeout);
+            }
+        }
+    }
+
+    // Take the due timers of the tick's bucket off the wheel
+    private synchronized List<Timeout> advance(long tick) {
+        currentTick = tick;
+        List<Timeout> expired = new ArrayList<>();
+        Timeout bucket = buckets[(int) (tick & mask)];
+        Timeout timeout = bucket.next;
+        while (timeout != bucket) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick <= tick) {
+                unlink(timeout);
+                pending--;
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+        return expired;
+    }
+
+    private void fire(Timeout timeout) {
+        try {
+            executor.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            // the executor was shut down, nobody is waiting for the task any more
+        } catch (RuntimeException e) {
+            System.err.println("Timer task failed: " + e);
+        }
+    }
+
+    // Stop the wheel; pending timers never fire
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+}
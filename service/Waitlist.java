@@ -0,0 +1,280 @@
+package service;
+/*
+ * This class is the walk-in waitlist. A party that could not be seated waits in the queue of its
+ * capacity bucket: the smallest table size of the floor plan that seats it. When a reservation leaves
+ * the book (completed or cancelled) and its table is free for a whole seating, the best waiting party
+ * is booked onto that table at once: the longest-waiting party of the table's own bucket, otherwise of
+ * the next smaller bucket, so big tables are not given to couples while groups are waiting. Each queue
+ * is a sorted set ordered by arrival, so seating the head of a queue and removing a party that walked
+ * away are O(log n), and finding the bucket is a TreeMap lookup.
+ *
+ * Wait estimates follow the live turnover: per bucket, an exponentially weighted moving average of the
+ * time between two tables of that size coming free (starting from one seating spread over the tables
+ * of that size). Only seatings closed while under way count towards it: cancelling a later booking or
+ * completing one that overran is no turnover, though it may still let a waiting party be seated. A
+ * party's estimate is its place in the queue times that interval.
+ *
+ * Matching runs on the waitlist's own thread, fed by the reservation event bus; the host-facing
+ * methods only touch the queues and never wait for a booking.
+ */
+import exception.TableNotAvailableExeception;
+import model.AbstractTable;
+import model.Reservation;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+public class Waitlist implements ReservationListener, AutoCloseable {
+
+    // Weight of the newest interval in the turnover average
+    private static final double TURNOVER_WEIGHT = 0.2;
+
+    // One waiting party; id orders the parties by arrival
+    public record Party(long id, String name, String phone, int partySize, int bucket, LocalDateTime since) {
+    }
+
+    private final ReservationService service;
+    private final ExecutorService matcher;
+    // capacity bucket -> waiting parties by arrival
+    private final NavigableMap<Integer, TreeSet<Party>> queues = new TreeMap<>();
+    private final Map<Long, Party> byId = new HashMap<>();
+    // capacity -> time between two tables of that size coming free
+    private final Map<Integer, Turnover> turnover = new HashMap<>();
+    private final List<BiConsumer<Party, Reservation>> seatedListeners = new CopyOnWriteArrayList<>();
+    private long lastId;
+
+    private Waitlist(ReservationService service) {
+        this.service = service;
+        this.matcher = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("waitlist-matcher").daemon().factory());
+    }
+
+    // A waitlist that seats its parties on the service's tables as they come free
+    public static Waitlist attach(ReservationService service) {
+        Waitlist waitlist = new Waitlist(service);
+        service.addReservationListener(waitlist, waitlist.matcher);
+        return waitlist;
+    }
+
+    // Called on the waitlist thread with the party and the booking it was given
+    public void addSeatedListener(BiConsumer<Party, Reservation> listener) {
+        seatedListeners.add(listener);
+    }
+
+    public void removeSeatedListener(BiConsumer<Party, Reservation> listener) {
+        seatedListeners.remove(listener);
+    }
+
+    // --- The host's side ---
+
+    // Put a walk-in on the list; a table that is free right now is handed out straight away
+    public Party join(String name, String phone, int partySize) {
+        if (partySize <= 0) {
+            throw new IllegalArgumentException("Party size must be at least 1.");
+        }
+        Integer bucket = bucketOf(partySize);
+        if (bucket == null) {
+            throw new IllegalArgumentException("No single table seats a party of " + partySize + "; book joined tables instead.");
+        }
+        Party party;
+        synchronized (this) {
+            party = new Party(++lastId, name, phone, partySize, bucket, LocalDateTime.now());
+            queues.computeIfAbsent(bucket, b -> new TreeSet<>(Comparator.comparingLong(Party::id))).add(party);
+            byId.put(party.id(), party);
+        }
+        matcher.execute(this::seatAtFreeTables);
+        return party;
+    }
+
+    // The party walked away (or was seated by hand); returns it, or null if it was not waiting
+    public synchronized Party remove(long id) {
+        Party party = byId.remove(id);
+        if (party != null) {
+            TreeSet<Party> queue = queues.get(party.bucket());
+            queue.remove(party);
+            if (queue.isEmpty()) {
+                queues.remove(party.bucket());
+            }
+        }
+        return party;
+    }
+
+    // Everyone waiting, longest-waiting first
+    public synchronized List<Party> parties() {
+        List<Party> all = new ArrayList<>(byId.values());
+        all.sort(Comparator.comparingLong(Party::id));
+        return all;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    // Expected wait of a waiting party from now, or null if it is not on the list
+    public synchronized Duration estimatedWait(long id) {
+        Party party = byId.get(id);
+        if (party == null) {
+            return null;
+        }
+        int ahead = queues.get(party.bucket()).headSet(party).size();
+        return interval(party.bucket()).multipliedBy(ahead + 1);
+    }
+
+    // Expected wait of a party that would join now
+    public Duration estimatedWait(int partySize) {
+        Integer bucket = bucketOf(partySize);
+        if (bucket == null) {
+            throw new IllegalArgumentException("No single table seats a party of " + partySize + ".");
+        }
+        synchronized (this) {
+            TreeSet<Party> queue = queues.get(bucket);
+            return interval(bucket).multipliedBy((queue == null ? 0 : queue.size()) + 1);
+        }
+    }
+
+    // The smallest table size that seats the party, or null if no table does
+    private Integer bucketOf(int partySize) {
+        Integer bucket = null;
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getCapacity() >= partySize && (bucket == null || table.getCapacity() < bucket)) {
+                bucket = table.getCapacity();
+            }
+        }
+        return bucket;
+    }
+
+    // Time between two tables of this size coming free, caller holds the monitor
+    private Duration interval(int capacity) {
+        Turnover stats = turnover.get(capacity);
+        if (stats != null && stats.averageNanos > 0) {
+            return Duration.ofNanos((long) stats.averageNanos);
+        }
+        int tables = 0;
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getCapacity() == capacity) {
+                tables++;
+            }
+        }
+        return Duration.ofMinutes(Reservation.DEFAULT_DURATION_MINUTES).dividedBy(Math.max(1, tables));
+    }
+
+    private static final class Turnover {
+        long lastFreedNanos;
+        double averageNanos;
+
+        void tableFreed(long now) {
+            if (lastFreedNanos != 0) {
+                long interval = now - lastFreedNanos;
+                averageNanos = averageNanos == 0 ? interval : averageNanos + TURNOVER_WEIGHT * (interval - averageNanos);
+            }
+            lastFreedNanos = now;
+        }
+    }
+
+    // --- Seating, on the waitlist thread ---
+
+    @Override
+    public void reservationChanged(ReservationEvent event) {
+        if (event.type() != ReservationEvent.Type.REMOVED || event.outcome() == null) {
+            return;
+        }
+        Reservation res = event.reservation();
+        AbstractTable table = tableOf(res.tableNumber());
+        if (table == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // only a seating under way frees its table now; other removals may still unblock it (seat checks)
+        if (!now.isBefore(res.reservationTime()) && now.isBefore(res.endTime())) {
+            synchronized (this) {
+                turnover.computeIfAbsent(table.getCapacity(), c -> new Turnover()).tableFreed(System.nanoTime());
+            }
+        }
+        seat(table);
+    }
+
+    // Events were dropped, so a freed table may have been missed: look at every table
+    @Override
+    public void eventsLost() {
+        seatAtFreeTables();
+    }
+
+    private void seatAtFreeTables() {
+        for (AbstractTable table : service.getAllTables()) {
+            synchronized (this) {
+                if (byId.isEmpty()) {
+                    return;
+                }
+            }
+            seat(table);
+        }
+    }
+
+    // Book the best waiting party onto the table if it is free for a whole seating from now
+    private void seat(AbstractTable table) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!service.isTableAvailable(table.getTableNumber(), now)) {
+            return;
+        }
+        Party party = next(table.getCapacity());
+        if (party == null) {
+            return;
+        }
+        Reservation booked;
+        try {
+            booked = service.addReservation(table.getTableNumber(), new Reservation(party.name(), party.phone(), now,
+                    table.getTableNumber(), party.partySize(), Reservation.DEFAULT_DURATION_MINUTES));
+        } catch (TableNotAvailableExeception | IllegalArgumentException e) {
+            // taken meanwhile (or the floor plan changed): the party keeps its place
+            requeue(party);
+            return;
+        }
+        for (BiConsumer<Party, Reservation> listener : seatedListeners) {
+            listener.accept(party, booked);
+        }
+    }
+
+    // Take the longest-waiting party of the largest bucket the table seats
+    private synchronized Party next(int capacity) {
+        for (Map.Entry<Integer, TreeSet<Party>> queue : queues.headMap(capacity, true).descendingMap().entrySet()) {
+            Party party = queue.getValue().pollFirst();
+            if (queue.getValue().isEmpty()) {
+                queues.remove(queue.getKey());
+            }
+            byId.remove(party.id());
+            return party;
+        }
+        return null;
+    }
+
+    private synchronized void requeue(Party party) {
+        queues.computeIfAbsent(party.bucket(), b -> new TreeSet<>(Comparator.comparingLong(Party::id))).add(party);
+        byId.put(party.id(), party);
+    }
+
+    private AbstractTable tableOf(int tableNo) {
+        for (AbstractTable table : service.getAllTables()) {
+            if (table.getTableNumber() == tableNo) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    // Stop seating parties; the list itself stays readable
+    @Override
+    public void close() {
+        service.removeReservationListener(this);
+        matcher.shutdown();
+    }
+}
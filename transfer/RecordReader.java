@@ -0,0 +1,577 @@
+package transfer;
+/*
+ * This class reads records of CSV (with a header line) or JSON lines from a channel, one record at a
+ * time through a 64 KiB buffer, so a file of any size is read in constant memory. The caller names the
+ * columns it wants; they are matched to the CSV header or the JSON keys, so columns may come in any
+ * order, unknown ones are ignored and missing ones read as absent.
+ *
+ * next() splits the record into the raw bytes of each wanted column (CSV quotes and JSON escapes
+ * undone) and the accessors decode only what is asked for: numbers and ISO date-times are parsed digit
+ * by digit without a formatter, text is decoded from UTF-8. Malformed input is reported with its line
+ * number as an IllegalArgumentException.
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+public class RecordReader implements Closeable {
+
+    // A longer line is taken for a broken file rather than read into memory
+    static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final int[] NANO_SCALE = {0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private final ReadableByteChannel channel;
+    private final TransferFormat format;
+    private final byte[][] names;
+    private final byte[] input = new byte[RecordWriter.BUFFER_SIZE];
+    private final ByteBuffer inputBuffer = ByteBuffer.wrap(input);
+    private int inputPosition;
+    private int inputLimit;
+    private boolean endOfInput;
+
+    // The current record as read, and the unescaped values of the wanted columns
+    private byte[] record = new byte[1024];
+    private int recordLength;
+    private byte[] values = new byte[1024];
+    private int valuesLength;
+    private final int[] valueStart;
+    private final int[] valueLength;
+    // CSV field position -> wanted column (-1 = ignored), from the header
+    private int[] csvColumns;
+    private long line;
+    private long recordLine;
+
+    public RecordReader(ReadableByteChannel channel, TransferFormat format, List<String> columns) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        this.names = new byte[columns.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = columns.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        this.valueStart = new int[names.length];
+        this.valueLength = new int[names.length];
+        if (format == TransferFormat.CSV) {
+            readHeader();
+        }
+    }
+
+    public static RecordReader open(Path file, TransferFormat format, List<String> columns) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new RecordReader(channel, format, columns);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Read the next record; false at the end of the input
+    public boolean next() throws IOException {
+        if (!readRecord()) {
+            return false;
+        }
+        Arrays.fill(valueLength, -1);
+        valuesLength = 0;
+        if (format == TransferFormat.CSV) {
+            splitCsv(csvColumns);
+        } else {
+            parseJson();
+        }
+        return true;
+    }
+
+    // Line number where the current record starts
+    public long line() {
+        return recordLine;
+    }
+
+    // --- Values of the current record ---
+
+    public boolean has(int column) {
+        return valueLength[column] >= 0;
+    }
+
+    // The text of a column, null if it is absent
+    public String string(int column) {
+        return has(column) ? new String(values, valueStart[column], valueLength[column], StandardCharsets.UTF_8) : null;
+    }
+
+    public long number(int column) {
+        int start = require(column);
+        int end = start + valueLength[column];
+        boolean negative = start < end && values[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            throw error(column, "a number");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = values[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error(column, "a number");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public int intNumber(int column) {
+        long value = number(column);
+        if (value != (int) value) {
+            throw error(column, "a number in the int range");
+        }
+        return (int) value;
+    }
+
+    // yyyy-MM-ddTHH:mm[:ss[.fraction]] (a space instead of the T is accepted as well)
+    public LocalDateTime dateTime(int column) {
+        int s = require(column);
+        int length = valueLength[column];
+        if (length < 16 || values[s + 4] != '-' || values[s + 7] != '-' || (values[s + 10] != 'T' && values[s + 10] != ' ')
+                || values[s + 13] != ':' || (length > 16 && (length < 19 || values[s + 16] != ':'))
+                || (length > 19 && (length < 21 || length > 29 || values[s + 19] != '.'))) {
+            return parseOtherDateTime(column);
+        }
+        int year = digits(column, s, 4);
+        int month = digits(column, s + 5, 2);
+        int day = digits(column, s + 8, 2);
+        int hour = digits(column, s + 11, 2);
+        int minute = digits(column, s + 14, 2);
+        int second = length > 16 ? digits(column, s + 17, 2) : 0;
+        int nano = length > 19 ? digits(column, s + 20, length - 20) * NANO_SCALE[length - 20] : 0;
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            throw error(column, "a valid date-time");
+        }
+    }
+
+    // Years beyond four digits and other ISO forms take the general parser
+    private LocalDateTime parseOtherDateTime(int column) {
+        try {
+            return LocalDateTime.parse(string(column));
+        } catch (DateTimeException e) {
+            throw error(column, "a date-time (yyyy-MM-ddTHH:mm)");
+        }
+    }
+
+    private int digits(int column, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = values[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error(column, "a date-time (yyyy-MM-ddTHH:mm)");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int require(int column) {
+        if (!has(column)) {
+            throw new IllegalArgumentException("Line " + recordLine + ": " + new String(names[column], StandardCharsets.UTF_8)
+                    + " is missing.");
+        }
+        return valueStart[column];
+    }
+
+    private IllegalArgumentException error(int column, String expected) {
+        return new IllegalArgumentException("Line " + recordLine + ": " + new String(names[column], StandardCharsets.UTF_8)
+                + " should be " + expected + ", got '" + string(column) + "'.");
+    }
+
+    // --- Records ---
+
+    // Copy the next non-blank line (in CSV, up to a line break outside quotes) into record
+    private boolean readRecord() throws IOException {
+        recordLength = 0;
+        boolean quoted = false;
+        while (true) {
+            if (inputPosition == inputLimit && !fill()) {
+                if (quoted) {
+                    throw new IllegalArgumentException("Line " + recordLine + ": a quoted value is not closed.");
+                }
+                trimCarriageReturn();
+                if (isBlank()) {
+                    return false;
+                }
+                line++;
+                return true;
+            }
+            byte b = input[inputPosition++];
+            if (recordLength == 0) {
+                recordLine = line + 1;
+            }
+            if (b == '\n' && !quoted) {
+                line++;
+                trimCarriageReturn();
+                if (!isBlank()) {
+                    return true;
+                }
+                recordLength = 0;
+                continue;
+            }
+            if (b == '\n') {
+                line++;
+            } else if (b == '"' && format == TransferFormat.CSV) {
+                quoted = !quoted;
+            }
+            if (recordLength == record.length) {
+                if (recordLength >= MAX_RECORD_BYTES) {
+                    throw new IllegalArgumentException("Line " + recordLine + " is longer than " + MAX_RECORD_BYTES + " bytes.");
+                }
+                record = Arrays.copyOf(record, record.length * 2);
+            }
+            record[recordLength++] = b;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        inputBuffer.clear();
+        int read;
+        do {
+            read = channel.read(inputBuffer);
+        } while (read == 0);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        inputPosition = 0;
+        inputLimit = read;
+        return true;
+    }
+
+    private void trimCarriageReturn() {
+        if (recordLength > 0 && record[recordLength - 1] == '\r') {
+            recordLength--;
+        }
+    }
+
+    private boolean isBlank() {
+        for (int i = 0; i < recordLength; i++) {
+            if (record[i] != ' ' && record[i] != '\t' && record[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- CSV ---
+
+    // Match the header names to the wanted columns
+    private void readHeader() throws IOException {
+        if (!readRecord()) {
+            csvColumns = new int[0];
+            return;
+        }
+        int fields = 1;
+        for (int i = 0; i < recordLength; i++) {
+            if (record[i] == ',') {
+                fields++;
+            }
+        }
+        // split with every field kept, then look the names up among the wanted columns; spreadsheets
+        // may start the file with a UTF-8 byte order mark
+        boolean bom = recordLength >= 3 && record[0] == (byte) 0xEF && record[1] == (byte) 0xBB && record[2] == (byte) 0xBF;
+        byte[] header = Arrays.copyOfRange(record, bom ? 3 : 0, recordLength);
+        int[] starts = new int[fields];
+        int[] lengths = new int[fields];
+        int count = splitCsvFields(header, header.length, starts, lengths);
+        csvColumns = new int[count];
+        Arrays.fill(csvColumns, -1);
+        for (int field = 0; field < count; field++) {
+            byte[] name = Arrays.copyOfRange(values, starts[field], starts[field] + Math.max(0, lengths[field]));
+            for (int column = 0; column < names.length; column++) {
+                if (Arrays.equals(trim(name), names[column])) {
+                    csvColumns[field] = column;
+                }
+            }
+        }
+    }
+
+    private static byte[] trim(byte[] name) {
+        int from = 0;
+        int to = name.length;
+        while (from < to && name[from] == ' ') {
+            from++;
+        }
+        while (to > from && name[to - 1] == ' ') {
+            to--;
+        }
+        return Arrays.copyOfRange(name, from, to);
+    }
+
+    private void splitCsv(int[] columns) {
+        int field = 0;
+        int i = 0;
+        while (true) {
+            int start = valuesLength;
+            int length = csvField(record, recordLength, i);
+            int end = csvFieldEnd;
+            if (field < columns.length && columns[field] >= 0) {
+                valueStart[columns[field]] = start;
+                valueLength[columns[field]] = length;
+            } else {
+                valuesLength = start;
+            }
+            field++;
+            if (end >= recordLength) {
+                return;
+            }
+            i = end + 1;
+        }
+    }
+
+    // For the header: every field, in order
+    private int splitCsvFields(byte[] source, int length, int[] starts, int[] lengths) {
+        valuesLength = 0;
+        int field = 0;
+        int i = 0;
+        while (field < starts.length) {
+            starts[field] = valuesLength;
+            lengths[field] = csvField(source, length, i);
+            field++;
+            if (csvFieldEnd >= length) {
+                break;
+            }
+            i = csvFieldEnd + 1;
+        }
+        return field;
+    }
+
+    // Where the field read last ended (the index of its comma, or the end of the record)
+    private int csvFieldEnd;
+
+    // Unquote the field starting at i into values; returns its length, -1 for an empty unquoted field
+    private int csvField(byte[] source, int length, int i) {
+        int start = valuesLength;
+        if (i < length && source[i] == '"') {
+            i++;
+            while (true) {
+                if (i >= length) {
+                    throw new IllegalArgumentException("Line " + recordLine + ": a quoted value is not closed.");
+                }
+                byte b = source[i++];
+                if (b == '"') {
+                    if (i < length && source[i] == '"') {
+                        putValue(b);
+                        i++;
+                        continue;
+                    }
+                    break;
+                }
+                putValue(b);
+            }
+            if (i < length && source[i] != ',') {
+                throw new IllegalArgumentException("Line " + recordLine + ": unexpected text after a quoted value.");
+            }
+            csvFieldEnd = i;
+            return valuesLength - start;
+        }
+        int end = i;
+        while (end < length && source[end] != ',') {
+            putValue(source[end++]);
+        }
+        csvFieldEnd = end;
+        return end == i ? -1 : valuesLength - start;
+    }
+
+    // --- JSON lines ---
+
+    private int at;
+
+    // A flat object: string keys, and strings, numbers, booleans or null as values
+    private void parseJson() {
+        at = 0;
+        skipSpace();
+        expect('{');
+        skipSpace();
+        if (peek() == '}') {
+            at++;
+            return;
+        }
+        while (true) {
+            skipSpace();
+            expect('"');
+            int keyStart = valuesLength;
+            readJsonString();
+            int column = columnNamed(keyStart, valuesLength - keyStart);
+            valuesLength = keyStart;
+            skipSpace();
+            expect(':');
+            skipSpace();
+            int start = valuesLength;
+            int length = readJsonValue();
+            if (column >= 0) {
+                valueStart[column] = start;
+                valueLength[column] = length;
+            } else {
+                valuesLength = start;
+            }
+            skipSpace();
+            byte b = take();
+            if (b == '}') {
+                break;
+            }
+            if (b != ',') {
+                throw jsonError("',' or '}'");
+            }
+        }
+        skipSpace();
+        if (at != recordLength) {
+            throw jsonError("the end of the line");
+        }
+    }
+
+    // The value at the cursor into values; returns its length, -1 for null
+    private int readJsonValue() {
+        int start = valuesLength;
+        byte b = peek();
+        if (b == '"') {
+            at++;
+            readJsonString();
+            return valuesLength - start;
+        }
+        if (b == '{' || b == '[') {
+            throw new IllegalArgumentException("Line " + recordLine + ": nested objects and arrays are not supported.");
+        }
+        while (at < recordLength && record[at] != ',' && record[at] != '}' && record[at] != ' ' && record[at] != '\t') {
+            putValue(record[at++]);
+        }
+        int length = valuesLength - start;
+        if (length == 0) {
+            throw jsonError("a value");
+        }
+        if (length == 4 && values[start] == 'n' && values[start + 1] == 'u' && values[start + 2] == 'l' && values[start + 3] == 'l') {
+            valuesLength = start;
+            return -1;
+        }
+        return length;
+    }
+
+    // The rest of a string whose opening quote was read, unescaped into values
+    private void readJsonString() {
+        while (true) {
+            byte b = take();
+            if (b == '"') {
+                return;
+            }
+            if (b != '\\') {
+                putValue(b);
+                continue;
+            }
+            byte escaped = take();
+            switch (escaped) {
+                case '"', '\\', '/' -> putValue(escaped);
+                case 'b' -> putValue((byte) '\b');
+                case 'f' -> putValue((byte) '\f');
+                case 'n' -> putValue((byte) '\n');
+                case 'r' -> putValue((byte) '\r');
+                case 't' -> putValue((byte) '\t');
+                case 'u' -> putCodeUnit(hex4());
+                default -> throw jsonError("an escape sequence");
+            }
+        }
+    }
+
+    // A \\uXXXX escape as UTF-8; a surrogate pair needs the second escape right after it
+    private void putCodeUnit(int unit) {
+        int code = unit;
+        if (Character.isHighSurrogate((char) unit) && at + 6 <= recordLength && record[at] == '\\' && record[at + 1] == 'u') {
+            at += 2;
+            int low = hex4();
+            code = Character.isLowSurrogate((char) low) ? Character.toCodePoint((char) unit, (char) low) : '?';
+        } else if (Character.isSurrogate((char) unit)) {
+            code = '?';
+        }
+        if (code < 0x80) {
+            putValue((byte) code);
+        } else if (code < 0x800) {
+            putValue((byte) (0xC0 | code >> 6));
+            putValue((byte) (0x80 | code & 0x3F));
+        } else if (code < 0x10000) {
+            putValue((byte) (0xE0 | code >> 12));
+            putValue((byte) (0x80 | code >> 6 & 0x3F));
+            putValue((byte) (0x80 | code & 0x3F));
+        } else {
+            putValue((byte) (0xF0 | code >> 18));
+            putValue((byte) (0x80 | code >> 12 & 0x3F));
+            putValue((byte) (0x80 | code >> 6 & 0x3F));
+            putValue((byte) (0x80 | code & 0x3F));
+        }
+    }
+
+    private int hex4() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(take(), 16);
+            if (digit < 0) {
+                throw jsonError("four hex digits");
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private int columnNamed(int start, int length) {
+        for (int column = 0; column < names.length; column++) {
+            if (Arrays.equals(values, start, start + length, names[column], 0, names[column].length)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private void skipSpace() {
+        while (at < recordLength && (record[at] == ' ' || record[at] == '\t')) {
+            at++;
+        }
+    }
+
+    private byte peek() {
+        if (at >= recordLength) {
+            throw jsonError("more of the object");
+        }
+        return record[at];
+    }
+
+    private byte take() {
+        byte b = peek();
+        at++;
+        return b;
+    }
+
+    private void expect(char c) {
+        if (take() != c) {
+            throw jsonError("'" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException jsonError(String expected) {
+        return new IllegalArgumentException("Line " + recordLine + ": expected " + expected + " at column " + (at + 1) + ".");
+    }
+
+    private void putValue(byte b) {
+        if (valuesLength == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[valuesLength++] = b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,318 @@
+package transfer;
+/*
+ * This class writes records of a fixed list of columns as CSV or JSON lines to a channel. Values are
+ * encoded straight into one 64 KiB buffer (UTF-8, numbers and ISO date-times digit by digit, no
+ * formatter and no String per value) that goes to the channel whenever it fills up, so any number of
+ * records is written in constant memory.
+ *
+ * A record is written value by value in column order and finished with endRecord(). In CSV a missing
+ * value is an empty field and an empty text is "", so the two read back differently; in JSON lines a
+ * missing value is null.
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class RecordWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] DIGITS = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final TransferFormat format;
+    private final int columnCount;
+    // What goes before each column's value: "," in CSV, {"key": / ,"key": in JSON lines
+    private final byte[][] prefixes;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+    private int column;
+    private long records;
+
+    public RecordWriter(WritableByteChannel channel, TransferFormat format, List<String> columns) throws IOException {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("A record needs at least one column.");
+        }
+        this.channel = channel;
+        this.format = format;
+        this.columnCount = columns.size();
+        this.prefixes = new byte[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            String prefix = format == TransferFormat.CSV ? (i == 0 ? "" : ",")
+                    : (i == 0 ? "{" : ",") + "\"" + columns.get(i) + "\":";
+            prefixes[i] = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+        if (format == TransferFormat.CSV) {
+            for (String name : columns) {
+                string(name);
+            }
+            endRecord();
+            records = 0;
+        }
+    }
+
+    // Create (or replace) the file and write to it
+    public static RecordWriter open(Path file, TransferFormat format, List<String> columns) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            return new RecordWriter(channel, format, columns);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // --- Values, in column order ---
+
+    public RecordWriter string(String value) throws IOException {
+        if (value == null) {
+            return empty();
+        }
+        next();
+        if (format == TransferFormat.JSONL) {
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    put('\\');
+                    put(c);
+                } else if (c < 0x20) {
+                    escapeControl(c);
+                } else {
+                    i = putChar(value, i);
+                }
+            }
+            put('"');
+        } else if (value.isEmpty() || needsQuotes(value)) {
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    put('"');
+                }
+                i = putChar(value, i);
+            }
+            put('"');
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                i = putChar(value, i);
+            }
+        }
+        return this;
+    }
+
+    public RecordWriter number(long value) throws IOException {
+        next();
+        putNumber(value);
+        return this;
+    }
+
+    // yyyy-MM-ddTHH:mm, with :ss and the fraction only when they are not zero (like LocalDateTime.toString)
+    public RecordWriter dateTime(LocalDateTime value) throws IOException {
+        if (value == null) {
+            return empty();
+        }
+        next();
+        if (format == TransferFormat.JSONL) {
+            put('"');
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            // outside four digits the ISO text has a sign; rare enough for the general path
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                put(text.charAt(i));
+            }
+        } else {
+            putDigits(year, 4);
+            put('-');
+            putDigits(value.getMonthValue(), 2);
+            put('-');
+            putDigits(value.getDayOfMonth(), 2);
+            put('T');
+            putDigits(value.getHour(), 2);
+            put(':');
+            putDigits(value.getMinute(), 2);
+            int nano = value.getNano();
+            if (value.getSecond() != 0 || nano != 0) {
+                put(':');
+                putDigits(value.getSecond(), 2);
+                if (nano != 0) {
+                    put('.');
+                    if (nano % 1_000_000 == 0) {
+                        putDigits(nano / 1_000_000, 3);
+                    } else if (nano % 1_000 == 0) {
+                        putDigits(nano / 1_000, 6);
+                    } else {
+                        putDigits(nano, 9);
+                    }
+                }
+            }
+        }
+        if (format == TransferFormat.JSONL) {
+            put('"');
+        }
+        return this;
+    }
+
+    // No value for this column
+    public RecordWriter empty() throws IOException {
+        next();
+        if (format == TransferFormat.JSONL) {
+            putAll(NULL);
+        }
+        return this;
+    }
+
+    // Finish the record; every column must have been given a value
+    public void endRecord() throws IOException {
+        if (column != columnCount) {
+            throw new IllegalStateException("The record has " + column + " of " + columnCount + " values.");
+        }
+        if (format == TransferFormat.JSONL) {
+            put('}');
+        }
+        put('\n');
+        column = 0;
+        records++;
+    }
+
+    // Records written so far (without the CSV header)
+    public long records() {
+        return records;
+    }
+
+    // --- Encoding ---
+
+    private void next() throws IOException {
+        if (column == columnCount) {
+            throw new IllegalStateException("The record already has all " + columnCount + " values.");
+        }
+        putAll(prefixes[column++]);
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void escapeControl(char c) throws IOException {
+        put('\\');
+        switch (c) {
+            case '\n' -> put('n');
+            case '\r' -> put('r');
+            case '\t' -> put('t');
+            default -> {
+                put('u');
+                put('0');
+                put('0');
+                put(HEX[c >> 4]);
+                put(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    // UTF-8 of the character at i (two chars for a surrogate pair), returns the index of its last char
+    private int putChar(String value, int i) throws IOException {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            put(c);
+        } else if (c < 0x800) {
+            put(0xC0 | c >> 6);
+            put(0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int code = Character.toCodePoint(c, value.charAt(++i));
+            put(0xF0 | code >> 18);
+            put(0x80 | code >> 12 & 0x3F);
+            put(0x80 | code >> 6 & 0x3F);
+            put(0x80 | code & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+            put('?');
+        } else {
+            put(0xE0 | c >> 12);
+            put(0x80 | c >> 6 & 0x3F);
+            put(0x80 | c & 0x3F);
+        }
+        return i;
+    }
+
+    private void putNumber(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                putAll(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            put('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        if (position + digits > bytes.length) {
+            flush();
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            bytes[i] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    // value zero-padded to width digits
+    private void putDigits(int value, int width) throws IOException {
+        if (position + width > bytes.length) {
+            flush();
+        }
+        for (int i = position + width - 1; i >= position; i--) {
+            bytes[i] = DIGITS[value % 10];
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void put(int b) throws IOException {
+        if (position == bytes.length) {
+            flush();
+        }
+        bytes[position++] = (byte) b;
+    }
+
+    private void putAll(byte[] values) throws IOException {
+        for (byte b : values) {
+            put(b);
+        }
+    }
+
+    // Hand the buffered bytes to the channel
+    public void flush() throws IOException {
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package transfer;
+/*
+ * This class moves reservations and floor plans in and out of the system as CSV or JSON lines (the
+ * format follows the file suffix, see TransferFormat). Everything is streamed: the active book is
+ * exported with forEachReservation instead of a copy of the whole book, the archive a segment at a
+ * time, and imports read one record at a time and hand the rows to the book or archive in chunks, so a
+ * location's whole history moves through a few buffers whatever its size.
+ *
+ * The columns are the keys of the HTTP API: id, tableNumber, customerName, customerPhone,
+ * reservationTime, partySize and durationMinutes, plus outcome and closedAt for the archive, and
+ * number, type, capacity, zone and joins (e.g. 5+6) for floor plans. On import only tableNumber,
+ * customerName and reservationTime are required; an id of 0 or none gets a new id.
+ *
+ * Usage: ReservationTransfer export|import book|archive|layout <file> [--layout file] [--data directory]
+ *        [--from time] [--to time]
+ * The book and archive are those of the data directory (default data/; the journal is replayed), so run
+ * it while the application is stopped.
+ */
+import exception.TableNotAvailableExeception;
+import history.ArchivedReservation;
+import history.ReservationArchive;
+import layout.TableLayout;
+import model.Reservation;
+import model.ReservationOutcome;
+import model.TableType;
+import persistence.ReservationJournal;
+import service.ReservationManager;
+import service.ReservationService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+public final class ReservationTransfer {
+
+    public static final List<String> RESERVATION_COLUMNS = List.of("id", "tableNumber", "customerName", "customerPhone",
+            "reservationTime", "partySize", "durationMinutes");
+    public static final List<String> ARCHIVE_COLUMNS = List.of("id", "tableNumber", "customerName", "customerPhone",
+            "reservationTime", "partySize", "durationMinutes", "outcome", "closedAt");
+    public static final List<String> LAYOUT_COLUMNS = List.of("number", "type", "capacity", "zone", "joins");
+
+    // Column positions in the lists above
+    private static final int ID = 0;
+    private static final int TABLE = 1;
+    private static final int NAME = 2;
+    private static final int PHONE = 3;
+    private static final int TIME = 4;
+    private static final int PARTY = 5;
+    private static final int DURATION = 6;
+    private static final int OUTCOME = 7;
+    private static final int CLOSED_AT = 8;
+
+    // Rows per addReservations call (and per archive append) on import
+    static final int IMPORT_CHUNK = 8192;
+
+    private ReservationTransfer() {
+    }
+
+    // --- Active book ---
+
+    // Write every reservation of the book to the file; returns the number written
+    public static long exportBook(ReservationService service, Path file) throws IOException {
+        try (RecordWriter out = RecordWriter.open(file, TransferFormat.of(file), RESERVATION_COLUMNS)) {
+            try {
+                service.forEachReservation(res -> {
+                    try {
+                        writeReservation(out, res);
+                        out.endRecord();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return out.records();
+        }
+    }
+
+    /*
+     * Book every reservation of the file through ReservationService.importReservations. A conflict or a
+     * bad row withdraws what was imported before it, but those rows were already booked meanwhile (see
+     * importReservations), so import while the application is stopped. Returns the number imported.
+     */
+    public static long importBook(ReservationService service, Path file) throws IOException, TableNotAvailableExeception {
+        try (RecordReader in = RecordReader.open(file, TransferFormat.of(file), RESERVATION_COLUMNS)) {
+            Iterator<Reservation> rows = new Iterator<>() {
+                private Boolean ready;
+
+                @Override
+                public boolean hasNext() {
+                    if (ready == null) {
+                        try {
+                            ready = in.next();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    return ready;
+                }
+
+                @Override
+                public Reservation next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ready = null;
+                    return readReservation(in);
+                }
+            };
+            return service.importReservations(rows, IMPORT_CHUNK);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- Archive ---
+
+    // Write the archived reservations booked for [from, to) to the file; returns the number written
+    public static long exportArchive(ReservationArchive archive, LocalDateTime from, LocalDateTime to, Path file) throws IOException {
+        try (RecordWriter out = RecordWriter.open(file, TransferFormat.of(file), ARCHIVE_COLUMNS)) {
+            try {
+                archive.forEachBetween(from, to, entry -> {
+                    try {
+                        writeReservation(out, entry.reservation());
+                        out.string(entry.outcome().name()).dateTime(entry.closedAt());
+                        out.endRecord();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return out.records();
+        }
+    }
+
+    /*
+     * Append the file's entries to the archive, IMPORT_CHUNK at a time. The archive is append-only:
+     * if a row is bad, the chunks before it stay archived. A missing closedAt is the reservation's end.
+     */
+    public static long importArchive(ReservationArchive archive, Path file) throws IOException {
+        long imported = 0;
+        List<ArchivedReservation> chunk = new ArrayList<>(IMPORT_CHUNK);
+        try (RecordReader in = RecordReader.open(file, TransferFormat.of(file), ARCHIVE_COLUMNS)) {
+            while (in.next()) {
+                Reservation res = readReservation(in);
+                ReservationOutcome outcome = parseEnum(ReservationOutcome.class, in, OUTCOME);
+                chunk.add(new ArchivedReservation(res, outcome, in.has(CLOSED_AT) ? in.dateTime(CLOSED_AT) : res.endTime()));
+                if (chunk.size() == IMPORT_CHUNK) {
+                    archive.append(chunk);
+                    imported += chunk.size();
+                    chunk.clear();
+                }
+            }
+            archive.append(chunk);
+            return imported + chunk.size();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- Floor plans ---
+
+    public static void exportLayout(TableLayout layout, Path file) throws IOException {
+        try (RecordWriter out = RecordWriter.open(file, TransferFormat.of(file), LAYOUT_COLUMNS)) {
+            StringBuilder joins = new StringBuilder();
+            for (TableLayout.TableSpec spec : layout.specs()) {
+                joins.setLength(0);
+                for (int other : spec.joinsWith()) {
+                    joins.append(joins.isEmpty() ? "" : "+").append(other);
+                }
+                out.number(spec.number()).string(spec.type().name()).number(spec.capacity()).string(spec.zone())
+                        .string(joins.isEmpty() ? null : joins.toString());
+                out.endRecord();
+            }
+        }
+    }
+
+    // Read a floor plan; it is checked like a layout file (see TableLayout)
+    public static TableLayout importLayout(Path file) throws IOException {
+        List<TableLayout.TableSpec> specs = new ArrayList<>();
+        try (RecordReader in = RecordReader.open(file, TransferFormat.of(file), LAYOUT_COLUMNS)) {
+            while (in.next()) {
+                List<Integer> joins = new ArrayList<>();
+                String joinText = in.string(4);
+                if (joinText != null && !joinText.isBlank()) {
+                    for (String other : joinText.split("\\+")) {
+                        try {
+                            joins.add(Integer.parseInt(other.trim()));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Line " + in.line() + ": joins should be table numbers like 5+6.");
+                        }
+                    }
+                }
+                specs.add(new TableLayout.TableSpec(in.intNumber(0), parseEnum(TableType.class, in, 1), in.intNumber(2),
+                        in.string(3), joins));
+            }
+            return new TableLayout(specs);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- Rows ---
+
+    private static void writeReservation(RecordWriter out, Reservation res) throws IOException {
+        out.number(res.id()).number(res.tableNumber()).string(res.customerName()).string(res.customerPhone())
+                .dateTime(res.reservationTime()).number(res.partySize()).number(res.durationMinutes());
+    }
+
+    private static Reservation readReservation(RecordReader in) {
+        long id = in.has(ID) ? in.number(ID) : 0;
+        int table = in.intNumber(TABLE);
+        String name = in.string(NAME);
+        String phone = in.string(PHONE);
+        LocalDateTime time = in.dateTime(TIME);
+        int party = in.has(PARTY) ? in.intNumber(PARTY) : 0;
+        int duration = in.has(DURATION) ? in.intNumber(DURATION) : Reservation.DEFAULT_DURATION_MINUTES;
+        try {
+            return new Reservation(name, phone, time, table, party, duration, id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + in.line() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, RecordReader in, int column) {
+        String text = in.string(column);
+        try {
+            return Enum.valueOf(type, text == null ? "" : text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + in.line() + ": unknown " + type.getSimpleName() + " '" + text + "'.");
+        }
+    }
+
+    // --- Command line ---
+
+    private static final String USAGE = "Usage: ReservationTransfer export|import book|archive|layout <file>"
+            + " [--layout file] [--data directory] [--from time] [--to time]";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length % 2 == 0 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        boolean export = args[0].equals("export");
+        Path file = Path.of(args[2]);
+        Path layoutFile = null;
+        Path data = Path.of("data");
+        LocalDateTime from = LocalDateTime.MIN;
+        LocalDateTime to = LocalDateTime.MAX;
+        try {
+            for (int i = 3; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--layout" -> layoutFile = Path.of(args[i + 1]);
+                    case "--data" -> data = Path.of(args[i + 1]);
+                    case "--from" -> from = LocalDateTime.parse(args[i + 1]);
+                    case "--to" -> to = LocalDateTime.parse(args[i + 1]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+                }
+            }
+            long started = System.nanoTime();
+            String done = switch (args[1]) {
+                case "book" -> transferBook(export, file, layoutFile, data);
+                case "archive" -> transferArchive(export, file, data, from, to);
+                case "layout" -> transferLayout(export, file, layoutFile);
+                default -> throw new IllegalArgumentException("Expected book, archive or layout, got " + args[1] + ".");
+            };
+            System.out.printf(Locale.ROOT, "%s in %.1f s%n", done, (System.nanoTime() - started) / 1e9);
+        } catch (IllegalArgumentException | DateTimeException | TableNotAvailableExeception e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String transferBook(boolean export, Path file, Path layoutFile, Path data)
+            throws IOException, TableNotAvailableExeception {
+        TableLayout layout = layoutFile == null ? TableLayout.of(ReservationManager.defaultTables()) : TableLayout.load(layoutFile);
+        ReservationManager manager = new ReservationManager(layout.tables(), layout.joins());
+        try (ReservationJournal journal = ReservationJournal.open(data)) {
+            manager.replayJournal(journal);
+            if (export) {
+                return "Exported " + exportBook(manager, file) + " reservations to " + file;
+            }
+            manager.attachJournal(journal);
+            return "Imported " + importBook(manager, file) + " reservations into " + data;
+        }
+    }
+
+    private static String transferArchive(boolean export, Path file, Path data, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        ReservationArchive archive = ReservationArchive.open(data.resolve("archive"));
+        try {
+            return export ? "Exported " + exportArchive(archive, from, to, file) + " archived reservations to " + file
+                    : "Imported " + importArchive(archive, file) + " archived reservations into " + data.resolve("archive");
+        } finally {
+            archive.close();
+        }
+    }
+
+    private static String transferLayout(boolean export, Path file, Path layoutFile) throws IOException {
+        if (layoutFile == null) {
+            throw new IllegalArgumentException("--layout names the layout file to " + (export ? "export." : "write."));
+        }
+        if (export) {
+            exportLayout(TableLayout.load(layoutFile), file);
+            return "Exported " + layoutFile + " to " + file;
+        }
+        TableLayout layout = importLayout(file);
+        layout.save(layoutFile);
+        return "Wrote " + layout.tableCount() + " tables to " + layoutFile;
+    }
+}
@@ -0,0 +1,24 @@
+package transfer;
+/*
+ * This enum lists the text formats reservations and floor plans are exported to and imported from:
+ * CSV with a header line, and JSON lines (one flat JSON object per line, the keys of the HTTP API).
+ */
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum TransferFormat {
+    CSV,
+    JSONL;
+
+    // The format of a file by its suffix: .csv, or .jsonl / .ndjson
+    public static TransferFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Cannot tell the format of " + file + " (expected .csv, .jsonl or .ndjson).");
+    }
+}
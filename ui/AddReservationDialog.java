@@ -3,34 +3,42 @@ package ui;
  * This class provides a dialog to add a new reservation for a specific table.
  */
 import exception.TableNotAvailableExeception;
-import service.ReservationManager;
+import model.Reservation;
+import model.TableType;
+import service.AsyncReservationService;
+import service.Waitlist;
 
 import javax.swing.*;
 import java.awt.*;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 public class AddReservationDialog extends JDialog {
-    // References to the reservation manager and parent GUI
-    private final ReservationManager manager;
+    // References to the reservation service and parent GUI
+    private final AsyncReservationService service;
     private final MainScreenGUI parentGUI;
 
     // UI components
-    private JTextField tableNoField, nameField, phoneField;
+    private JTextField tableNoField, nameField, phoneField, partySizeField;
     private JTextField dateField, timeField; 
+    private JComboBox<Object> preferenceBox;
     
     private JButton addButton;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    // A booking for this soon is a party standing at the door
+    private static final int WALK_IN_MINUTES = 30;
 
     // Constructor to initialize the dialog
-    public AddReservationDialog(MainScreenGUI parent, ReservationManager manager) {
+    public AddReservationDialog(MainScreenGUI parent, AsyncReservationService service) {
         super(parent, "Add Reservation", true);
-        this.manager = manager;
+        this.service = service;
         this.parentGUI = parent;
         
         setupUI();
@@ -40,22 +48,32 @@ public class AddReservationDialog extends JDialog {
     }
     // Method to set up the UI components
     private void setupUI() {
-        JPanel mainPanel = new JPanel(new GridLayout(6, 2, 10, 10));
+        JPanel mainPanel = new JPanel(new GridLayout(8, 2, 10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         
         tableNoField = new JTextField(5);
         nameField = new JTextField(15);
         phoneField = new JTextField(15);
+        partySizeField = new JTextField("2", 5);
+        preferenceBox = new JComboBox<>();
+        preferenceBox.addItem("Any");
+        for (TableType type : TableType.values()) {
+            preferenceBox.addItem(type);
+        }
         
         dateField = new JTextField(LocalDate.now().format(DATE_FORMATTER), 10); 
         timeField = new JTextField("19:00", 5); 
 
-        mainPanel.add(new JLabel("Table No:"));
+        mainPanel.add(new JLabel("Table No (empty = auto):"));
         mainPanel.add(tableNoField);
         mainPanel.add(new JLabel("Customer Name:"));
         mainPanel.add(nameField);
         mainPanel.add(new JLabel("Phone:"));
         mainPanel.add(phoneField);
+        mainPanel.add(new JLabel("Party Size:"));
+        mainPanel.add(partySizeField);
+        mainPanel.add(new JLabel("Preferred Type:"));
+        mainPanel.add(preferenceBox);
         
         mainPanel.add(new JLabel("Date (YYYY-MM-DD):"));
         mainPanel.add(dateField);
@@ -70,38 +88,121 @@ public class AddReservationDialog extends JDialog {
         
         add(mainPanel, BorderLayout.CENTER);
     }
-    // Method to attempt adding a reservation based on user input
+    // Method to attempt adding a reservation based on user input; the booking runs off the EDT
     private void attemptAddReservation() {
         try {
-            int tableNo = Integer.parseInt(tableNoField.getText().trim());
+            String tableNoText = tableNoField.getText().trim();
             String name = nameField.getText().trim();
             String phone = phoneField.getText().trim();
+            int partySize = Integer.parseInt(partySizeField.getText().trim());
             
             LocalDate date = LocalDate.parse(dateField.getText().trim(), DATE_FORMATTER);
             LocalTime time = LocalTime.parse(timeField.getText().trim(), TIME_FORMATTER);
             LocalDateTime dateTime = LocalDateTime.of(date, time);
             // Validate inputs
-            manager.addReservation(tableNo, name, phone, dateTime);
-            // Success message
-            JOptionPane.showMessageDialog(this, 
-                "Booking successful for Table " + tableNo + " at " + dateTime.format(DATE_FORMATTER) + " " + dateTime.format(TIME_FORMATTER) + ".", 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-            
-            dispose(); 
+            if (dateTime.isBefore(LocalDateTime.now())) {
+                throw new IllegalArgumentException("Reservation time must be in the future.");
+            }
+            CompletableFuture<Reservation[]> booking;
+            if (tableNoText.isEmpty()) {
+                TableType preference = preferenceBox.getSelectedItem() instanceof TableType type ? type : null;
+                // no single table free or large enough: push joinable tables together
+                booking = service.assignTable(name, phone, partySize, dateTime,
+                        Reservation.DEFAULT_DURATION_MINUTES, preference)
+                        .thenApply(res -> new Reservation[] {res})
+                        .exceptionallyCompose(failure -> AsyncReservationService.cause(failure) instanceof TableNotAvailableExeception
+                                ? service.assignTables(name, phone, partySize, dateTime, Reservation.DEFAULT_DURATION_MINUTES)
+                                : CompletableFuture.failedFuture(failure));
+            } else {
+                int tableNo = Integer.parseInt(tableNoText);
+                booking = service.addReservation(tableNo, new Reservation(name, phone, dateTime, tableNo,
+                        partySize, Reservation.DEFAULT_DURATION_MINUTES)).thenApply(res -> new Reservation[] {res});
+            }
+            setBusy(true);
+            booking.whenCompleteAsync((booked, failure) -> {
+                setBusy(false);
+                if (failure != null) {
+                    Throwable cause = AsyncReservationService.cause(failure);
+                    if (cause instanceof TableNotAvailableExeception && isWalkIn(dateTime)
+                            && offerWaitlist(name, phone, partySize)) {
+                        dispose();
+                        return;
+                    }
+                    showFailure(cause);
+                    return;
+                }
+                // Success message
+                JOptionPane.showMessageDialog(this, 
+                    "Booking successful for " + tablesOf(booked) + " at " + dateTime.format(DATE_FORMATTER) + " " + dateTime.format(TIME_FORMATTER) + ".", 
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+                dispose(); 
+            }, SwingUtilities::invokeLater);
 
         } catch (NumberFormatException ex) { // Handle invalid table number input
-            JOptionPane.showMessageDialog(this, "Please enter a valid table number.", 
+            JOptionPane.showMessageDialog(this, "Please enter a valid table number and party size.", 
                 "Input Error", JOptionPane.ERROR_MESSAGE);
         } catch (DateTimeParseException ex) { // Handle invalid date/time format
             JOptionPane.showMessageDialog(this, "Invalid date/time format. Use YYYY-MM-DD and HH:MM.", 
                 "Date/Time Error", JOptionPane.ERROR_MESSAGE);
-        } catch (TableNotAvailableExeception ex) { // Handle table not available
-            JOptionPane.showMessageDialog(this, ex.getMessage(), 
-                "Booking Failed", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException ex) { // Handle other illegal arguments
-            
-            JOptionPane.showMessageDialog(this, ex.getMessage(), 
+            showFailure(ex);
+        }
+    }
+    
+    private static boolean isWalkIn(LocalDateTime dateTime) {
+        return dateTime.isBefore(LocalDateTime.now().plusMinutes(WALK_IN_MINUTES));
+    }
+    
+    // No table is free for the walk-in: offer the waitlist, returns true if the party was put on it
+    private boolean offerWaitlist(String name, String phone, int partySize) {
+        Waitlist waitlist = parentGUI.waitlist();
+        Duration estimate;
+        try {
+            estimate = waitlist.estimatedWait(partySize);
+        } catch (IllegalArgumentException e) {
+            return false; // no single table seats the party
+        }
+        int answer = JOptionPane.showConfirmDialog(this,
+                "No table is free right now. Put " + name + " on the walk-in waitlist?\n"
+                        + "Estimated wait: " + WaitlistGUI.minutes(estimate) + ".",
+                "No Table Free", JOptionPane.YES_NO_OPTION);
+        if (answer != JOptionPane.YES_OPTION) {
+            return false;
+        }
+        waitlist.join(name, phone, partySize);
+        JOptionPane.showMessageDialog(this, name + " is on the waitlist and will be seated when a table comes free.",
+                "Waitlist", JOptionPane.INFORMATION_MESSAGE);
+        return true;
+    }
+    
+    // "Table 4" or "Tables 16 + 17"
+    private static String tablesOf(Reservation[] booked) {
+        StringBuilder tables = new StringBuilder(booked.length == 1 ? "Table " : "Tables ");
+        for (int i = 0; i < booked.length; i++) {
+            tables.append(i == 0 ? "" : " + ").append(booked[i].tableNumber());
+        }
+        return tables.toString();
+    }
+    
+    // Show why the booking failed
+    private void showFailure(Throwable failure) {
+        if (failure instanceof TableNotAvailableExeception) { // Handle table not available
+            JOptionPane.showMessageDialog(this, failure.getMessage(), 
+                "Booking Failed", JOptionPane.ERROR_MESSAGE);
+        } else if (failure instanceof IllegalArgumentException) {
+            JOptionPane.showMessageDialog(this, failure.getMessage(), 
                 "Validation Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Booking failed: " + failure.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+    
+    // Loading state while the booking is in flight
+    private void setBusy(boolean busy) {
+        addButton.setEnabled(!busy);
+        addButton.setText(busy ? "Booking..." : "Book Table");
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+}
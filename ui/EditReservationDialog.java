@@ -3,7 +3,7 @@ package ui;
  * This class provides a dialog to edit an existing reservation for a specific table.
  */
 import model.Reservation;
-import service.ReservationManager;
+import service.AsyncReservationService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -15,7 +15,7 @@ import java.time.format.DateTimeParseException;
 
 public class EditReservationDialog extends JDialog {
     
-    private final ReservationManager manager;
+    private final AsyncReservationService service;
     private final MainScreenGUI parentGUI;
     private final int tableNumberToEdit;
     private final Reservation originalReservation;
@@ -25,19 +25,13 @@ public class EditReservationDialog extends JDialog {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
-    // Constructor to initialize the dialog
-    public EditReservationDialog(MainScreenGUI parent, ReservationManager manager, int tableNo) {
-        super(parent, "Edit Reservation for Table " + tableNo, true);
-        this.manager = manager;
+    // Constructor to initialize the dialog; the caller looks the reservation up off the EDT
+    public EditReservationDialog(MainScreenGUI parent, AsyncReservationService service, Reservation reservation) {
+        super(parent, "Edit Reservation for Table " + reservation.tableNumber(), true);
+        this.service = service;
         this.parentGUI = parent;
-        this.tableNumberToEdit = tableNo;
-
-        this.originalReservation = manager.getReservationByTableNumber(tableNo);
-
-        if (this.originalReservation == null) {
-            JOptionPane.showMessageDialog(parent, "No active reservation found for Table " + tableNo + ".", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+        this.tableNumberToEdit = reservation.tableNumber();
+        this.originalReservation = reservation;
         
         setupUI();
         prePopulateFields();
@@ -83,7 +77,7 @@ public class EditReservationDialog extends JDialog {
         dateField.setText(originalTime.format(DATE_FORMATTER));
         timeField.setText(originalTime.format(TIME_FORMATTER));
     }
-    // Attempt to save the updated reservation
+    // Attempt to save the updated reservation; the update runs off the EDT
     private void attemptSaveReservation() {
         try {
             String name = nameField.getText().trim();
@@ -93,15 +87,26 @@ public class EditReservationDialog extends JDialog {
             LocalTime time = LocalTime.parse(timeField.getText().trim(), TIME_FORMATTER);
             LocalDateTime newDateTime = LocalDateTime.of(date, time);
 
-            manager.removeReservation(tableNumberToEdit); 
-            
-            manager.addReservation(tableNumberToEdit, name, phone, newDateTime);
+            if (newDateTime.isBefore(LocalDateTime.now())) {
+                throw new IllegalArgumentException("Reservation time must be in the future.");
+            }
 
-            JOptionPane.showMessageDialog(this, 
-                "Reservation for Table " + tableNumberToEdit + " updated successfully to " + newDateTime.format(DATE_FORMATTER) + " " + newDateTime.format(TIME_FORMATTER) + ".", 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-            
-            dispose(); 
+            // Atomic replace: the original booking is kept if the new time is not available
+            Reservation updated = new Reservation(name, phone, newDateTime, tableNumberToEdit,
+                    originalReservation.partySize(), originalReservation.durationMinutes());
+            setBusy(true);
+            service.updateReservation(originalReservation.id(), updated).whenCompleteAsync((saved, failure) -> {
+                setBusy(false);
+                if (failure != null) {
+                    showFailure(AsyncReservationService.cause(failure));
+                    return;
+                }
+                JOptionPane.showMessageDialog(this, 
+                    "Reservation for Table " + tableNumberToEdit + " updated successfully to " + newDateTime.format(DATE_FORMATTER) + " " + newDateTime.format(TIME_FORMATTER) + ".", 
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+                dispose(); 
+            }, SwingUtilities::invokeLater);
 
         } catch (NumberFormatException ex) { // Handle invalid table number input
             JOptionPane.showMessageDialog(this, "Please ensure the table number is valid.", 
@@ -110,8 +115,19 @@ public class EditReservationDialog extends JDialog {
             JOptionPane.showMessageDialog(this, "Invalid date/time format. Use YYYY-MM-DD and HH:MM.", 
                 "Date/Time Error", JOptionPane.ERROR_MESSAGE);
         } catch (Exception ex) { // Handle other exceptions
-            JOptionPane.showMessageDialog(this, "Failed to update reservation: " + ex.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
+            showFailure(ex);
         }
     }
-}
\ No newline at end of file
+    
+    private void showFailure(Throwable failure) {
+        JOptionPane.showMessageDialog(this, "Failed to update reservation: " + failure.getMessage(), 
+            "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    // Loading state while the update is in flight
+    private void setBusy(boolean busy) {
+        saveButton.setEnabled(!busy);
+        saveButton.setText(busy ? "Saving..." : "Save Changes");
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+}
@@ -2,24 +2,50 @@ package ui;
 /*
  * This class provides the main GUI screen for the restaurant table reservation system.
  */
+import model.Reservation;
+import service.ArrivalMonitor;
+import service.AsyncReservationService;
 import service.ReservationManager;
+import service.ReservationService;
+import service.Waitlist;
 
 import javax.swing.*;
 import java.awt.*;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 public class MainScreenGUI extends JFrame {
 
     private final ReservationManager manager;
+    // Runs the service calls of the dialogs off the Event Dispatch Thread
+    private final AsyncReservationService service;
+    // Walk-ins who could not be seated, seated automatically as tables come free
+    private final Waitlist waitlist;
+    // Heads-up, late and no-show alerts of the booked parties
+    private final ArrivalMonitor arrivals;
+    private final JLabel alertLabel = new JLabel("  Select an action from the menu.");
     // Constructor to initialize the main screen GUI
     public MainScreenGUI(ReservationManager manager) {
+        this(manager, manager);
+    }
+    // The dialogs call `calls` (e.g. a MeteredReservationService around the manager)
+    public MainScreenGUI(ReservationManager manager, ReservationService calls) {
+        this(manager, calls, Waitlist.attach(calls), ArrivalMonitor.attach(calls));
+    }
+    // With the location's waitlist and arrival monitor
+    public MainScreenGUI(ReservationManager manager, ReservationService calls, Waitlist waitlist, ArrivalMonitor arrivals) {
         
         super("The Spice India - Table Reservation System");
         this.manager = manager;
+        this.service = new AsyncReservationService(calls);
+        this.waitlist = waitlist;
+        this.arrivals = arrivals;
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1000, 700); 
         
         setupLayout(); 
         setLocationRelativeTo(null);
+        arrivals.addAlertListener((alert, res) -> SwingUtilities.invokeLater(() -> alertLabel.setText("  " + alertText(alert, res))));
     }
     // Method to set up the layout of the main screen
     private void setupLayout() {
@@ -40,13 +66,13 @@ public class MainScreenGUI extends JFrame {
         topContainerPanel.add(Box.createVerticalStrut(20)); 
 
         JPanel buttonPanel = new JPanel();
-        buttonPanel.setLayout(new GridLayout(4, 1, 10, 10)); 
+        buttonPanel.setLayout(new GridLayout(5, 1, 10, 10)); 
         
         JButton viewButton = new JButton("1: View Reservations");
-        viewButton.addActionListener(e -> new ViewTablesGUI(manager).setVisible(true));
+        viewButton.addActionListener(e -> new ViewTablesGUI(manager, service, arrivals).setVisible(true));
 
         JButton addButton = new JButton("2: Add Reservation");
-        addButton.addActionListener(e -> new AddReservationDialog(this, manager).setVisible(true));
+        addButton.addActionListener(e -> new AddReservationDialog(this, service).setVisible(true));
 
         JButton editButton = new JButton("3: Edit Reservation");
         editButton.addActionListener(e -> showEditReservationDialog());
@@ -57,7 +83,11 @@ public class MainScreenGUI extends JFrame {
         buttonPanel.add(viewButton);
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
+        JButton waitlistButton = new JButton("5: Walk-in Waitlist");
+        waitlistButton.addActionListener(e -> new WaitlistGUI(waitlist).setVisible(true));
+
         buttonPanel.add(removeButton);
+        buttonPanel.add(waitlistButton);
         
         buttonPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
         
@@ -65,7 +95,17 @@ public class MainScreenGUI extends JFrame {
         
         add(topContainerPanel, BorderLayout.NORTH);
         
-        add(new JLabel("  Select an action from the menu."), BorderLayout.SOUTH);
+        add(alertLabel, BorderLayout.SOUTH);
+    }
+    
+    // One line for the status bar, e.g. "Table 4: Sharma (4) is 5 min late"
+    static String alertText(ArrivalMonitor.Alert alert, Reservation res) {
+        String party = "Table " + res.tableNumber() + ": " + res.customerName() + " (" + res.partySize() + ")";
+        return switch (alert) {
+            case ARRIVING_SOON -> party + " due at " + res.reservationTime().format(DateTimeFormatter.ofPattern("hh:mm a")) + ".";
+            case LATE -> party + " is late.";
+            case NO_SHOW -> party + " did not arrive, the table was released.";
+        };
     }
     
    // Show dialog to edit an existing reservation
@@ -76,11 +116,15 @@ public class MainScreenGUI extends JFrame {
             try {
                 int tableNo = Integer.parseInt(tableNoStr.trim());
                 
-                if (manager.getReservationByTableNumber(tableNo) == null) {
-                    JOptionPane.showMessageDialog(this, "Table " + tableNo + " has no active reservation to edit.", "Error", JOptionPane.ERROR_MESSAGE);
-                } else {
-                    new EditReservationDialog(this, manager, tableNo).setVisible(true);
-                }
+                service.getReservationByTableNumber(tableNo).whenCompleteAsync((reservation, failure) -> {
+                    if (failure != null) {
+                        showFailure(failure);
+                    } else if (reservation == null) {
+                        JOptionPane.showMessageDialog(this, "Table " + tableNo + " has no active reservation to edit.", "Error", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        new EditReservationDialog(this, service, reservation).setVisible(true);
+                    }
+                }, SwingUtilities::invokeLater);
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -94,15 +138,34 @@ public class MainScreenGUI extends JFrame {
             try {
                 int tableNo = Integer.parseInt(tableNoStr.trim());
                 
-                if (manager.getReservationByTableNumber(tableNo) == null) {
-                    JOptionPane.showMessageDialog(this, "Table " + tableNo + " has no active reservation to remove.", "Error", JOptionPane.ERROR_MESSAGE);
-                } else {
-                    manager.removeReservation(tableNo);
-                    JOptionPane.showMessageDialog(this, "Reservation for Table " + tableNo + " successfully removed.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                }
+                service.getReservationByTableNumber(tableNo)
+                        .thenCompose(reservation -> reservation == null
+                                ? CompletableFuture.completedFuture((Reservation) null)
+                                : service.cancelReservation(reservation.id()))
+                        .whenCompleteAsync((removed, failure) -> {
+                    if (failure != null) {
+                        showFailure(failure);
+                    } else if (removed == null) {
+                        JOptionPane.showMessageDialog(this, "Table " + tableNo + " has no active reservation to remove.", "Error", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Reservation for Table " + tableNo + " cancelled.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                }, SwingUtilities::invokeLater);
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
-}
\ No newline at end of file
+    
+    public Waitlist waitlist() {
+        return waitlist;
+    }
+    
+    public ArrivalMonitor arrivals() {
+        return arrivals;
+    }
+    
+    private void showFailure(Throwable failure) {
+        JOptionPane.showMessageDialog(this, "Request failed: " + AsyncReservationService.cause(failure).getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+}
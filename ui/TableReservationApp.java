@@ -2,16 +2,320 @@ package ui;
 /*
  * This is the main application class to launch the restaurant table reservation system.
  */
+import analytics.ReservationAnalytics;
+import history.ReservationArchive;
+import layout.LayoutCache;
+import layout.LayoutWatcher;
+import layout.TableLayout;
+import loadtest.TraceRecorder;
+import metrics.MeteredReservationService;
+import metrics.ReservationMetrics;
+import persistence.ReservationJournal;
+import repository.JdbcReservationRepository;
+import repository.ReservationRepository;
+import repository.RepositorySync;
+import server.ReservationHttpServer;
 import service.ReservationManager;
+import service.ReservationRouter;
+import javax.management.JMException;
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class TableReservationApp {
+
+    // Directory holding the reservation journal and snapshots (one sub-directory per location of a chain)
+    private static final Path DATA_DIRECTORY = Path.of("data");
+    // JDBC URL of the reservation database, e.g. jdbc:h2:./data/reservations; unset = journal only.
+    // With several locations, "{location}" in the URL is replaced by the restaurant id
+    private static final String JDBC_URL_PROPERTY = "reservation.jdbc.url";
+    // Directory of <restaurant id>.layout floor plans; without one the built-in floor plan is used
+    private static final String LAYOUTS_PROPERTY = "reservation.layouts";
+    private static final String DEFAULT_LAYOUTS = "layouts";
+    // Pre-parsed copies of the layout files, so large floor plans load without parsing the text
+    private static final Path LAYOUT_CACHE_DIRECTORY = DATA_DIRECTORY.resolve("layout-cache");
+    // Location shown by the Swing screens and served on the unprefixed HTTP paths (default: the first)
+    private static final String LOCATION_PROPERTY = "reservation.location";
+    private static final String BUILT_IN_LOCATION = "default";
+    // File to record the current location's changes into as a booking trace (see loadtest.LoadDriver); unset = off
+    private static final String TRACE_PROPERTY = "reservation.trace";
     
-    public static void main(String[] args) {
-        ReservationManager manager = new ReservationManager();
+    // Usage: TableReservationApp [--headless [port]]
+    public static void main(String[] args) throws IOException {
+        List<String> warnings = new ArrayList<>();
+        Path layoutDirectory = Path.of(System.getProperty(LAYOUTS_PROPERTY, DEFAULT_LAYOUTS));
+        LayoutCache layoutCache = new LayoutCache(LAYOUT_CACHE_DIRECTORY);
+        Layouts loaded = loadLayouts(layoutDirectory, layoutCache, warnings);
+        Map<String, TableLayout> layouts = loaded.byLocation();
+        String current = System.getProperty(LOCATION_PROPERTY, layouts.keySet().iterator().next());
+        if (!layouts.containsKey(current)) {
+            warnings.add("Unknown location " + current + ", showing " + layouts.keySet().iterator().next() + ".");
+            current = layouts.keySet().iterator().next();
+        }
+        // every location gets its own manager, journal, archive and metrics
+        Map<String, ReservationManager> managers = new LinkedHashMap<>();
+        Map<String, MeteredReservationService> locations = new LinkedHashMap<>();
+        Map<String, ReservationArchive> archives = new LinkedHashMap<>();
+        boolean chain = loaded.chain();
+        for (Map.Entry<String, TableLayout> layout : layouts.entrySet()) {
+            String id = layout.getKey();
+            ReservationManager manager = new ReservationManager(layout.getValue().tables(), layout.getValue().joins());
+            Path dataDirectory = chain ? DATA_DIRECTORY.resolve(id) : DATA_DIRECTORY;
+            String prefix = chain ? "[" + id + "] " : "";
+            addWarning(warnings, prefix, openStorage(manager, dataDirectory, jdbcUrl(id, id.equals(current), chain)));
+            if (!manager.keptTables().isEmpty()) {
+                addWarning(warnings, prefix, "The floor plan does not fit the saved bookings, so these tables were kept: "
+                        + String.join("; ", manager.keptTables()) + ".");
+            }
+            addWarning(warnings, prefix, openArchive(manager, dataDirectory.resolve("archive"), id, archives));
+            managers.put(id, manager);
+            locations.put(id, openMetrics(manager, chain ? id : null));
+        }
+        addWarning(warnings, "", openTrace(managers.get(current)));
+        if (Files.isDirectory(layoutDirectory)) {
+            watchLayouts(layoutDirectory, layoutCache, managers, chain);
+        }
+        String storageWarning = warnings.isEmpty() ? null : String.join("\n", warnings);
+        if (args.length > 0 && args[0].equals("--headless")) {
+            runHeadless(new ReservationRouter(locations), current, locations.get(current).metrics(), openAnalytics(managers, archives),
+                    args.length > 1 ? Integer.parseInt(args[1]) : ReservationHttpServer.DEFAULT_PORT, storageWarning);
+            return;
+        }
+        ReservationManager manager = managers.get(current);
+        MeteredReservationService metered = locations.get(current);
         // Launch the main GUI on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
-            new MainScreenGUI(manager).setVisible(true);
+            MainScreenGUI mainScreen = new MainScreenGUI(manager, metered);
+            mainScreen.setVisible(true);
+            if (storageWarning != null) {
+                JOptionPane.showMessageDialog(mainScreen, storageWarning, "Storage Warning", JOptionPane.WARNING_MESSAGE);
+            }
         });
     }
+
+    // Serve the HTTP/JSON API instead of opening the Swing screens
+    private static void runHeadless(ReservationRouter router, String current, ReservationMetrics metrics,
+            ReservationAnalytics analytics, int port, String storageWarning) throws IOException {
+        if (storageWarning != null) {
+            System.err.println(storageWarning);
+        }
+        ReservationHttpServer server = new ReservationHttpServer(router, current, port, metrics, analytics);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Reservation API listening on port " + server.port());
+    }
+
+    // The floor plans by location; a chain (more than one layout file) keeps each location's data in its own directory
+    private record Layouts(Map<String, TableLayout> byLocation, boolean chain) {
+    }
+
+    /*
+     * The floor plan of every location, or the built-in one when there are no layout files. A location
+     * whose file cannot be read is not opened (with a warning); the others still run in their own data
+     * directories. If the files cannot be listed, or none of them can be read, the app does not start,
+     * rather than take bookings into the built-in location's directory.
+     */
+    private static Layouts loadLayouts(Path directory, LayoutCache cache, List<String> warnings) {
+        List<Path> files = List.of();
+        if (Files.isDirectory(directory)) {
+            try {
+                files = TableLayout.layoutFiles(directory);
+            } catch (IOException e) {
+                exit("The table layouts in " + directory + " could not be listed (" + e.getMessage() + ").");
+            }
+        }
+        if (files.isEmpty()) {
+            Map<String, TableLayout> builtIn = new LinkedHashMap<>();
+            builtIn.put(BUILT_IN_LOCATION, TableLayout.of(ReservationManager.defaultTables()));
+            return new Layouts(builtIn, false);
+        }
+        Map<String, TableLayout> layouts = new LinkedHashMap<>();
+        for (Path file : files) {
+            String id = TableLayout.locationOf(file);
+            try {
+                layouts.put(id, cache.load(file));
+            } catch (IOException | IllegalArgumentException e) {
+                warnings.add("[" + id + "] The floor plan could not be read (" + e.getMessage()
+                        + "); this location is not opened until it is fixed and the app restarted.");
+            }
+        }
+        if (layouts.isEmpty()) {
+            exit("None of the table layouts in " + directory + " could be read:\n" + String.join("\n", warnings));
+        }
+        return new Layouts(layouts, files.size() > 1);
+    }
+
+    private static void exit(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+
+    // Apply edits of the layout files to the running managers; bookings stay where they are
+    private static void watchLayouts(Path directory, LayoutCache cache, Map<String, ReservationManager> managers, boolean chain) {
+        try {
+            LayoutWatcher watcher = LayoutWatcher.start(directory, cache, (id, layout) -> {
+                ReservationManager manager = managers.get(id);
+                String prefix = chain ? "[" + id + "] " : "";
+                if (manager == null) {
+                    System.err.println("New location " + id + " is opened after a restart.");
+                    return;
+                }
+                try {
+                    manager.updateTables(layout.tables(), layout.joins());
+                } catch (IllegalArgumentException e) {
+                    System.err.println(prefix + e.getMessage());
+                    return;
+                }
+                System.out.println(prefix + "Floor plan reloaded (" + layout.tableCount() + " tables).");
+            }, System.err::println);
+            Runtime.getRuntime().addShutdownHook(new Thread(watcher::close));
+        } catch (IOException e) {
+            System.err.println("Layout changes are only picked up after a restart (" + e.getMessage() + ").");
+        }
+    }
+
+    // The database of one location; a URL without {location} is only used for the shown location of a chain
+    private static String jdbcUrl(String location, boolean current, boolean chain) {
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        if (url.contains("{location}")) {
+            return url.replace("{location}", location);
+        }
+        return !chain || current ? url : null;
+    }
+
+    private static void addWarning(List<String> warnings, String prefix, String warning) {
+        if (warning != null) {
+            warnings.add(prefix + warning);
+        }
+    }
+
+    // Load the current bookings from the database (if configured) and the journal, returns a warning if that failed
+    private static String openStorage(ReservationManager manager, Path dataDirectory, String url) {
+        if (url == null) {
+            return openJournal(manager, dataDirectory, null, null);
+        }
+        ReservationRepository repository;
+        // past bookings stay in the database only, also those still in the journal
+        LocalDateTime from = LocalDateTime.now();
+        try {
+            repository = new JdbcReservationRepository(url);
+            RepositorySync.load(repository, manager, from);
+        } catch (SQLException | RuntimeException e) {
+            String warning = openJournal(manager, dataDirectory, null, null);
+            return "The reservation database could not be opened (" + e.getMessage() + ")."
+                    + (warning == null ? "" : "\n" + warning);
+        }
+        String warning = openJournal(manager, dataDirectory, repository, from);
+        RepositorySync sync = RepositorySync.attach(manager, repository);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            sync.close();
+            repository.close();
+        }));
+        return warning;
+    }
+
+    // Time every service call and publish the metrics over JMX (domain restaurant.reservations)
+    private static MeteredReservationService openMetrics(ReservationManager manager, String location) {
+        ReservationMetrics metrics = new ReservationMetrics(manager, location);
+        try {
+            metrics.registerMBeans();
+        } catch (JMException e) {
+            System.err.println("Reservation metrics are not available over JMX: " + e.getMessage());
+        }
+        return new MeteredReservationService(manager, metrics);
+    }
+
+    // Move completed and cancelled reservations into the archive, returns a warning if it cannot be opened
+    private static String openArchive(ReservationManager manager, Path archiveDirectory, String location,
+            Map<String, ReservationArchive> archives) {
+        try {
+            ReservationArchive archive = ReservationArchive.open(archiveDirectory);
+            archive.attach(manager);
+            archives.put(location, archive);
+            Runtime.getRuntime().addShutdownHook(new Thread(archive::close));
+            return null;
+        } catch (IOException e) {
+            return "The reservation archive could not be opened (" + e.getMessage() + ").\n"
+                    + "Completed reservations will not be kept.";
+        }
+    }
+
+    // Reports over every location's book and archive; read from the managers, so reports are not counted as calls
+    private static ReservationAnalytics openAnalytics(Map<String, ReservationManager> managers, Map<String, ReservationArchive> archives) {
+        Map<String, ReservationAnalytics.Location> sources = new LinkedHashMap<>();
+        managers.forEach((id, manager) -> sources.put(id, new ReservationAnalytics.Location(manager, archives.get(id))));
+        ReservationAnalytics analytics = new ReservationAnalytics(sources);
+        Runtime.getRuntime().addShutdownHook(new Thread(analytics::close));
+        return analytics;
+    }
+
+    // Record the bookings as a trace when asked to, returns a warning if the file cannot be written
+    private static String openTrace(ReservationManager manager) {
+        String file = System.getProperty(TRACE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            TraceRecorder recorder = TraceRecorder.attach(manager, Path.of(file));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    System.err.println("Could not write the booking trace: " + e.getMessage());
+                }
+            }));
+            return null;
+        } catch (IOException e) {
+            return "The booking trace could not be recorded (" + e.getMessage() + ").";
+        }
+    }
+
+    // Replay the saved reservations and keep journaling new changes, returns a warning if that failed; with a
+    // repository the bookings that ended before `from` go to it instead of into the manager
+    private static String openJournal(ReservationManager manager, Path dataDirectory, ReservationRepository repository,
+            LocalDateTime from) {
+        ReservationJournal journal;
+        try {
+            journal = ReservationJournal.open(dataDirectory);
+        } catch (IOException e) {
+            return "Saved reservations could not be loaded (" + e.getMessage() + ").\n"
+                    + "Changes made in this session will not be saved.";
+        }
+        try {
+            if (repository == null) {
+                manager.replayJournal(journal);
+            } else {
+                RepositorySync.replay(journal, repository, manager, from);
+            }
+            manager.attachJournal(journal);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close the reservation journal: " + e.getMessage());
+                }
+            }));
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // nothing was appended, so closing leaves the journal files as they were
+            try {
+                journal.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            return "Saved reservations could not be loaded (" + e.getMessage() + ").\n"
+                    + "Changes made in this session will not be saved.";
+        }
+    }
 }
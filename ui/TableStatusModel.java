@@ -0,0 +1,139 @@
+package ui;
+/*
+ * This class is the table model behind ViewTablesGUI. It reads each row straight from the tables of the
+ * reservation service and, for each batch of reservation events from the event bus, repaints only the
+ * rows of the tables involved. An event for a table number the model does not know, or for a table the
+ * manager has replaced since (a reloaded floor plan), re-reads the whole floor plan.
+ */
+import model.AbstractTable;
+import model.Reservation;
+import service.ReservationEvent;
+import service.ReservationListener;
+import service.ReservationManager;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TableStatusModel extends AbstractTableModel implements ReservationListener {
+
+    // Column names for the table
+    private static final String[] COLUMN_NAMES = {"Table No", "Type", "Capacity", "Status", "Action"};
+    public static final int ACTION_COLUMN = 4;
+
+    private final ReservationManager manager;
+    private AbstractTable[] tables;
+    private Map<Integer, Integer> rowByTableNumber;
+
+    public TableStatusModel(ReservationManager manager) {
+        this.manager = manager;
+        loadTables();
+    }
+
+    private void loadTables() {
+        tables = manager.getAllTables();
+        rowByTableNumber = new HashMap<>();
+        for (int row = 0; row < tables.length; row++) {
+            rowByTableNumber.put(tables[row].getTableNumber(), row);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return tables.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        AbstractTable table = tables[row];
+        return switch (column) {
+            case 0 -> table.getTableNumber();
+            case 1 -> table.getType();
+            case 2 -> table.getCapacity();
+            case 3 -> table.isReserved() ? "RESERVED" : "NOT RESERVED";
+            default -> table.isReserved() ? "View/Complete" : "Book";
+        };
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTION_COLUMN;
+    }
+
+    // Single event, only used when the model is subscribed without the EDT executor
+    @Override
+    public void reservationChanged(ReservationEvent event) {
+        reservationsChanged(List.of(event));
+    }
+
+    // A burst of events; subscribed with SwingUtilities::invokeLater so this runs on the EDT
+    @Override
+    public void reservationsChanged(List<ReservationEvent> events) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> reservationsChanged(events));
+            return;
+        }
+        // many changes to the same table repaint its row once
+        Set<Integer> changed = new LinkedHashSet<>();
+        for (ReservationEvent event : events) {
+            changed.add(event.reservation().tableNumber());
+            Reservation previous = event.previous();
+            if (previous != null) {
+                changed.add(previous.tableNumber());
+            }
+        }
+        for (int tableNo : changed) {
+            Integer row = rowByTableNumber.get(tableNo);
+            if (row == null || tables[row] != manager.getTable(tableNo)) {
+                refresh();
+                return;
+            }
+        }
+        if (changed.size() > tables.length / 2) {
+            fireTableRowsUpdated(0, tables.length - 1);
+            return;
+        }
+        for (int tableNo : changed) {
+            tableChanged(tableNo);
+        }
+    }
+
+    // The bus dropped events, repaint everything
+    @Override
+    public void eventsLost() {
+        SwingUtilities.invokeLater(this::refresh);
+    }
+
+    // Repaint the row of one table, must be called on the EDT
+    public void tableChanged(int tableNo) {
+        Integer row = rowByTableNumber.get(tableNo);
+        if (row != null) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    // Re-read the floor plan; only a changed set of tables needs a structural event
+    public void refresh() {
+        AbstractTable[] before = tables;
+        loadTables();
+        if (before.length == tables.length) {
+            fireTableRowsUpdated(0, tables.length - 1);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+}
@@ -4,43 +4,64 @@ package ui;
  */
 import model.AbstractTable;
 import model.Reservation;
+import service.ArrivalMonitor;
+import service.AsyncReservationService;
 import service.ReservationManager;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Vector;
 
 
 public class ViewTablesGUI extends JFrame {
 
     private final ReservationManager manager;
+    private final AsyncReservationService service;
+    // Marking a party as arrived keeps its table from being released as a no-show
+    private final ArrivalMonitor arrivals;
     private JTable reservationTable;
-    private DefaultTableModel tableModel;
-    // Column names for the table
-    private static final String[] COLUMN_NAMES = {"Table No", "Type", "Capacity", "Status", "Action"};
+    private TableStatusModel tableModel;
+    // Customer search: matches are listed under the table while the host types
+    private static final int SEARCH_LIMIT = 20;
+    private final JTextField searchField = new JTextField(18);
+    private final DefaultListModel<Reservation> searchResults = new DefaultListModel<>();
+    private final JList<Reservation> resultList = new JList<>(searchResults);
+    private JScrollPane resultPane;
+    // Only the answer to the latest keystroke is shown
+    private long searchSeq;
     // Constructor to initialize the GUI
-    public ViewTablesGUI(ReservationManager manager) {
+    public ViewTablesGUI(ReservationManager manager, AsyncReservationService service, ArrivalMonitor arrivals) {
         super("Table Status - The Spice India");
         this.manager = manager;
+        this.service = service;
+        this.arrivals = arrivals;
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); 
         setSize(700, 450);
         
         setupTable();
         setupLayout();
-        updateReservationTable();
         setLocationRelativeTo(null);
+
+        // Rows update themselves on reservation changes while the window is open
+        manager.addReservationListener(tableModel, SwingUtilities::invokeLater);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                manager.removeReservationListener(tableModel);
+            }
+        });
     }
     // Method to set up the reservation table
     private void setupTable() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4;
-            }
-        };
+        tableModel = new TableStatusModel(manager);
         reservationTable = new JTable(tableModel);
         
         reservationTable.getColumn("Action").setCellRenderer(new ButtonRenderer());
@@ -55,32 +76,120 @@ public class ViewTablesGUI extends JFrame {
         
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         topPanel.add(refreshButton);
+        topPanel.add(new JLabel("   Find customer (name or phone):"));
+        topPanel.add(searchField);
         add(topPanel, BorderLayout.NORTH);
 
         add(new JScrollPane(reservationTable), BorderLayout.CENTER);
+        setupSearch();
+    }
+    // Method to set up the customer search field and its result list
+    private void setupSearch() {
+        resultList.setVisibleRowCount(5);
+        resultList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                Reservation res = (Reservation) value;
+                String text = res.customerName() + "  -  " + res.customerPhone() + "  -  Table " + res.tableNumber()
+                        + ", " + res.reservationTime().format(DateTimeFormatter.ofPattern("EEE dd MMM, hh:mm a"));
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    showSelectedResult();
+                }
+            }
+        });
+        resultList.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "open");
+        resultList.getActionMap().put("open", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                showSelectedResult();
+            }
+        });
+        // Enter in the search field opens the first match
+        searchField.addActionListener(e -> {
+            if (!searchResults.isEmpty()) {
+                resultList.setSelectedIndex(0);
+                showSelectedResult();
+            }
+        });
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchCustomers();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchCustomers();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchCustomers();
+            }
+        });
+        resultPane = new JScrollPane(resultList);
+        resultPane.setVisible(false);
+        add(resultPane, BorderLayout.SOUTH);
+    }
+    // Method to look up the typed text off the EDT and list the matches
+    private void searchCustomers() {
+        String query = searchField.getText();
+        long seq = ++searchSeq;
+        if (query.isBlank()) {
+            showSearchResults(new Reservation[0]);
+            return;
+        }
+        service.searchCustomers(query, SEARCH_LIMIT).whenCompleteAsync((found, failure) -> {
+            if (seq != searchSeq) {
+                return; // the host has typed more since
+            }
+            showSearchResults(failure == null ? found : new Reservation[0]);
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void showSearchResults(Reservation[] found) {
+        searchResults.clear();
+        for (Reservation res : found) {
+            searchResults.addElement(res);
+        }
+        if (resultPane.isVisible() != (found.length > 0)) {
+            resultPane.setVisible(found.length > 0);
+            revalidate();
+        }
+    }
+
+    private void showSelectedResult() {
+        Reservation selected = resultList.getSelectedValue();
+        if (selected != null) {
+            showReservation(selected, 0);
+        }
     }
     
     // Method to update the reservation table with current data
     public void updateReservationTable() {
-        tableModel.setRowCount(0);
-
-        for (AbstractTable table : manager.getAllTables()) {
-            if (table != null) {
-                Vector<Object> row = new Vector<>();
-                row.add(table.getTableNumber());
-                row.add(table.getType());
-                row.add(table.getCapacity());
-                row.add(table.isReserved() ? "RESERVED" : "NOT RESERVED");
-                row.add(table.isReserved() ? "View/Complete" : "Book"); 
-                tableModel.addRow(row);
-            }
-        }
-        tableModel.fireTableDataChanged();
+        tableModel.refresh();
     }
+    // Look the table's bookings up off the EDT, then show them
     public void showReservationDetails(int tableNo) {
-    Reservation reservation = manager.getReservationByTableNumber(tableNo);
-    
-    if (reservation == null) {
+    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    service.getReservationsForTable(tableNo).whenCompleteAsync((bookings, failure) -> {
+        setCursor(Cursor.getDefaultCursor());
+        if (failure != null) {
+            JOptionPane.showMessageDialog(this, "Could not load Table " + tableNo + ": " + AsyncReservationService.cause(failure).getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        showReservationDetails(tableNo, bookings);
+    }, SwingUtilities::invokeLater);
+}
+    private void showReservationDetails(int tableNo, Reservation[] bookings) {
+    if (bookings.length == 0) {
         int result = JOptionPane.showConfirmDialog(this, 
             "Table " + tableNo + " is NOT RESERVED. Would you like to book it now?", 
             "Book Table", JOptionPane.YES_NO_OPTION);
@@ -92,6 +201,11 @@ public class ViewTablesGUI extends JFrame {
     }
 
     // --- Logic for Reserved Table (View/Complete) ---
+    showReservation(bookings[0], bookings.length - 1);
+}
+    // Show one booking with the options to mark the party as arrived or the booking as complete
+    private void showReservation(Reservation reservation, int laterBookings) {
+    int tableNo = reservation.tableNumber();
     LocalDateTime dateTime = reservation.reservationTime();
     
     // Define formatters for clean output
@@ -111,20 +225,33 @@ public class ViewTablesGUI extends JFrame {
         dateTime.format(dateFormat),
         dateTime.format(timeFormat)
     );
+    if (laterBookings > 0) {
+        details += "\n\nLater bookings for this table: " + laterBookings;
+    }
 
-    // Show options to mark as complete or just close
-    Object[] options = {"Mark as Complete", "Close"};
+    // Show options to mark as arrived, as complete or just close
+    Object[] options = {"Mark as Arrived", "Mark as Complete", "Close"};
     int result = JOptionPane.showOptionDialog(this,
         details,
         "Reservation Info - Table " + tableNo,
-        JOptionPane.YES_NO_OPTION,
+        JOptionPane.YES_NO_CANCEL_OPTION,
         JOptionPane.INFORMATION_MESSAGE,
-        null, options, options[1]);
+        null, options, options[2]);
 
-    if (result == JOptionPane.YES_OPTION) {
-        manager.removeReservation(tableNo); 
-        JOptionPane.showMessageDialog(this, "Reservation for Table " + tableNo + " marked complete.", "Complete", JOptionPane.INFORMATION_MESSAGE);
-        updateReservationTable(); 
+    if (result == 0) {
+        arrivals.arrived(reservation.id());
+        JOptionPane.showMessageDialog(this, reservation.customerName() + " has arrived, Table " + tableNo + " will not be released.", "Arrived", JOptionPane.INFORMATION_MESSAGE);
+    } else if (result == 1) {
+        // complete exactly the booking that was shown, even if the table changed meanwhile
+        service.completeReservation(reservation.id()).whenCompleteAsync((removed, failure) -> {
+            if (failure != null || removed == null) {
+                JOptionPane.showMessageDialog(this, "Reservation for Table " + tableNo + " was already removed.", "Complete", JOptionPane.WARNING_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Reservation for Table " + tableNo + " marked complete.", "Complete", JOptionPane.INFORMATION_MESSAGE);
+            }
+            // drop the completed booking from the search results
+            searchCustomers();
+        }, SwingUtilities::invokeLater);
     }
 }
     // Custom renderer for the button in the table
@@ -0,0 +1,163 @@
+package ui;
+/*
+ * This class shows the walk-in waitlist with each party's time waited and estimated wait. Parties are
+ * seated automatically when a fitting table comes free (see service.Waitlist); the window lists who
+ * was seated where, and the host adds walk-ins or removes parties that left.
+ */
+import model.Reservation;
+import service.Waitlist;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+public class WaitlistGUI extends JFrame {
+
+    // Waited and estimated minutes change with the clock, not only with the list
+    private static final int REFRESH_MILLIS = 15_000;
+
+    private final Waitlist waitlist;
+    private final WaitlistModel model = new WaitlistModel();
+    private final JTable partyTable = new JTable(model);
+    private final JLabel statusLabel = new JLabel(" ");
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    private final BiConsumer<Waitlist.Party, Reservation> seatedListener = (party, booked) -> SwingUtilities.invokeLater(() -> {
+        statusLabel.setText("Seated " + party.name() + " (" + party.partySize() + ") at table " + booked.tableNumber() + ".");
+        refresh();
+    });
+
+    public WaitlistGUI(Waitlist waitlist) {
+        super("Walk-in Waitlist - The Spice India");
+        this.waitlist = waitlist;
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setSize(640, 400);
+        setupLayout();
+        setLocationRelativeTo(null);
+        refresh();
+
+        waitlist.addSeatedListener(seatedListener);
+        refreshTimer.start();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+                waitlist.removeSeatedListener(seatedListener);
+            }
+        });
+    }
+
+    private void setupLayout() {
+        setLayout(new BorderLayout());
+
+        JButton addButton = new JButton("Add Walk-in");
+        addButton.addActionListener(e -> showAddDialog());
+        JButton removeButton = new JButton("Remove Selected");
+        removeButton.addActionListener(e -> removeSelected());
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(addButton);
+        topPanel.add(removeButton);
+        add(topPanel, BorderLayout.NORTH);
+        add(new JScrollPane(partyTable), BorderLayout.CENTER);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    // Ask for the party's details and put it on the list
+    private void showAddDialog() {
+        JTextField nameField = new JTextField(15);
+        JTextField phoneField = new JTextField(15);
+        JTextField partySizeField = new JTextField("2", 5);
+        JPanel form = new JPanel(new GridLayout(3, 2, 10, 10));
+        form.add(new JLabel("Customer Name:"));
+        form.add(nameField);
+        form.add(new JLabel("Phone:"));
+        form.add(phoneField);
+        form.add(new JLabel("Party Size:"));
+        form.add(partySizeField);
+        if (JOptionPane.showConfirmDialog(this, form, "Add Walk-in", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            int partySize = Integer.parseInt(partySizeField.getText().trim());
+            Waitlist.Party party = waitlist.join(nameField.getText().trim(), phoneField.getText().trim(), partySize);
+            statusLabel.setText(party.name() + " added, estimated wait " + minutes(waitlist.estimatedWait(party.id())) + ".");
+            refresh();
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid party size.", "Input Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Validation Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void removeSelected() {
+        int row = partyTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "Select a party first.", "Remove", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Waitlist.Party party = model.partyAt(row);
+        if (waitlist.remove(party.id()) != null) {
+            statusLabel.setText(party.name() + " removed from the waitlist.");
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        model.load(waitlist.parties());
+    }
+
+    // "5 min", or "-" when the party is no longer waiting
+    static String minutes(Duration duration) {
+        return duration == null ? "-" : Math.max(0, (duration.getSeconds() + 59) / 60) + " min";
+    }
+
+    // Rows of the waitlist, re-read on every refresh
+    private final class WaitlistModel extends AbstractTableModel {
+        private final String[] columns = {"#", "Name", "Phone", "Party", "Waiting", "Est. Wait"};
+        private List<Waitlist.Party> parties = List.of();
+
+        void load(List<Waitlist.Party> snapshot) {
+            parties = snapshot;
+            fireTableDataChanged();
+        }
+
+        Waitlist.Party partyAt(int row) {
+            return parties.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return parties.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Waitlist.Party party = parties.get(row);
+            return switch (column) {
+                case 0 -> party.id();
+                case 1 -> party.name();
+                case 2 -> party.phone();
+                case 3 -> party.partySize();
+                case 4 -> minutes(Duration.between(party.since(), LocalDateTime.now()));
+                default -> minutes(waitlist.estimatedWait(party.id()));
+            };
+        }
+    }
+}